@@ -0,0 +1,137 @@
+package com.mylogo.visitors.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Quantile sketch of visit durations with a bounded relative error.
+ * <p>
+ * Values are counted in logarithmic buckets whose bounds grow by a factor of
+ * {@code (1 + accuracy) / (1 - accuracy)}, so any quantile is reported within {@code accuracy} of a
+ * value actually present. Covering every positive {@code long} takes about two thousand buckets at
+ * 1%. Because a bucket is just a count, values can be removed again, and two sketches with the same
+ * accuracy merge exactly by adding their counts.
+ * Not thread-safe.
+ */
+public final class DurationSketch {
+
+    public static final double DEFAULT_ACCURACY = 0.01;
+
+    private final double accuracy;
+    private final double gamma;
+    private final double logGamma;
+    // Bucket i holds the magnitudes in (gamma^(i-1), gamma^i]
+    private long[] positive = new long[0];
+    private long[] negative = new long[0];
+    private long zero;
+    private long count;
+
+    public DurationSketch() {
+        this(DEFAULT_ACCURACY);
+    }
+
+    public DurationSketch(double accuracy) {
+        if (accuracy <= 0 || accuracy >= 1) {
+            throw new IllegalArgumentException("Accuracy must be between 0 and 1: " + accuracy);
+        }
+        this.accuracy = accuracy;
+        this.gamma = (1 + accuracy) / (1 - accuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public void add(long value) {
+        adjust(value, 1);
+    }
+
+    /**
+     * Takes back a value previously added; removing a value that was never added corrupts the counts.
+     */
+    public void remove(long value) {
+        adjust(value, -1);
+    }
+
+    public void merge(DurationSketch other) {
+        if (other.accuracy != accuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches of different accuracy");
+        }
+        positive = addCounts(positive, other.positive);
+        negative = addCounts(negative, other.negative);
+        zero += other.zero;
+        count += other.count;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * The value of the given rank, by nearest rank: the smallest value with at least
+     * {@code quantile * count} values at or below it.
+     *
+     * @param quantile between 0 and 1
+     * @return the estimate, or {@code null} when the sketch is empty
+     */
+    public Long quantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+        }
+        if (count == 0) {
+            return null;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = negative.length - 1; i >= 0; i--) {
+            seen += negative[i];
+            if (seen >= rank) {
+                return -estimate(i);
+            }
+        }
+        seen += zero;
+        if (seen >= rank) {
+            return 0L;
+        }
+        for (int i = 0; i < positive.length; i++) {
+            seen += positive[i];
+            if (seen >= rank) {
+                return estimate(i);
+            }
+        }
+        // Unreachable while the counts add up to count
+        throw new IllegalStateException("Sketch counts do not add up to " + count);
+    }
+
+    private void adjust(long value, int delta) {
+        count += delta;
+        if (value == 0) {
+            zero += delta;
+        } else if (value > 0) {
+            int index = index(value);
+            positive = ensureCapacity(positive, index);
+            positive[index] += delta;
+        } else {
+            int index = index(-(double) value);
+            negative = ensureCapacity(negative, index);
+            negative[index] += delta;
+        }
+    }
+
+    private int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / logGamma);
+    }
+
+    // Midpoint of the bucket in relative terms, which keeps the error within accuracy on both sides
+    private long estimate(int index) {
+        return Math.round(2 * Math.pow(gamma, index) / (gamma + 1));
+    }
+
+    private static long[] ensureCapacity(long[] counts, int index) {
+        return index < counts.length ? counts : Arrays.copyOf(counts, Math.max(index + 1, counts.length * 2));
+    }
+
+    private static long[] addCounts(long[] into, long[] from) {
+        long[] sum = into.length >= from.length ? into : Arrays.copyOf(into, from.length);
+        for (int i = 0; i < from.length; i++) {
+            sum[i] += from[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,84 @@
+package com.mylogo.visitors.analytics;
+
+import com.mylogo.visitors.dto.VisitorStatsDTO;
+
+/**
+ * Running count, total, bounds, approval count and {@link DurationSketch} of visit durations.
+ * <p>
+ * Like the sketch, the statistics take removals and merge. Removing the current minimum or maximum
+ * cannot tell what the next one is, so it marks the bounds stale; the owner then rebuilds them with
+ * {@link #resetBounds()} and {@link #includeInBounds(long)} from the values it still holds.
+ * Not thread-safe.
+ */
+public final class DurationStats {
+
+    private final DurationSketch sketch = new DurationSketch();
+    private long count;
+    private long total;
+    private long approved;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+    private boolean staleBounds;
+
+    public void add(long duration, boolean isApproved) {
+        count++;
+        total += duration;
+        if (isApproved) {
+            approved++;
+        }
+        sketch.add(duration);
+        includeInBounds(duration);
+    }
+
+    public void remove(long duration, boolean isApproved) {
+        count--;
+        total -= duration;
+        if (isApproved) {
+            approved--;
+        }
+        sketch.remove(duration);
+        if (count == 0) {
+            resetBounds();
+        } else if (duration <= min || duration >= max) {
+            staleBounds = true;
+        }
+    }
+
+    public void merge(DurationStats other) {
+        count += other.count;
+        total += other.total;
+        approved += other.approved;
+        sketch.merge(other.sketch);
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        staleBounds |= other.staleBounds;
+    }
+
+    public boolean hasStaleBounds() {
+        return staleBounds;
+    }
+
+    public void resetBounds() {
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+        staleBounds = false;
+    }
+
+    public void includeInBounds(long duration) {
+        min = Math.min(min, duration);
+        max = Math.max(max, duration);
+    }
+
+    public VisitorStatsDTO toDTO() {
+        if (count == 0) {
+            return new VisitorStatsDTO(0L, 0L, null, null, null, null, null, null, null);
+        }
+        return new VisitorStatsDTO(count, total, min, max, (double) total / count, (double) approved / count,
+                percentile(0.5), percentile(0.9), percentile(0.99));
+    }
+
+    // The sketch rounds to its bucket; the exact bounds are never wrong about the extremes
+    private Long percentile(double quantile) {
+        return Math.max(min, Math.min(max, sketch.quantile(quantile)));
+    }
+}
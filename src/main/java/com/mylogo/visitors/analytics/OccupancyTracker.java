@@ -0,0 +1,216 @@
+package com.mylogo.visitors.analytics;
+
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.repository.VisitTimes;
+import com.mylogo.visitors.repository.VisitorRepository;
+import com.mylogo.visitors.service.VisitorChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The visitors currently on site, i.e. checked in and not checked out: their ids in ascending
+ * order and a counter kept beside them, so the count is a single read.
+ * <p>
+ * Loaded from one query on the {@code (check_out, id)} index when the application is ready, or on
+ * first use, and kept current from local check-ins, check-outs and updates. Like
+ * {@link VisitDurationTotal}, check-ins and check-outs made on other replicas are only picked up by
+ * the periodic resync. Local changes made while a resync is reading are recorded and replayed onto
+ * the fresh set before it replaces the current one.
+ */
+@Component
+public class OccupancyTracker implements VisitorChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(OccupancyTracker.class);
+
+    private final VisitorRepository visitorRepository;
+    // Changes take the read lock, as OnSite is thread-safe; a resync replays and swaps under the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // null until the first load
+    private volatile OnSite onSite;
+    // Whether each visitor changed while a resync is reading is on site; null when no resync is running
+    private volatile Map<Long, Boolean> duringResync;
+
+    public OccupancyTracker(VisitorRepository visitorRepository) {
+        this.visitorRepository = visitorRepository;
+    }
+
+    public long count() {
+        return onSite().count.get();
+    }
+
+    /**
+     * Ids of on-site visitors in ascending order.
+     *
+     * @param afterId exclusive lower bound, or {@code null} to start from the first
+     */
+    public List<Long> page(Long afterId, int limit) {
+        NavigableSet<Long> ids = onSite().ids;
+        List<Long> page = new ArrayList<>(Math.min(limit, 64));
+        for (Long id : afterId == null ? ids : ids.tailSet(afterId, false)) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(id);
+        }
+        return page;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            resync();
+        } catch (Exception e) {
+            logger.error("Failed to load the visitors on site; retrying on first use", e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${visitor.occupancy.resync-interval-ms:60000}",
+            fixedDelayString = "${visitor.occupancy.resync-interval-ms:60000}")
+    public synchronized void resync() {
+        setDuringResync(new ConcurrentHashMap<>());
+        try {
+            OnSite fresh = new OnSite();
+            for (Long id : visitorRepository.findOnSiteIds()) {
+                fresh.enter(id);
+            }
+            lock.writeLock().lock();
+            try {
+                duringResync.forEach(fresh::set);
+                onSite = fresh;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.debug("Resynced {} visitors on site", fresh.count.get());
+        } finally {
+            setDuringResync(null);
+        }
+    }
+
+    @Override
+    public void onVisitorSaved(Visitor previous, Visitor current) {
+        set(current.getId(), isOnSite(current));
+    }
+
+    /**
+     * Only a bulk check-out moves visitors off site; which of them are still on site is read back by primary key.
+     */
+    @Override
+    public void onVisitorsUpdated(List<Long> ids) {
+        if (!isTracking()) {
+            return;
+        }
+        Set<Long> stillOnSite = new HashSet<>(visitorRepository.findOnSiteIdsIn(ids));
+        for (Long id : ids) {
+            set(id, stillOnSite.contains(id));
+        }
+    }
+
+    @Override
+    public void onVisitorPatched(Long id, VisitorPatch patch, VisitTimes previous) {
+        if (!isTracking()) {
+            return;
+        }
+        if (patch.getCheckOut() != null) {
+            set(id, false);
+        } else if (patch.getCheckIn() != null) {
+            if (previous != null) {
+                set(id, previous.getCheckOut() == null);
+            } else {
+                set(id, !visitorRepository.findOnSiteIdsIn(List.of(id)).isEmpty());
+            }
+        }
+    }
+
+    @Override
+    public void onVisitorDeleted(Visitor previous) {
+        set(previous.getId(), false);
+    }
+
+    private OnSite onSite() {
+        OnSite current = onSite;
+        if (current == null) {
+            synchronized (this) {
+                if (onSite == null) {
+                    resync();
+                }
+                current = onSite;
+            }
+        }
+        return current;
+    }
+
+    private boolean isTracking() {
+        return onSite != null || duringResync != null;
+    }
+
+    private void set(Long id, boolean present) {
+        lock.readLock().lock();
+        try {
+            OnSite current = onSite;
+            if (current != null) {
+                current.set(id, present);
+            }
+            Map<Long, Boolean> changes = duringResync;
+            if (changes != null) {
+                changes.put(id, present);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void setDuringResync(Map<Long, Boolean> changes) {
+        lock.writeLock().lock();
+        try {
+            duringResync = changes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean isOnSite(Visitor visitor) {
+        return visitor.getCheckIn() != null && visitor.getCheckOut() == null;
+    }
+
+    private static final class OnSite {
+        private final ConcurrentSkipListSet<Long> ids = new ConcurrentSkipListSet<>();
+        private final AtomicLong count = new AtomicLong();
+
+        void set(Long id, boolean present) {
+            if (present) {
+                enter(id);
+            } else {
+                leave(id);
+            }
+        }
+
+        void enter(Long id) {
+            if (ids.add(id)) {
+                count.incrementAndGet();
+            }
+        }
+
+        void leave(Long id) {
+            if (ids.remove(id)) {
+                count.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.mylogo.visitors.analytics;
+
+import com.mylogo.visitors.handler.InvalidRequestException;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+/**
+ * Bucket sizes of the visit rollups. Buckets start on the hour or at midnight of the check-in's local time.
+ */
+public enum RollupGranularity {
+
+    HOUR(ChronoUnit.HOURS),
+
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public LocalDateTime bucketOf(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public LocalDateTime next(LocalDateTime bucket) {
+        return bucket.plus(1, unit);
+    }
+
+    /**
+     * Number of buckets starting in {@code [from, to)}.
+     */
+    public long bucketsBetween(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime first = bucketOf(from).isBefore(from) ? next(bucketOf(from)) : from;
+        return first.isBefore(to) ? unit.between(first, to.minusNanos(1)) + 1 : 0;
+    }
+
+    public static RollupGranularity fromParameter(String value) {
+        if (value == null || value.isBlank()) {
+            return DAY;
+        }
+        try {
+            return RollupGranularity.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Unsupported granularity: " + value);
+        }
+    }
+}
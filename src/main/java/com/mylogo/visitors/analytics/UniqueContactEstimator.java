@@ -0,0 +1,115 @@
+package com.mylogo.visitors.analytics;
+
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.repository.VisitTimes;
+import com.mylogo.visitors.repository.VisitorRepository;
+import com.mylogo.visitors.service.VisitorChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Approximate count of distinct visitor contact numbers, kept in a Redis HyperLogLog.
+ * <p>
+ * The sketch takes at most 12 KB whatever the number of visitors, is shared by all replicas and
+ * answers in constant time with a standard error of about 0.81%. Contact numbers are added as
+ * visitors are created or updated; a HyperLogLog cannot forget values, so numbers that are no
+ * longer used by any visitor still count until the sketch is rebuilt.
+ */
+@Component
+public class UniqueContactEstimator implements VisitorChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(UniqueContactEstimator.class);
+
+    static final String SKETCH_KEY = "visitors:unique-contacts:hll";
+    static final String SEEDED_KEY = "visitors:unique-contacts:seeded";
+
+    private final StringRedisTemplate redisTemplate;
+    private final VisitorRepository visitorRepository;
+    private final int seedBatchSize;
+
+    public UniqueContactEstimator(StringRedisTemplate redisTemplate, VisitorRepository visitorRepository,
+                                  @Value("${visitor.pagination.max-size:500}") int seedBatchSize) {
+        this.redisTemplate = redisTemplate;
+        this.visitorRepository = visitorRepository;
+        this.seedBatchSize = seedBatchSize;
+    }
+
+    public long estimate() {
+        Long size = redisTemplate.opsForHyperLogLog().size(SKETCH_KEY);
+        return size == null ? 0L : size;
+    }
+
+    /**
+     * Loads the existing contact numbers into the sketch the first time the service starts against
+     * a Redis that does not have it yet.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedIfAbsent() {
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(SEEDED_KEY))) {
+                return;
+            }
+            rebuild();
+        } catch (Exception e) {
+            logger.error("Failed to seed the unique contact number sketch", e);
+        }
+    }
+
+    /**
+     * Repopulates the sketch from the distinct contact numbers in the database.
+     */
+    public void rebuild() {
+        logger.info("Seeding unique contact number sketch");
+        PageRequest page = PageRequest.of(0, seedBatchSize);
+        List<String> batch = visitorRepository.findFirstContactNumbers(page);
+        long seeded = 0;
+        while (!batch.isEmpty()) {
+            redisTemplate.opsForHyperLogLog().add(SKETCH_KEY, batch.toArray(new String[0]));
+            seeded += batch.size();
+            if (batch.size() < seedBatchSize) {
+                break;
+            }
+            batch = visitorRepository.findContactNumbersAfter(batch.get(batch.size() - 1), page);
+        }
+        redisTemplate.opsForValue().set(SEEDED_KEY, String.valueOf(seeded));
+        logger.info("Seeded unique contact number sketch with {} contact numbers", seeded);
+    }
+
+    @Override
+    public void onVisitorSaved(Visitor previous, Visitor current) {
+        String contactNumber = current.getContactNumber();
+        if (contactNumber != null && (previous == null || !contactNumber.equals(previous.getContactNumber()))) {
+            redisTemplate.opsForHyperLogLog().add(SKETCH_KEY, contactNumber);
+        }
+    }
+
+    @Override
+    public void onVisitorPatched(Long id, VisitorPatch patch, VisitTimes previous) {
+        if (patch.getContactNumber() != null) {
+            redisTemplate.opsForHyperLogLog().add(SKETCH_KEY, patch.getContactNumber());
+        }
+    }
+
+    @Override
+    public void onVisitorsCreated(List<Visitor> created) {
+        List<String> contactNumbers = new ArrayList<>(created.size());
+        for (Visitor visitor : created) {
+            if (visitor.getContactNumber() != null) {
+                contactNumbers.add(visitor.getContactNumber());
+            }
+        }
+        if (!contactNumbers.isEmpty()) {
+            redisTemplate.opsForHyperLogLog().add(SKETCH_KEY, contactNumbers.toArray(new String[0]));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.mylogo.visitors.analytics;
+
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.repository.VisitTimes;
+import com.mylogo.visitors.repository.VisitorRepository;
+import com.mylogo.visitors.service.VisitorChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running total of {@code duration} over all visitors.
+ * <p>
+ * Seeded from a single {@code SUM(duration)} on first use and adjusted in place on every
+ * local write. Writes made by other replicas are only picked up by the periodic resync,
+ * so between resyncs the value can lag the database by those writes.
+ */
+@Component
+public class VisitDurationTotal implements VisitorChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitDurationTotal.class);
+
+    private final VisitorRepository visitorRepository;
+    private final AtomicLong total = new AtomicLong();
+    private volatile boolean initialized;
+
+    public VisitDurationTotal(VisitorRepository visitorRepository) {
+        this.visitorRepository = visitorRepository;
+    }
+
+    public long get() {
+        if (!initialized) {
+            synchronized (this) {
+                if (!initialized) {
+                    resync();
+                }
+            }
+        }
+        return total.get();
+    }
+
+    @Scheduled(initialDelayString = "${visitor.duration-total.resync-interval-ms:300000}",
+            fixedDelayString = "${visitor.duration-total.resync-interval-ms:300000}")
+    public void resync() {
+        long sum = visitorRepository.sumDuration();
+        total.set(sum);
+        initialized = true;
+        logger.debug("Resynced total visit duration to {}", sum);
+    }
+
+    @Override
+    public void onVisitorSaved(Visitor previous, Visitor current) {
+        long delta = current.getDuration() - (previous == null ? 0L : previous.getDuration());
+        if (delta != 0) {
+            total.addAndGet(delta);
+        }
+    }
+
+    /**
+     * A bulk check-out sets the duration without reporting it, so the total is recomputed on the next read.
+     */
+    @Override
+    public void onVisitorsUpdated(List<Long> ids) {
+        initialized = false;
+    }
+
+    /**
+     * When the writer did not read the previous duration, the total is recomputed on the next read.
+     */
+    @Override
+    public void onVisitorPatched(Long id, VisitorPatch patch, VisitTimes previous) {
+        if (patch.getDuration() == null) {
+            return;
+        }
+        if (previous == null) {
+            initialized = false;
+        } else if (patch.getDuration() - previous.getDuration() != 0) {
+            total.addAndGet(patch.getDuration() - previous.getDuration());
+        }
+    }
+
+    @Override
+    public void onVisitorDeleted(Visitor previous) {
+        if (previous.getDuration() != 0) {
+            total.addAndGet(-previous.getDuration());
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.mylogo.visitors.analytics;
+
+import com.mylogo.visitors.dto.VisitRollupDTO;
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.pagination.PurposeOrder;
+import com.mylogo.visitors.repository.VisitTimes;
+import com.mylogo.visitors.repository.VisitorColumns;
+import com.mylogo.visitors.repository.VisitorRepository;
+import com.mylogo.visitors.service.VisitorChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Visitor count, total duration and approved count per check-in hour, day and purpose, kept in the
+ * {@code visitor_rollups} table shared by all replicas.
+ * <p>
+ * Writes only mark the check-in hours they touch. Every {@code visitor.rollup.flush-interval-ms}
+ * each marked hour is recomputed from an index range of {@code visitors}, and its day from the
+ * hour rows, so the rollups converge on the committed visitors however the writes interleave. The
+ * table is rebuilt from a full pass over the visitors when it is found empty at startup, or when a
+ * write could not tell which hours it touched. Marked hours are held in memory, so hours marked
+ * just before a replica stops are only corrected by their next write.
+ */
+@Component
+public class VisitRollups implements VisitorChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitRollups.class);
+
+    // Primary key columns cannot be NULL
+    static final String NO_PURPOSE = "";
+
+    private static final String DELETE_BUCKET_SQL = "DELETE FROM visitor_rollups WHERE granularity = ? AND bucket_start = ?";
+    private static final String INSERT_HOUR_SQL = "INSERT INTO visitor_rollups "
+            + "(granularity, bucket_start, purpose, visitor_count, total_duration, approved_count) "
+            + "SELECT 'HOUR', ?, COALESCE(purpose, ''), COUNT(*), SUM(duration), SUM(CASE WHEN approved = TRUE THEN 1 ELSE 0 END) "
+            + "FROM visitors WHERE check_in >= ? AND check_in < ? GROUP BY COALESCE(purpose, '')";
+    private static final String INSERT_DAY_SQL = "INSERT INTO visitor_rollups "
+            + "(granularity, bucket_start, purpose, visitor_count, total_duration, approved_count) "
+            + "SELECT 'DAY', ?, purpose, SUM(visitor_count), SUM(total_duration), SUM(approved_count) "
+            + "FROM visitor_rollups WHERE granularity = 'HOUR' AND bucket_start >= ? AND bucket_start < ? GROUP BY purpose";
+    private static final String INSERT_SQL = "INSERT INTO visitor_rollups "
+            + "(granularity, bucket_start, purpose, visitor_count, total_duration, approved_count) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_SQL = "SELECT bucket_start, purpose, visitor_count, total_duration, approved_count "
+            + "FROM visitor_rollups WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VisitorRepository visitorRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int rebuildPageSize;
+    private final Set<LocalDateTime> dirtyHours = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+
+    public VisitRollups(JdbcTemplate jdbcTemplate, VisitorRepository visitorRepository,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${visitor.rollup.rebuild-page-size:5000}") int rebuildPageSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.visitorRepository = visitorRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebuildPageSize = rebuildPageSize;
+    }
+
+    /**
+     * Rollups of the buckets starting in {@code [from, to)}, by bucket then purpose. Visitors
+     * without a purpose are reported under a {@code null} purpose.
+     *
+     * @param purpose purpose, compared with the column collation, optional; "Unknown" also matches
+     *                visitors without a purpose
+     */
+    public List<VisitRollupDTO> find(RollupGranularity granularity, LocalDateTime from, LocalDateTime to, String purpose) {
+        List<Object> args = new ArrayList<>(List.of(granularity.name(), Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        String sql = SELECT_SQL;
+        if (purpose != null && PurposeOrder.isUnknown(purpose)) {
+            sql += " AND purpose IN (?, ?)";
+            args.add(NO_PURPOSE);
+            args.add(purpose);
+        } else if (purpose != null) {
+            sql += " AND purpose = ?";
+            args.add(purpose);
+        }
+        return jdbcTemplate.query(sql + " ORDER BY bucket_start, purpose", (rs, rowNum) -> {
+            String rowPurpose = rs.getString("purpose");
+            return new VisitRollupDTO(rs.getTimestamp("bucket_start").toLocalDateTime(),
+                    NO_PURPOSE.equals(rowPurpose) ? null : rowPurpose,
+                    rs.getLong("visitor_count"), rs.getLong("total_duration"), rs.getLong("approved_count"));
+        }, args.toArray());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        try {
+            Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM visitor_rollups", Integer.class);
+            if (rows != null && rows == 0) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to build the visit rollups; retrying on the next flush", e);
+            rebuildRequested.set(true);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${visitor.rollup.flush-interval-ms:1000}",
+            fixedDelayString = "${visitor.rollup.flush-interval-ms:1000}")
+    public void flush() {
+        if (rebuildRequested.getAndSet(false)) {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.warn("Failed to rebuild the visit rollups; retrying on the next flush", e);
+                rebuildRequested.set(true);
+                return;
+            }
+        }
+        Map<LocalDateTime, List<LocalDateTime>> hoursByDay = new TreeMap<>();
+        for (LocalDateTime hour : new TreeSet<>(dirtyHours)) {
+            hoursByDay.computeIfAbsent(RollupGranularity.DAY.bucketOf(hour), day -> new ArrayList<>()).add(hour);
+        }
+        for (Map.Entry<LocalDateTime, List<LocalDateTime>> day : hoursByDay.entrySet()) {
+            // Unmarked first, so that a write landing during the recompute marks its hour again
+            dirtyHours.removeAll(day.getValue());
+            try {
+                recompute(day.getKey(), day.getValue());
+            } catch (Exception e) {
+                logger.warn("Failed to recompute the visit rollups of {}; retrying on the next flush", day.getKey(), e);
+                dirtyHours.addAll(day.getValue());
+                return;
+            }
+        }
+    }
+
+    private void recompute(LocalDateTime day, List<LocalDateTime> hours) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (LocalDateTime hour : hours) {
+                jdbcTemplate.update(DELETE_BUCKET_SQL, RollupGranularity.HOUR.name(), Timestamp.valueOf(hour));
+                jdbcTemplate.update(INSERT_HOUR_SQL, Timestamp.valueOf(hour), Timestamp.valueOf(hour),
+                        Timestamp.valueOf(RollupGranularity.HOUR.next(hour)));
+            }
+            jdbcTemplate.update(DELETE_BUCKET_SQL, RollupGranularity.DAY.name(), Timestamp.valueOf(day));
+            jdbcTemplate.update(INSERT_DAY_SQL, Timestamp.valueOf(day), Timestamp.valueOf(day),
+                    Timestamp.valueOf(RollupGranularity.DAY.next(day)));
+        });
+    }
+
+    /**
+     * Replaces every rollup with totals aggregated from one id-ordered pass over the visitor columns.
+     * Purposes are merged the way the primary key of {@code visitor_rollups} compares them.
+     */
+    public void rebuild() {
+        Map<Bucket, Map<String, long[]>> totals = new HashMap<>();
+        long afterId = 0L;
+        List<VisitorColumns> page;
+        do {
+            page = visitorRepository.findColumnsAfterId(afterId, PageRequest.of(0, rebuildPageSize));
+            for (VisitorColumns row : page) {
+                if (row.getCheckIn() != null) {
+                    String purpose = row.getPurpose() == null ? NO_PURPOSE : row.getPurpose();
+                    for (RollupGranularity granularity : RollupGranularity.values()) {
+                        long[] total = totals
+                                .computeIfAbsent(new Bucket(granularity, granularity.bucketOf(row.getCheckIn())),
+                                        bucket -> new TreeMap<>(PurposeOrder.COLLATION))
+                                .computeIfAbsent(purpose, key -> new long[3]);
+                        total[0]++;
+                        total[1] += row.getDuration();
+                        total[2] += row.isApproved() ? 1 : 0;
+                    }
+                }
+            }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == rebuildPageSize);
+
+        List<Object[]> rows = new ArrayList<>();
+        totals.forEach((bucket, byPurpose) -> byPurpose.forEach((purpose, total) -> rows.add(new Object[]{
+                bucket.granularity.name(), Timestamp.valueOf(bucket.start), purpose, total[0], total[1], total[2]})));
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM visitor_rollups");
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        });
+        logger.info("Rebuilt {} visit rollups", rows.size());
+    }
+
+    @Override
+    public void onVisitorSaved(Visitor previous, Visitor current) {
+        if (previous != null) {
+            markHour(previous.getCheckIn());
+        }
+        markHour(current.getCheckIn());
+    }
+
+    @Override
+    public void onVisitorsCreated(List<Visitor> created) {
+        created.forEach(visitor -> markHour(visitor.getCheckIn()));
+    }
+
+    @Override
+    public void onVisitorsUpdated(List<Long> ids) {
+        markCurrentHours(ids);
+    }
+
+    @Override
+    public void onVisitorPatched(Long id, VisitorPatch patch, VisitTimes previous) {
+        if (patch.getCheckIn() == null && patch.getPurpose() == null && patch.getDuration() == null
+                && patch.getApproved() == null) {
+            return;
+        }
+        if (previous != null) {
+            markHour(previous.getCheckIn());
+        }
+        if (patch.getCheckIn() != null) {
+            markHour(patch.getCheckIn());
+        } else if (previous == null) {
+            markCurrentHours(List.of(id));
+        }
+    }
+
+    @Override
+    public void onVisitorDeleted(Visitor previous) {
+        markHour(previous.getCheckIn());
+    }
+
+    private void markHour(LocalDateTime checkIn) {
+        if (checkIn != null) {
+            dirtyHours.add(RollupGranularity.HOUR.bucketOf(checkIn));
+        }
+    }
+
+    // The check-in is not known to the writer, so it is read back by primary key
+    private void markCurrentHours(List<Long> ids) {
+        try {
+            visitorRepository.findColumnsByIds(ids).forEach(row -> markHour(row.getCheckIn()));
+        } catch (Exception e) {
+            logger.warn("Failed to read the check-ins of {} changed visitors; rebuilding the visit rollups", ids.size(), e);
+            rebuildRequested.set(true);
+        }
+    }
+
+    private static final class Bucket {
+        private final RollupGranularity granularity;
+        private final LocalDateTime start;
+
+        private Bucket(RollupGranularity granularity, LocalDateTime start) {
+            this.granularity = granularity;
+            this.start = start;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Bucket)) {
+                return false;
+            }
+            Bucket other = (Bucket) o;
+            return granularity == other.granularity && start.equals(other.start);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(granularity, start);
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package com.mylogo.visitors.analytics;
+
+import com.mylogo.visitors.dto.PurposeSummaryDTO;
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.dto.VisitorStatsDTO;
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.pagination.PurposeOrder;
+import com.mylogo.visitors.repository.VisitTimes;
+import com.mylogo.visitors.repository.VisitorColumns;
+import com.mylogo.visitors.repository.VisitorRepository;
+import com.mylogo.visitors.service.VisitorChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Column-oriented copy of the visitor fields the analytics endpoints aggregate over: ids, durations
+ * and check-ins (epoch seconds) in primitive arrays, approval in a {@link BitSet}, and purpose and
+ * contact number dictionary-encoded as {@code int} codes. {@link DurationStats} are kept per purpose
+ * alongside, so statistics without a check-in window merge a handful of aggregates instead of scanning.
+ * <p>
+ * Loaded in id-ordered pages of projections once the application is ready, and kept current from
+ * local writes. Like {@link VisitDurationTotal}, writes made by other replicas are only picked up by
+ * the periodic resync, which also drops the rows of deleted visitors. Local writes made while a
+ * resync is reading are recorded and replayed onto the fresh columns before they replace the current
+ * ones, so a row read before the write does not undo it. Until the first load has succeeded,
+ * {@link #isLoaded()} is false and callers should query the database instead.
+ */
+@Component
+public class VisitorColumnStore implements VisitorChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitorColumnStore.class);
+
+    private final VisitorRepository visitorRepository;
+    private final int loadPageSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Columns columns = new Columns();
+    // Changes made while a resync is reading, guarded by the write lock; null when no resync is running
+    private List<Consumer<Columns>> duringResync;
+    private volatile boolean loaded;
+
+    public VisitorColumnStore(VisitorRepository visitorRepository,
+                              @Value("${visitor.column-store.load-page-size:5000}") int loadPageSize) {
+        this.visitorRepository = visitorRepository;
+        this.loadPageSize = loadPageSize;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            resync();
+        } catch (Exception e) {
+            logger.error("Failed to load the visitor column store; analytics read from the database until the next resync", e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${visitor.column-store.resync-interval-ms:300000}",
+            fixedDelayString = "${visitor.column-store.resync-interval-ms:300000}")
+    public synchronized void resync() {
+        setDuringResync(new ArrayList<>());
+        Columns fresh = new Columns();
+        try {
+            long afterId = 0L;
+            List<VisitorColumns> page;
+            do {
+                page = visitorRepository.findColumnsAfterId(afterId, PageRequest.of(0, loadPageSize));
+                for (VisitorColumns row : page) {
+                    fresh.upsert(row.getId(), row.getDuration(), row.getCheckIn(), row.isApproved(), row.getPurpose(),
+                            row.getContactNumber());
+                }
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == loadPageSize);
+
+            lock.writeLock().lock();
+            try {
+                // Every change sets absolute values, so replaying one the pages already reflect is harmless
+                duringResync.forEach(change -> change.accept(fresh));
+                columns = fresh;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            setDuringResync(null);
+        }
+        loaded = true;
+        logger.debug("Loaded {} visitors into the column store", fresh.live.cardinality());
+    }
+
+    private void setDuringResync(List<Consumer<Columns>> changes) {
+        lock.writeLock().lock();
+        try {
+            duringResync = changes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Total duration of the visitors matching every supplied filter.
+     *
+     * @param from    inclusive lower bound on check-in, optional
+     * @param to      exclusive upper bound on check-in, optional
+     * @param purpose purpose, compared with the database collation, optional
+     */
+    public long sumDuration(LocalDateTime from, LocalDateTime to, String purpose) {
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            long[] total = new long[1];
+            forEachMatching(c, from, to, purpose, row -> total[0] += c.durations[row]);
+            return total[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count, total, bounds, mean, approved ratio and duration percentiles of the visitors matching
+     * every supplied filter. Without a check-in window this merges the per-purpose aggregates; with
+     * one it takes a single pass over the columns.
+     *
+     * @param from    inclusive lower bound on check-in, optional
+     * @param to      exclusive upper bound on check-in, optional
+     * @param purpose purpose, compared with the database collation, optional
+     */
+    public VisitorStatsDTO stats(LocalDateTime from, LocalDateTime to, String purpose) {
+        if (from != null || to != null) {
+            lock.readLock().lock();
+            try {
+                Columns c = columns;
+                DurationStats stats = new DurationStats();
+                forEachMatching(c, from, to, purpose, row -> stats.add(c.durations[row], c.approved.get(row)));
+                return stats.toDTO();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        lock.readLock().lock();
+        try {
+            if (!columns.hasStaleBounds()) {
+                return columns.purposeStats(purpose).toDTO();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            columns.refreshBounds();
+            return columns.purposeStats(purpose).toDTO();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Visitor count and total duration per purpose, ordered by purpose; visitors without a purpose
+     * are reported under a {@code null} purpose, first.
+     */
+    public List<PurposeSummaryDTO> summarizeByPurpose() {
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            int size = c.purposes.size();
+            // Slot 0 is for visitors without a purpose, slot code + 1 for the others
+            long[] counts = new long[size + 1];
+            long[] durations = new long[size + 1];
+            for (int row = c.live.nextSetBit(0); row >= 0; row = c.live.nextSetBit(row + 1)) {
+                int slot = c.purposeCodes[row] + 1;
+                counts[slot]++;
+                durations[slot] += c.durations[row];
+            }
+            List<PurposeSummaryDTO> summaries = new ArrayList<>();
+            for (int slot = 0; slot <= size; slot++) {
+                if (counts[slot] > 0) {
+                    String purpose = slot == 0 ? null : c.purposes.value(slot - 1);
+                    summaries.add(new PurposeSummaryDTO(purpose, counts[slot], durations[slot]));
+                }
+            }
+            summaries.sort(Comparator.comparing(PurposeSummaryDTO::getPurpose, Comparator.nullsFirst(PurposeOrder.COLLATION)));
+            return summaries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The distinct, non-null contact numbers of the current visitors, in ascending order.
+     */
+    public List<String> distinctContactNumbers() {
+        List<String> contacts;
+        lock.readLock().lock();
+        try {
+            contacts = columns.contacts.liveValues();
+        } finally {
+            lock.readLock().unlock();
+        }
+        Collections.sort(contacts);
+        return contacts;
+    }
+
+    @Override
+    public void onVisitorSaved(Visitor previous, Visitor current) {
+        write(c -> upsert(c, current));
+    }
+
+    @Override
+    public void onVisitorsCreated(List<Visitor> created) {
+        write(c -> created.forEach(visitor -> upsert(c, visitor)));
+    }
+
+    /**
+     * Set-based updates do not say what they changed, so the rows are read again by primary key.
+     */
+    @Override
+    public void onVisitorsUpdated(List<Long> ids) {
+        List<VisitorColumns> rows;
+        try {
+            rows = visitorRepository.findColumnsByIds(ids);
+        } catch (Exception e) {
+            logger.warn("Failed to refresh {} visitors in the column store; the next resync will", ids.size(), e);
+            return;
+        }
+        write(c -> rows.forEach(row -> c.upsert(row.getId(), row.getDuration(), row.getCheckIn(), row.isApproved(),
+                row.getPurpose(), row.getContactNumber())));
+    }
+
+    @Override
+    public void onVisitorPatched(Long id, VisitorPatch patch, VisitTimes previous) {
+        write(c -> c.patch(id, patch));
+    }
+
+    @Override
+    public void onVisitorDeleted(Visitor previous) {
+        write(c -> c.remove(previous.getId()));
+    }
+
+    private void write(Consumer<Columns> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(columns);
+            if (duringResync != null) {
+                duringResync.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Called with the read or write lock held
+    private static void forEachMatching(Columns c, LocalDateTime from, LocalDateTime to, String purpose, IntConsumer action) {
+        boolean byCheckIn = from != null || to != null;
+        long fromSecond = from == null ? Long.MIN_VALUE : epochSecond(from);
+        long toSecond = to == null ? Long.MAX_VALUE : epochSecond(to);
+        int purposeCode = purpose == null ? Dictionary.NONE : c.purposes.codeOf(purpose);
+        if (purpose != null && purposeCode == Dictionary.NONE) {
+            return;
+        }
+        for (int row = c.live.nextSetBit(0); row >= 0; row = c.live.nextSetBit(row + 1)) {
+            if (purpose != null && c.purposeCodes[row] != purposeCode) {
+                continue;
+            }
+            if (byCheckIn && (c.checkIns[row] == Columns.NO_CHECK_IN
+                    || c.checkIns[row] < fromSecond || c.checkIns[row] >= toSecond)) {
+                continue;
+            }
+            action.accept(row);
+        }
+    }
+
+    private static void upsert(Columns c, Visitor visitor) {
+        c.upsert(visitor.getId(), visitor.getDuration(), visitor.getCheckIn(), visitor.isApproved(),
+                visitor.getPurpose(), visitor.getContactNumber());
+    }
+
+    static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * The column arrays. Rows are appended and never moved; a deleted row is only cleared from {@code live}.
+     * Not thread-safe.
+     */
+    private static final class Columns {
+
+        static final long NO_CHECK_IN = Long.MIN_VALUE;
+
+        long[] ids = new long[1024];
+        long[] durations = new long[1024];
+        long[] checkIns = new long[1024];
+        int[] purposeCodes = new int[1024];
+        int[] contactCodes = new int[1024];
+        final BitSet approved = new BitSet();
+        final BitSet live = new BitSet();
+        final Map<Long, Integer> rowsById = new HashMap<>();
+        // Purposes that compare equal under the database collation share a code, as they share a GROUP BY row
+        final Dictionary purposes = new Dictionary(new TreeMap<>(PurposeOrder.COLLATION));
+        final Dictionary contacts = new Dictionary(new HashMap<>());
+        // Index 0 is for visitors without a purpose, code + 1 for the others
+        final List<DurationStats> statsByPurpose = new ArrayList<>();
+        int rows;
+
+        void upsert(Long id, long duration, LocalDateTime checkIn, boolean isApproved, String purpose, String contact) {
+            Integer existing = rowsById.get(id);
+            int row;
+            if (existing == null) {
+                if (rows == ids.length) {
+                    grow();
+                }
+                row = rows++;
+                rowsById.put(id, row);
+                ids[row] = id;
+                live.set(row);
+            } else {
+                row = existing;
+                statsOf(purposeCodes[row]).remove(durations[row], approved.get(row));
+                purposes.release(purposeCodes[row]);
+                contacts.release(contactCodes[row]);
+            }
+            durations[row] = duration;
+            checkIns[row] = checkIn == null ? NO_CHECK_IN : epochSecond(checkIn);
+            approved.set(row, isApproved);
+            purposeCodes[row] = purposes.acquire(purpose);
+            contactCodes[row] = contacts.acquire(contact);
+            statsOf(purposeCodes[row]).add(duration, isApproved);
+        }
+
+        void patch(Long id, VisitorPatch patch) {
+            Integer row = rowsById.get(id);
+            if (row == null) {
+                return;
+            }
+            statsOf(purposeCodes[row]).remove(durations[row], approved.get(row));
+            if (patch.getDuration() != null) {
+                durations[row] = patch.getDuration();
+            }
+            if (patch.getCheckIn() != null) {
+                checkIns[row] = epochSecond(patch.getCheckIn());
+            }
+            if (patch.getApproved() != null) {
+                approved.set(row, patch.getApproved());
+            }
+            if (patch.getPurpose() != null) {
+                purposes.release(purposeCodes[row]);
+                purposeCodes[row] = purposes.acquire(patch.getPurpose());
+            }
+            if (patch.getContactNumber() != null) {
+                contacts.release(contactCodes[row]);
+                contactCodes[row] = contacts.acquire(patch.getContactNumber());
+            }
+            statsOf(purposeCodes[row]).add(durations[row], approved.get(row));
+        }
+
+        void remove(Long id) {
+            Integer row = rowsById.remove(id);
+            if (row == null) {
+                return;
+            }
+            statsOf(purposeCodes[row]).remove(durations[row], approved.get(row));
+            live.clear(row);
+            approved.clear(row);
+            purposes.release(purposeCodes[row]);
+            contacts.release(contactCodes[row]);
+        }
+
+        DurationStats statsOf(int purposeCode) {
+            while (statsByPurpose.size() <= purposeCode + 1) {
+                statsByPurpose.add(new DurationStats());
+            }
+            return statsByPurpose.get(purposeCode + 1);
+        }
+
+        /**
+         * The statistics of one purpose, or of every visitor when {@code purpose} is {@code null}.
+         */
+        DurationStats purposeStats(String purpose) {
+            DurationStats merged = new DurationStats();
+            if (purpose == null) {
+                statsByPurpose.forEach(merged::merge);
+            } else {
+                int code = purposes.codeOf(purpose);
+                if (code != Dictionary.NONE) {
+                    merged.merge(statsOf(code));
+                }
+            }
+            return merged;
+        }
+
+        boolean hasStaleBounds() {
+            for (DurationStats stats : statsByPurpose) {
+                if (stats.hasStaleBounds()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Deleting a visitor with the shortest or longest visit of its purpose loses that bound
+        void refreshBounds() {
+            boolean[] stale = new boolean[statsByPurpose.size()];
+            for (int slot = 0; slot < stale.length; slot++) {
+                stale[slot] = statsByPurpose.get(slot).hasStaleBounds();
+                if (stale[slot]) {
+                    statsByPurpose.get(slot).resetBounds();
+                }
+            }
+            for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+                if (stale[purposeCodes[row] + 1]) {
+                    statsOf(purposeCodes[row]).includeInBounds(durations[row]);
+                }
+            }
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            checkIns = Arrays.copyOf(checkIns, capacity);
+            purposeCodes = Arrays.copyOf(purposeCodes, capacity);
+            contactCodes = Arrays.copyOf(contactCodes, capacity);
+        }
+    }
+
+    /**
+     * Distinct strings of a column, each with an {@code int} code and the number of live rows using it.
+     * Codes are never reused, so values stay in the dictionary until the next resync. Values the code
+     * map considers equal share the code of the first of them.
+     */
+    private static final class Dictionary {
+
+        static final int NONE = -1;
+
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> codes;
+        private int[] references = new int[64];
+
+        /**
+         * @param codes empty map that decides which values are the same, e.g. ordered by a collation
+         */
+        Dictionary(Map<String, Integer> codes) {
+            this.codes = codes;
+        }
+
+        int acquire(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+                if (code == references.length) {
+                    references = Arrays.copyOf(references, code * 2);
+                }
+            }
+            references[code]++;
+            return code;
+        }
+
+        void release(int code) {
+            if (code != NONE) {
+                references[code]--;
+            }
+        }
+
+        int codeOf(String value) {
+            Integer code = codes.get(value);
+            return code == null ? NONE : code;
+        }
+
+        String value(int code) {
+            return values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        List<String> liveValues() {
+            List<String> live = new ArrayList<>();
+            for (int code = 0; code < values.size(); code++) {
+                if (references[code] > 0) {
+                    live.add(values.get(code));
+                }
+            }
+            return live;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.mylogo.visitors.cache;
+
+import java.util.Collection;
+
+/**
+ * Tells the other replicas to drop an entry from their in-process caches.
+ */
+public interface CacheInvalidationPublisher {
+
+    /**
+     * @param cacheName the cache the entry belongs to
+     * @param key       the evicted key, or {@code null} when the whole cache was cleared
+     */
+    void publish(String cacheName, Object key);
+
+    /**
+     * Announces several evicted keys of one cache at once.
+     */
+    default void publishAll(String cacheName, Collection<?> keys) {
+        for (Object key : keys) {
+            publish(cacheName, key);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.mylogo.visitors.cache;
+
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.service.VisitorChangeListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Negative cache of visitor ids that were looked up and not found, so repeated lookups of the
+ * same unknown id are answered without a database query. Entries are short-lived and are
+ * removed as soon as a visitor with that id is created.
+ * <p>
+ * Lookups are counted in {@code visitor.cache.missing} with {@code result=hit} when answered
+ * from the cache and {@code result=miss} when the database had to be asked.
+ */
+@Component
+public class MissingVisitorCache implements VisitorChangeListener {
+
+    public static final String CACHE_NAME = "visitor-missing";
+
+    private static final Logger logger = LoggerFactory.getLogger(MissingVisitorCache.class);
+
+    private final CacheManager cacheManager;
+    private final Counter hits;
+    private final Counter misses;
+
+    public MissingVisitorCache(CacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.cacheManager = cacheManager;
+        this.hits = Counter.builder("visitor.cache.missing").tag("result", "hit")
+                .description("Lookups of unknown visitor ids answered from the negative cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("visitor.cache.missing").tag("result", "miss")
+                .description("Lookups of visitor ids not in the negative cache")
+                .register(meterRegistry);
+    }
+
+    public boolean isKnownMissing(Long id) {
+        boolean missing = false;
+        try {
+            Cache cache = cacheManager.getCache(CACHE_NAME);
+            missing = cache != null && cache.get(id) != null;
+        } catch (Exception e) {
+            logger.warn("Failed to read the negative cache for visitor ID {}", id, e);
+        }
+        (missing ? hits : misses).increment();
+        return missing;
+    }
+
+    public void markMissing(Long id) {
+        try {
+            Cache cache = cacheManager.getCache(CACHE_NAME);
+            if (cache != null) {
+                cache.put(id, Boolean.TRUE);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to record missing visitor ID {}", id, e);
+        }
+    }
+
+    @Override
+    public void onVisitorSaved(Visitor previous, Visitor current) {
+        if (previous == null && current.getId() != null) {
+            Cache cache = cacheManager.getCache(CACHE_NAME);
+            if (cache != null) {
+                cache.evict(current.getId());
+            }
+        }
+    }
+
+    // One DEL and one invalidation message for the whole batch, rather than one of each per created id
+    @Override
+    public void onVisitorsCreated(List<Visitor> created) {
+        List<Long> ids = created.stream().map(Visitor::getId).filter(Objects::nonNull).collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            Cache cache = cacheManager.getCache(CACHE_NAME);
+            if (cache instanceof TwoLevelCache) {
+                ((TwoLevelCache) cache).evictAll(ids);
+            } else if (cache != null) {
+                ids.forEach(cache::evict);
+            }
+        } catch (Exception e) {
+            // Entries expire after visitor.cache.missing.ttl on their own
+            logger.warn("Failed to drop {} created visitors from the negative cache", ids.size(), e);
+        }
+    }
+}
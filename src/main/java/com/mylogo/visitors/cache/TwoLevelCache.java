@@ -0,0 +1,293 @@
+package com.mylogo.visitors.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Cache backed by a bounded in-process map (L1) in front of a shared remote cache (L2).
+ * <p>
+ * Reads are served from L1 when possible and fall through to L2, filling L1 on the way back.
+ * Every write goes to both levels and is announced to the other replicas, which drop the
+ * entry from their own L1 and pick up the new value from L2 on their next read.
+ * <p>
+ * Loads through {@link #get(Object, Callable)} (i.e. {@code @Cacheable(sync = true)}) are
+ * single-flight per key: concurrent misses for the same key wait for one load instead of each
+ * calling the loader. When a refresh-ahead window is set, a hit on an entry that is about to
+ * expire from L1 returns the cached value and starts one background reload, so hot keys are
+ * renewed before they expire instead of all missing together. Reloads run on the bounded executor
+ * handed in by the manager; a reload it rejects is skipped, and the entry is loaded again on its
+ * next miss. A reload only writes back if the entry it renews is still the one in L1, so a key
+ * written or evicted while it was loading is not overwritten with what it read.
+ */
+public class TwoLevelCache implements Cache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TwoLevelCache.class);
+
+    private final String name;
+    private final Cache remote;
+    private final com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> local;
+    private final CacheInvalidationPublisher publisher;
+    private final Consumer<Collection<?>> remoteBulkEvict;
+    private final long refreshAfterNanos;
+    private final Executor refresher;
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    // Kept apart from inFlight: a refresh may have read the value before a write, so misses never wait on one
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param localTtl     how long entries live in {@code local}, which must be built with the same expiry
+     * @param refreshAhead how long before that expiry a hit triggers a background reload; zero disables it
+     * @param refresher    runs the background reloads
+     */
+    public TwoLevelCache(String name, Cache remote, com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> local,
+                         CacheInvalidationPublisher publisher, Duration localTtl, Duration refreshAhead,
+                         Executor refresher) {
+        this(name, remote, local, publisher, localTtl, refreshAhead, refresher, keys -> keys.forEach(remote::evict));
+    }
+
+    /**
+     * @param remoteBulkEvict removes several keys from {@code remote} in one round trip, used by {@link #evictAll}
+     */
+    public TwoLevelCache(String name, Cache remote, com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> local,
+                         CacheInvalidationPublisher publisher, Duration localTtl, Duration refreshAhead,
+                         Executor refresher, Consumer<Collection<?>> remoteBulkEvict) {
+        this.name = name;
+        this.remote = remote;
+        this.local = local;
+        this.publisher = publisher;
+        this.remoteBulkEvict = remoteBulkEvict;
+        this.refresher = refresher;
+        this.refreshAfterNanos = refreshAhead.isZero() || refreshAhead.compareTo(localTtl) >= 0
+                ? Long.MAX_VALUE : localTtl.minus(refreshAhead).toNanos();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        ValueWrapper cached = local.getIfPresent(localKey);
+        if (cached != null) {
+            return cached;
+        }
+        ValueWrapper loaded = remote.get(key);
+        if (loaded != null) {
+            local.put(localKey, new LocalEntry(loaded.get()));
+        }
+        return loaded;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        ValueWrapper cached = local.getIfPresent(localKey);
+        if (cached != null) {
+            if (cached instanceof LocalEntry && ((LocalEntry) cached).isDueForRefresh(refreshAfterNanos)) {
+                refreshInBackground(key, localKey, (LocalEntry) cached, valueLoader);
+            }
+            return (T) cached.get();
+        }
+
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> pending = inFlight.putIfAbsent(localKey, load);
+        if (pending != null) {
+            return (T) await(pending, key, valueLoader);
+        }
+        try {
+            ValueWrapper stored = remote.get(key);
+            Object value;
+            if (stored != null) {
+                value = stored.get();
+            } else {
+                value = valueLoader.call();
+                remote.put(key, value);
+            }
+            local.put(localKey, new LocalEntry(value));
+            load.complete(value);
+            return (T) value;
+        } catch (Exception e) {
+            load.completeExceptionally(e);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            inFlight.remove(localKey, load);
+        }
+    }
+
+    private void refreshInBackground(Object key, String localKey, LocalEntry entry, Callable<?> valueLoader) {
+        if (!refreshing.add(localKey)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    writeBack(key, localKey, entry, valueLoader.call());
+                } catch (Exception e) {
+                    // The current entry stays until it expires; the next miss loads it again
+                    logger.warn("Failed to refresh key {} of cache {}", key, name, e);
+                } finally {
+                    refreshing.remove(localKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Refresh is best effort; the entry is loaded again on its next miss
+            refreshing.remove(localKey);
+        }
+    }
+
+    /**
+     * Stores a reloaded value only while {@code entry} is still the L1 entry of the key. Writes and
+     * evictions drop the L1 entry before they touch L2, and the check and the L2 write happen under
+     * the L1 entry's lock, so a reload that lost the race never reaches L2.
+     */
+    private void writeBack(Object key, String localKey, LocalEntry entry, Object value) {
+        local.asMap().computeIfPresent(localKey, (k, current) -> {
+            if (current != entry) {
+                return current;
+            }
+            remote.put(key, value);
+            return new LocalEntry(value);
+        });
+    }
+
+    private static Object await(CompletableFuture<Object> pending, Object key, Callable<?> valueLoader) {
+        try {
+            return pending.get();
+        } catch (ExecutionException e) {
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String localKey = localKey(key);
+        local.invalidate(localKey);
+        remote.put(key, value);
+        local.put(localKey, new LocalEntry(value));
+        publisher.publish(name, key);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        local.invalidate(localKey(key));
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        if (existing == null) {
+            publisher.publish(name, key);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        local.invalidate(localKey(key));
+        remote.evict(key);
+        publisher.publish(name, key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        local.invalidate(localKey(key));
+        boolean evicted = remote.evictIfPresent(key);
+        publisher.publish(name, key);
+        return evicted;
+    }
+
+    /**
+     * Evicts several keys with one remote call and one invalidation message, for set-based writes.
+     */
+    public void evictAll(Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        for (Object key : keys) {
+            local.invalidate(localKey(key));
+        }
+        remoteBulkEvict.accept(keys);
+        publisher.publishAll(name, keys);
+    }
+
+    @Override
+    public void clear() {
+        local.invalidateAll();
+        remote.clear();
+        publisher.publish(name, null);
+    }
+
+    /**
+     * Drops an entry from L1 only, on behalf of a write made by another replica.
+     */
+    public void evictLocal(String key) {
+        local.invalidate(key);
+    }
+
+    /**
+     * Drops all of L1 only, on behalf of a clear made by another replica.
+     */
+    public void clearLocal() {
+        local.invalidateAll();
+    }
+
+    /**
+     * L1 keys are kept in string form, which is also how they travel between replicas.
+     */
+    static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    /**
+     * L1 value together with the time it was stored, which drives the refresh-ahead window.
+     */
+    static final class LocalEntry implements ValueWrapper {
+
+        private final Object value;
+        private final long storedAt = System.nanoTime();
+
+        LocalEntry(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object get() {
+            return value;
+        }
+
+        boolean isDueForRefresh(long refreshAfterNanos) {
+            return refreshAfterNanos != Long.MAX_VALUE && System.nanoTime() - storedAt >= refreshAfterNanos;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.mylogo.visitors.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CacheManager} that puts a size-limited in-process cache in front of each cache of the
+ * remote (Redis) manager, and keeps the in-process copies of all replicas coherent through
+ * Redis pub/sub.
+ * <p>
+ * Invalidation messages have the form {@code instanceId|E|cacheName|key} for an evicted key,
+ * {@code instanceId|M|cacheName|key1\nkey2...} for several evicted keys and
+ * {@code instanceId|C|cacheName|} for a cleared cache. Messages sent by this instance are ignored.
+ * The local entries also expire on their own, which bounds staleness if a message is lost.
+ * <p>
+ * Refresh-ahead reloads of all caches share one small pool of {@code refreshWorkers} threads with a
+ * queue of at most {@code refreshQueueCapacity} reloads; reloads beyond that are rejected and skipped.
+ */
+public class TwoLevelCacheManager implements CacheManager, MessageListener, CacheInvalidationPublisher {
+
+    public static final String INVALIDATION_CHANNEL = "visitors:cache-invalidation";
+
+    private static final Logger logger = LoggerFactory.getLogger(TwoLevelCacheManager.class);
+    private static final String SEPARATOR = "|";
+    private static final String EVICT = "E";
+    private static final String EVICT_MANY = "M";
+    private static final String CLEAR = "C";
+    private static final String KEY_SEPARATOR = "\n";
+    private static final int DEFAULT_REFRESH_WORKERS = 2;
+    private static final int DEFAULT_REFRESH_QUEUE_CAPACITY = 1000;
+
+    private final CacheManager remote;
+    private final StringRedisTemplate redisTemplate;
+    private final long localMaxSize;
+    private final Duration localTtl;
+    private final Duration refreshAhead;
+    private final ThreadPoolExecutor refresher;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Duration> localTtls = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager remote, StringRedisTemplate redisTemplate, long localMaxSize,
+                                Duration localTtl, Duration refreshAhead) {
+        this(remote, redisTemplate, localMaxSize, localTtl, refreshAhead, DEFAULT_REFRESH_WORKERS,
+                DEFAULT_REFRESH_QUEUE_CAPACITY);
+    }
+
+    public TwoLevelCacheManager(CacheManager remote, StringRedisTemplate redisTemplate, long localMaxSize,
+                                Duration localTtl, Duration refreshAhead, int refreshWorkers, int refreshQueueCapacity) {
+        if (refreshWorkers < 1 || refreshQueueCapacity < 1) {
+            throw new IllegalArgumentException("Cache refresh workers and queue capacity must be at least 1");
+        }
+        this.remote = remote;
+        this.redisTemplate = redisTemplate;
+        this.localMaxSize = localMaxSize;
+        this.localTtl = localTtl;
+        this.refreshAhead = refreshAhead;
+        this.refresher = new ThreadPoolExecutor(refreshWorkers, refreshWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(refreshQueueCapacity), new CustomizableThreadFactory("visitor-cache-refresh-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoLevelCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache remoteCache = remote.getCache(name);
+        if (remoteCache == null) {
+            return null;
+        }
+        Duration ttl = localTtls.getOrDefault(name, localTtl);
+        return caches.computeIfAbsent(name, n -> new TwoLevelCache(n, remoteCache,
+                Caffeine.newBuilder().maximumSize(localMaxSize).expireAfterWrite(ttl).build(), this,
+                ttl, refreshAhead, refresher, keys -> evictRemote(remoteCache, keys)));
+    }
+
+    /**
+     * Stops the refresh-ahead pool; queued reloads are dropped. Called by the container on shutdown.
+     */
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Deletes the Redis entries of several keys with a single DEL, using the key layout of {@link RedisCache}.
+     */
+    private void evictRemote(Cache remoteCache, Collection<?> keys) {
+        if (!(remoteCache instanceof RedisCache)) {
+            keys.forEach(remoteCache::evict);
+            return;
+        }
+        RedisCacheConfiguration config = ((RedisCache) remoteCache).getCacheConfiguration();
+        String prefix = config.usePrefix() ? config.getKeyPrefixFor(remoteCache.getName()) : "";
+        List<String> redisKeys = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            String converted = key instanceof String ? (String) key : config.getConversionService().convert(key, String.class);
+            redisKeys.add(prefix + converted);
+        }
+        redisTemplate.delete(redisKeys);
+    }
+
+    /**
+     * Overrides the local TTL of one cache, for caches whose entries must not outlive a shorter remote TTL.
+     * Only takes effect for caches not yet created.
+     */
+    public void setLocalTtl(String cacheName, Duration ttl) {
+        localTtls.put(cacheName, ttl);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    @Override
+    public void publish(String cacheName, Object key) {
+        String message = instanceId + SEPARATOR + (key == null ? CLEAR : EVICT) + SEPARATOR + cacheName + SEPARATOR
+                + (key == null ? "" : TwoLevelCache.localKey(key));
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+        } catch (Exception e) {
+            // The write itself succeeded; other replicas fall back to the local TTL.
+            logger.warn("Failed to publish cache invalidation for {} in cache {}", key, cacheName, e);
+        }
+    }
+
+    @Override
+    public void publishAll(String cacheName, Collection<?> keys) {
+        StringBuilder message = new StringBuilder(instanceId).append(SEPARATOR).append(EVICT_MANY)
+                .append(SEPARATOR).append(cacheName).append(SEPARATOR);
+        boolean first = true;
+        for (Object key : keys) {
+            if (!first) {
+                message.append(KEY_SEPARATOR);
+            }
+            message.append(TwoLevelCache.localKey(key));
+            first = false;
+        }
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, message.toString());
+        } catch (Exception e) {
+            logger.warn("Failed to publish cache invalidation for {} keys in cache {}", keys.size(), cacheName, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\" + SEPARATOR, 4);
+        if (parts.length < 4) {
+            logger.warn("Ignoring malformed cache invalidation message");
+            return;
+        }
+        if (instanceId.equals(parts[0])) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[2]);
+        if (cache == null) {
+            return;
+        }
+        if (CLEAR.equals(parts[1])) {
+            cache.clearLocal();
+        } else if (EVICT_MANY.equals(parts[1])) {
+            for (String key : parts[3].split(KEY_SEPARATOR)) {
+                cache.evictLocal(key);
+            }
+        } else {
+            cache.evictLocal(parts[3]);
+        }
+    }
+
+    String getInstanceId() {
+        return instanceId;
+    }
+}
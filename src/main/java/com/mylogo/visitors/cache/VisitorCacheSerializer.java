@@ -0,0 +1,318 @@
+package com.mylogo.visitors.cache;
+
+import com.mylogo.visitors.dto.VisitorDTO;
+import com.mylogo.visitors.dto.VisitorPage;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DataFormatException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary encoding for cached {@link VisitorDTO}s, lists of them and {@link VisitorPage}s.
+ * <p>
+ * Every value starts with a four byte header: a magic byte, the format version, flags and the
+ * value type. Bodies above the compression threshold are deflated when that makes them smaller.
+ * Values of any other type are written with JDK serialization behind the same header.
+ * <p>
+ * On read, plain JDK-serialized values written before this format existed are still understood,
+ * and values written in a newer format version are reported as a cache miss rather than an error,
+ * so replicas on different versions can share the cache during a rolling deploy.
+ */
+public class VisitorCacheSerializer implements RedisSerializer<Object> {
+
+    static final byte MAGIC = (byte) 0xB7;
+    static final byte VERSION = 1;
+
+    static final int FLAG_DEFLATED = 1;
+
+    static final byte TYPE_OTHER = 0;
+    static final byte TYPE_VISITOR = 1;
+    static final byte TYPE_VISITOR_LIST = 2;
+    static final byte TYPE_VISITOR_PAGE = 3;
+
+    private static final int HEADER_LENGTH = 4;
+    private static final byte JDK_STREAM_MAGIC = (byte) 0xAC;
+
+    // Presence bits of the nullable VisitorDTO fields, plus the approved flag
+    private static final int HAS_ID = 1;
+    private static final int HAS_NAME = 1 << 1;
+    private static final int HAS_CONTACT_NUMBER = 1 << 2;
+    private static final int HAS_EMAIL = 1 << 3;
+    private static final int HAS_PURPOSE = 1 << 4;
+    private static final int HAS_CHECK_IN = 1 << 5;
+    private static final int HAS_CHECK_OUT = 1 << 6;
+    private static final int HAS_CREATED_DATE = 1 << 7;
+    private static final int APPROVED = 1 << 8;
+
+    private final int compressionThreshold;
+    private final JdkSerializationRedisSerializer jdkSerializer;
+
+    /**
+     * @param compressionThreshold body size in bytes above which compression is attempted; negative disables it
+     */
+    public VisitorCacheSerializer(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+        this.jdkSerializer = new JdkSerializationRedisSerializer(getClass().getClassLoader());
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            byte type = typeOf(value);
+            byte[] body = type == TYPE_OTHER ? jdkSerializer.serialize(value) : writeBody(type, value);
+            int flags = 0;
+            if (compressionThreshold >= 0 && body.length > compressionThreshold) {
+                byte[] deflated = deflate(body);
+                if (deflated.length < body.length) {
+                    body = deflated;
+                    flags |= FLAG_DEFLATED;
+                }
+            }
+            byte[] bytes = new byte[HEADER_LENGTH + body.length];
+            bytes[0] = MAGIC;
+            bytes[1] = VERSION;
+            bytes[2] = (byte) flags;
+            bytes[3] = type;
+            System.arraycopy(body, 0, bytes, HEADER_LENGTH, body.length);
+            return bytes;
+        } catch (IOException e) {
+            throw new SerializationException("Cannot serialize cache value", e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] == JDK_STREAM_MAGIC) {
+            return jdkSerializer.deserialize(bytes);
+        }
+        if (bytes[0] != MAGIC || bytes.length < HEADER_LENGTH) {
+            throw new SerializationException("Unrecognized cache value format");
+        }
+        if (bytes[1] > VERSION) {
+            return null;
+        }
+        ByteBuffer body = ByteBuffer.wrap(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH);
+        if ((bytes[2] & FLAG_DEFLATED) != 0) {
+            body = ByteBuffer.wrap(inflate(bytes));
+        }
+        byte type = bytes[3];
+        if (type == TYPE_OTHER) {
+            byte[] serialized = new byte[body.remaining()];
+            body.get(serialized);
+            return jdkSerializer.deserialize(serialized);
+        }
+        try {
+            return readBody(type, body);
+        } catch (BufferUnderflowException e) {
+            throw new SerializationException("Truncated cache value", e);
+        }
+    }
+
+    private static byte typeOf(Object value) {
+        if (value instanceof VisitorDTO) {
+            return TYPE_VISITOR;
+        }
+        if (value instanceof VisitorPage) {
+            return TYPE_VISITOR_PAGE;
+        }
+        if (value instanceof List && isVisitorList((List<?>) value)) {
+            return TYPE_VISITOR_LIST;
+        }
+        return TYPE_OTHER;
+    }
+
+    private static boolean isVisitorList(List<?> list) {
+        for (Object element : list) {
+            if (!(element instanceof VisitorDTO)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static byte[] writeBody(byte type, Object value) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(buffer);
+        switch (type) {
+            case TYPE_VISITOR:
+                writeVisitor(out, (VisitorDTO) value);
+                break;
+            case TYPE_VISITOR_LIST:
+                writeVisitors(out, (List<VisitorDTO>) value);
+                break;
+            case TYPE_VISITOR_PAGE:
+                VisitorPage page = (VisitorPage) value;
+                writeVisitors(out, page.getContent() == null ? List.of() : page.getContent());
+                writeNullableString(out, page.getNextCursor());
+                out.writeInt(page.getSize());
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported type " + type);
+        }
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private static Object readBody(byte type, ByteBuffer in) {
+        switch (type) {
+            case TYPE_VISITOR:
+                return readVisitor(in);
+            case TYPE_VISITOR_LIST:
+                return readVisitors(in);
+            case TYPE_VISITOR_PAGE:
+                List<VisitorDTO> content = readVisitors(in);
+                String nextCursor = readNullableString(in);
+                return new VisitorPage(content, nextCursor, in.getInt());
+            default:
+                throw new SerializationException("Unknown cache value type " + type);
+        }
+    }
+
+    private static void writeVisitors(DataOutputStream out, List<VisitorDTO> visitors) throws IOException {
+        out.writeInt(visitors.size());
+        for (VisitorDTO visitor : visitors) {
+            writeVisitor(out, visitor);
+        }
+    }
+
+    private static List<VisitorDTO> readVisitors(ByteBuffer in) {
+        int size = in.getInt();
+        List<VisitorDTO> visitors = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            visitors.add(readVisitor(in));
+        }
+        return visitors;
+    }
+
+    private static void writeVisitor(DataOutputStream out, VisitorDTO visitor) throws IOException {
+        int bits = (visitor.getId() != null ? HAS_ID : 0)
+                | (visitor.getName() != null ? HAS_NAME : 0)
+                | (visitor.getContactNumber() != null ? HAS_CONTACT_NUMBER : 0)
+                | (visitor.getEmail() != null ? HAS_EMAIL : 0)
+                | (visitor.getPurpose() != null ? HAS_PURPOSE : 0)
+                | (visitor.getCheckIn() != null ? HAS_CHECK_IN : 0)
+                | (visitor.getCheckOut() != null ? HAS_CHECK_OUT : 0)
+                | (visitor.getCreatedDate() != null ? HAS_CREATED_DATE : 0)
+                | (visitor.isApproved() ? APPROVED : 0);
+        out.writeShort(bits);
+        if (visitor.getId() != null) {
+            out.writeLong(visitor.getId());
+        }
+        writeString(out, visitor.getName());
+        writeString(out, visitor.getContactNumber());
+        writeString(out, visitor.getEmail());
+        writeString(out, visitor.getPurpose());
+        writeDateTime(out, visitor.getCheckIn());
+        writeDateTime(out, visitor.getCheckOut());
+        out.writeLong(visitor.getDuration());
+        writeDateTime(out, visitor.getCreatedDate());
+    }
+
+    private static VisitorDTO readVisitor(ByteBuffer in) {
+        int bits = Short.toUnsignedInt(in.getShort());
+        VisitorDTO visitor = new VisitorDTO();
+        if ((bits & HAS_ID) != 0) {
+            visitor.setId(in.getLong());
+        }
+        visitor.setName((bits & HAS_NAME) != 0 ? readString(in) : null);
+        visitor.setContactNumber((bits & HAS_CONTACT_NUMBER) != 0 ? readString(in) : null);
+        visitor.setEmail((bits & HAS_EMAIL) != 0 ? readString(in) : null);
+        visitor.setPurpose((bits & HAS_PURPOSE) != 0 ? readString(in) : null);
+        visitor.setCheckIn((bits & HAS_CHECK_IN) != 0 ? readDateTime(in) : null);
+        visitor.setCheckOut((bits & HAS_CHECK_OUT) != 0 ? readDateTime(in) : null);
+        visitor.setDuration(in.getLong());
+        visitor.setCreatedDate((bits & HAS_CREATED_DATE) != 0 ? readDateTime(in) : null);
+        visitor.setApproved((bits & APPROVED) != 0);
+        return visitor;
+    }
+
+    // Absent values are skipped entirely; their presence is recorded in the field bits
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value != null) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        writeString(out, value);
+    }
+
+    private static String readNullableString(ByteBuffer in) {
+        return in.get() != 0 ? readString(in) : null;
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readDateTime(ByteBuffer in) {
+        long seconds = in.getLong();
+        return LocalDateTime.ofEpochSecond(seconds, in.getInt(), ZoneOffset.UTC);
+    }
+
+    private static byte[] inflate(byte[] bytes) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH);
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] chunk = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new SerializationException("Truncated compressed cache value");
+                }
+                buffer.write(chunk, 0, n);
+            }
+            return buffer.toByteArray();
+        } catch (DataFormatException e) {
+            throw new SerializationException("Corrupt compressed cache value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] deflate(byte[] body) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length / 2);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(buffer, deflater)) {
+            out.write(body);
+        } finally {
+            deflater.end();
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,105 @@
+package com.mylogo.visitors.cache;
+
+import com.mylogo.visitors.dto.VisitorPage;
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.pagination.VisitorCursor;
+import com.mylogo.visitors.repository.VisitTimes;
+import com.mylogo.visitors.service.VisitorChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Generation-versioned cache of visitor list pages.
+ * <p>
+ * Every page is cached under the current list generation, a counter kept in Redis and shared by
+ * all replicas. A write only increments the counter, after it has been persisted; pages cached
+ * under older generations are never read again and age out through the cache TTL. Readers therefore
+ * never see a list older than the last completed write, and a write costs one {@code INCR} however
+ * many pages are cached.
+ * <p>
+ * If Redis cannot be reached for the generation, pages are read straight from the database.
+ */
+@Component
+public class VisitorPageCache implements VisitorChangeListener {
+
+    public static final String CACHE_NAME = "visitor-pages";
+    static final String GENERATION_KEY = "visitors:pages:generation";
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitorPageCache.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final CacheManager cacheManager;
+
+    public VisitorPageCache(StringRedisTemplate redisTemplate, CacheManager cacheManager) {
+        this.redisTemplate = redisTemplate;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Page at the given position of the current generation, loading and caching it on a miss.
+     */
+    public VisitorPage get(VisitorCursor position, int size, Supplier<VisitorPage> loader) {
+        Long generation = currentGeneration();
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (generation == null || cache == null) {
+            return loader.get();
+        }
+        return cache.get(key(generation, position, size), loader::get);
+    }
+
+    @Override
+    public void onVisitorSaved(Visitor previous, Visitor current) {
+        nextGeneration();
+    }
+
+    @Override
+    public void onVisitorsCreated(List<Visitor> created) {
+        nextGeneration();
+    }
+
+    @Override
+    public void onVisitorsUpdated(List<Long> ids) {
+        nextGeneration();
+    }
+
+    @Override
+    public void onVisitorPatched(Long id, VisitorPatch patch, VisitTimes previous) {
+        nextGeneration();
+    }
+
+    @Override
+    public void onVisitorDeleted(Visitor previous) {
+        nextGeneration();
+    }
+
+    public void nextGeneration() {
+        try {
+            redisTemplate.opsForValue().increment(GENERATION_KEY);
+        } catch (Exception e) {
+            // Cached pages stay visible until they expire
+            logger.warn("Failed to advance the visitor list generation", e);
+        }
+    }
+
+    private Long currentGeneration() {
+        try {
+            String generation = redisTemplate.opsForValue().get(GENERATION_KEY);
+            return generation == null ? 0L : Long.parseLong(generation);
+        } catch (Exception e) {
+            logger.warn("Failed to read the visitor list generation, bypassing the page cache", e);
+            return null;
+        }
+    }
+
+    static String key(long generation, VisitorCursor position, int size) {
+        return generation + ":" + position.getSort() + ":" + size + ":" + (position.isStart() ? "" : position.encode());
+    }
+}
@@ -0,0 +1,45 @@
+package com.mylogo.visitors.config;
+
+import com.mylogo.visitors.journal.EventJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Local journal that holds visitor events while Kafka is unavailable. Each replica needs its own directory,
+ * on a volume that outlives the pod: the deployments mount one per replica and point
+ * {@code visitor.events.journal.dir} at it. A journal under {@code java.io.tmpdir}, the default for local
+ * runs, is lost with the container, so outside the LOCAL and test profiles that is logged as a warning.
+ */
+@Configuration
+public class EventJournalConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventJournalConfig.class);
+
+    @Bean(destroyMethod = "close")
+    public EventJournal visitorEventJournal(
+            Environment environment,
+            @Value("${visitor.events.journal.dir:${java.io.tmpdir}/visitor-events-journal}") String directory,
+            @Value("${visitor.events.journal.segment-bytes:16777216}") int segmentBytes) throws IOException {
+        Path path = Paths.get(directory);
+        if (isUnderTmpdir(path) && !environment.acceptsProfiles(Profiles.of("LOCAL | test"))) {
+            logger.warn("The event journal is in {}, under the temporary directory: events held while Kafka is "
+                    + "unavailable are lost when the container is replaced. Set visitor.events.journal.dir to a "
+                    + "persistent volume", path);
+        }
+        return new EventJournal(path, segmentBytes);
+    }
+
+    static boolean isUnderTmpdir(Path directory) {
+        Path tmpdir = Paths.get(System.getProperty("java.io.tmpdir")).toAbsolutePath().normalize();
+        return directory.toAbsolutePath().normalize().startsWith(tmpdir);
+    }
+}
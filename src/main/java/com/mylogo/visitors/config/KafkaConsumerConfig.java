@@ -0,0 +1,33 @@
+package com.mylogo.visitors.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+/**
+ * Listener container for the visitor event read model: batch delivery of up to
+ * {@code spring.kafka.consumer.max-poll-records} records, {@code visitor.read-model.concurrency} consumer
+ * threads, and offsets committed by the listener once a batch is applied.
+ */
+@Configuration
+public class KafkaConsumerConfig {
+
+    public static final String VISITOR_EVENT_BATCH_FACTORY = "visitorEventBatchFactory";
+
+    @Bean(VISITOR_EVENT_BATCH_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> visitorEventBatchFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory,
+            @Value("${visitor.read-model.concurrency:3}") int concurrency) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+}
@@ -0,0 +1,73 @@
+package com.mylogo.visitors.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Producer tuning for visitor events, applied on top of the {@code spring.kafka.producer.*} settings.
+ * <p>
+ * {@code visitor.events.profile} picks a preset of linger, batch size and compression; each of them
+ * can be overridden on its own with {@code visitor.events.linger-ms}, {@code visitor.events.batch-size}
+ * and {@code visitor.events.compression-type}. Whatever the profile, the producer is idempotent with
+ * {@code acks=all}, which keeps the events of one key in order across retries.
+ */
+@Configuration
+public class KafkaProducerConfig {
+
+    public enum Profile {
+        /** Send immediately; for low, latency-sensitive volumes. */
+        LATENCY(0, 16_384, "none"),
+        /** Wait a few milliseconds to fill batches. */
+        BALANCED(5, 65_536, "lz4"),
+        /** Larger, longer-lingering batches with the densest compression; for bulk imports and peaks. */
+        THROUGHPUT(25, 262_144, "zstd");
+
+        private final int lingerMs;
+        private final int batchSize;
+        private final String compressionType;
+
+        Profile(int lingerMs, int batchSize, String compressionType) {
+            this.lingerMs = lingerMs;
+            this.batchSize = batchSize;
+            this.compressionType = compressionType;
+        }
+
+        public static Profile fromProperty(String value) {
+            return Profile.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer visitorEventProducerTuning(
+            @Value("${visitor.events.profile:balanced}") String profile,
+            @Value("${visitor.events.linger-ms:#{null}}") Integer lingerMs,
+            @Value("${visitor.events.batch-size:#{null}}") Integer batchSize,
+            @Value("${visitor.events.compression-type:#{null}}") String compressionType,
+            @Value("${visitor.events.max-block-ms:1000}") long maxBlockMs) {
+        Map<String, Object> configs = producerConfigs(Profile.fromProperty(profile), lingerMs, batchSize,
+                compressionType, maxBlockMs);
+        return producerFactory -> producerFactory.updateConfigs(configs);
+    }
+
+    static Map<String, Object> producerConfigs(Profile profile, Integer lingerMs, Integer batchSize,
+                                               String compressionType, long maxBlockMs) {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs != null ? lingerMs : profile.lingerMs);
+        configs.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize != null ? batchSize : profile.batchSize);
+        configs.put(ProducerConfig.COMPRESSION_TYPE_CONFIG,
+                compressionType != null ? compressionType : profile.compressionType);
+        configs.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configs.put(ProducerConfig.ACKS_CONFIG, "all");
+        configs.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        // Bounds how long a send may block the calling thread when the broker is unreachable
+        configs.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
+        return configs;
+    }
+}
@@ -3,6 +3,11 @@ package com.mylogo.visitors.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mylogo.visitors.cache.MissingVisitorCache;
+import com.mylogo.visitors.cache.TwoLevelCacheManager;
+import com.mylogo.visitors.cache.VisitorCacheSerializer;
+import com.mylogo.visitors.cache.VisitorPageCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,9 +18,13 @@ import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
@@ -42,6 +51,55 @@ public class RedisConfig {
         return template;
     }
 
+    /**
+     * Redis-backed caches with a bounded in-process near cache in front of each of them.
+     * Values are stored in Redis with plain JDK serialization, or with {@link VisitorCacheSerializer}
+     * when {@code visitor.cache.value-format=binary}.
+     */
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                             StringRedisTemplate stringRedisTemplate,
+                                             @Value("${visitor.cache.redis.ttl:PT1H}") Duration redisTtl,
+                                             @Value("${visitor.cache.local.max-size:10000}") long localMaxSize,
+                                             @Value("${visitor.cache.local.ttl:PT1M}") Duration localTtl,
+                                             @Value("${visitor.cache.local.refresh-ahead:PT0S}") Duration refreshAhead,
+                                             @Value("${visitor.cache.local.refresh-workers:2}") int refreshWorkers,
+                                             @Value("${visitor.cache.local.refresh-queue-capacity:1000}") int refreshQueueCapacity,
+                                             @Value("${visitor.cache.pages.ttl:PT10M}") Duration pagesTtl,
+                                             @Value("${visitor.cache.missing.ttl:PT30S}") Duration missingTtl,
+                                             @Value("${visitor.cache.value-format:jdk}") String valueFormat,
+                                             @Value("${visitor.cache.compression-threshold:512}") int compressionThreshold) {
+        RedisSerializer<Object> valueSerializer = "binary".equalsIgnoreCase(valueFormat)
+                ? new VisitorCacheSerializer(compressionThreshold)
+                : new JdkSerializationRedisSerializer(getClass().getClassLoader());
+        RedisCacheConfiguration cacheConfig = RedisCacheConfiguration.defaultCacheConfig()
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer));
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(cacheConfig.entryTtl(redisTtl))
+                // Pages of superseded list generations are never read again and must expire
+                .withCacheConfiguration(VisitorPageCache.CACHE_NAME, cacheConfig.entryTtl(pagesTtl))
+                .withCacheConfiguration(MissingVisitorCache.CACHE_NAME, cacheConfig.entryTtl(missingTtl))
+                .build();
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(redisCacheManager, stringRedisTemplate,
+                localMaxSize, localTtl, refreshAhead, refreshWorkers, refreshQueueCapacity);
+        if (missingTtl.compareTo(localTtl) < 0) {
+            cacheManager.setLocalTtl(MissingVisitorCache.CACHE_NAME, missingTtl);
+        }
+        return cacheManager;
+    }
+
+    /**
+     * Delivers near-cache invalidations published by the other replicas.
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       TwoLevelCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(TwoLevelCacheManager.INVALIDATION_CHANNEL));
+        return container;
+    }
+
 
 //    @Bean
 //    public RedisConnectionFactory redisConnectionFactory() {
@@ -99,16 +157,5 @@ public class RedisConfig {
 //                .transactionAware()
 //                .build();
 //    }
-//
-//    /**
-//     * Redis Message Listener Container for Pub/Sub.
-//     * Listens to messages published on specific Redis channels.
-//     */
-//    @Bean
-//        public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
-//        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
-//        container.setConnectionFactory(connectionFactory);
-//        return container;
-//    }
 
 }
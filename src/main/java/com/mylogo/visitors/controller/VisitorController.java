@@ -1,25 +1,43 @@
 package com.mylogo.visitors.controller;
 
+import com.mylogo.visitors.convertor.JsonStreamWriter;
+import com.mylogo.visitors.dto.PurposeSummaryDTO;
+import com.mylogo.visitors.dto.VisitRollupDTO;
+import com.mylogo.visitors.dto.VisitorBatchResult;
+import com.mylogo.visitors.dto.VisitorBulkUpdateResult;
 import com.mylogo.visitors.dto.VisitorDTO;
+import com.mylogo.visitors.dto.VisitorIdsRequest;
+import com.mylogo.visitors.dto.VisitorPage;
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.dto.VisitorSearchCriteria;
+import com.mylogo.visitors.dto.VisitorStatsDTO;
+import com.mylogo.visitors.dto.VisitorStatusDTO;
 import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.pagination.PurposeOrder;
+import com.mylogo.visitors.pagination.VisitorSort;
 import com.mylogo.visitors.service.VisitorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 
 import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -31,17 +49,45 @@ public class VisitorController {
     private static final Logger logger = LoggerFactory.getLogger(VisitorController.class);
 
     private final VisitorService visitorService;
+    private final JsonStreamWriter jsonStreamWriter;
     private final ExecutorService executor;
 
-    public VisitorController(VisitorService visitorService) {
+    public VisitorController(VisitorService visitorService, JsonStreamWriter jsonStreamWriter) {
         this.visitorService = visitorService;
+        this.jsonStreamWriter = jsonStreamWriter;
         this.executor = Executors.newFixedThreadPool(2);
     }
 
     @GetMapping
-    public List<VisitorDTO> getAllVisitors() {
-        logger.info("Fetching all visitors");
-        return visitorService.getAllVisitors();
+    public VisitorPage getAllVisitors(@RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) Integer size,
+                                      @RequestParam(required = false) String sort) {
+        logger.info("Fetching visitors page");
+        return visitorService.getVisitorPage(cursor, size, sort);
+    }
+
+    @GetMapping("/search")
+    public VisitorPage searchVisitors(
+            @RequestParam(required = false) Boolean approved,
+            @RequestParam(required = false) String purpose,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime checkInFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime checkInTo,
+            @RequestParam(required = false) Boolean checkedOut,
+            @RequestParam(required = false) String namePrefix,
+            @RequestParam(required = false) String emailPrefix,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        logger.info("Searching visitors");
+        VisitorSearchCriteria criteria = VisitorSearchCriteria.builder()
+                .approved(approved)
+                .purpose(purpose)
+                .checkInFrom(checkInFrom)
+                .checkInTo(checkInTo)
+                .checkedOut(checkedOut)
+                .namePrefix(namePrefix)
+                .emailPrefix(emailPrefix)
+                .build();
+        return visitorService.searchVisitors(criteria, cursor, size);
     }
 
     @GetMapping("/{id}")
@@ -62,6 +108,24 @@ public class VisitorController {
         return visitorService.addVisitor(visitor);
     }
 
+    @PostMapping("/batch")
+    public VisitorBatchResult addVisitors(@RequestBody List<Visitor> visitors) {
+        logger.info("Adding a batch of visitors");
+        return visitorService.addVisitors(visitors);
+    }
+
+    @PostMapping("/bulk/approve")
+    public VisitorBulkUpdateResult approveVisitors(@RequestBody VisitorIdsRequest request) {
+        logger.info("Approving visitors in bulk");
+        return visitorService.approveVisitors(request.getIds());
+    }
+
+    @PostMapping("/bulk/check-out")
+    public VisitorBulkUpdateResult checkOutVisitors(@RequestBody VisitorIdsRequest request) {
+        logger.info("Checking out visitors in bulk");
+        return visitorService.checkOutVisitors(request.getIds());
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<VisitorDTO> updateVisitor(@PathVariable Long id, @RequestBody Visitor visitor) {
         logger.info("Updating visitor with ID: {}", id);
@@ -75,6 +139,25 @@ public class VisitorController {
         }
     }
 
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> patchVisitor(@PathVariable Long id, @RequestBody VisitorPatch patch) {
+        logger.info("Patching visitor with ID: {}", id);
+        visitorService.patchVisitor(id, patch);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/{id}/check-in")
+    public VisitorStatusDTO checkIn(@PathVariable Long id) {
+        logger.info("Checking in visitor with ID: {}", id);
+        return visitorService.checkIn(id);
+    }
+
+    @PostMapping("/{id}/check-out")
+    public VisitorStatusDTO checkOut(@PathVariable Long id) {
+        logger.info("Checking out visitor with ID: {}", id);
+        return visitorService.checkOut(id);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteVisitor(@PathVariable Long id) {
         logger.info("Deleting visitor with ID: {}", id);
@@ -84,9 +167,13 @@ public class VisitorController {
 
 
 
-    @GetMapping("/sorted")
-    public List<Visitor> getAllVisitorsSortedByCheckIn() {
-        return visitorService.getAllVisitorsSortedByCheckIn();
+    /**
+     * All visitors ordered by check-in then id, visitors that never checked in last. Rows are read
+     * in keyset pages along the (check_in, id) index and written as they arrive.
+     */
+    @GetMapping(value = "/sorted", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<String> getAllVisitorsSortedByCheckIn() {
+        return jsonStreamWriter.writeArray(visitorService.streamVisitors(VisitorSort.CHECK_IN));
     }
 
     @GetMapping("/approved")
@@ -99,14 +186,69 @@ public class VisitorController {
         return visitorService.groupVisitorsByPurpose();
     }
 
+    @GetMapping("/grouped-by-purpose/summary")
+    public List<PurposeSummaryDTO> getVisitorSummaryByPurpose() {
+        return visitorService.summarizeVisitorsByPurpose();
+    }
+
+    /**
+     * Same document as {@code /grouped-by-purpose}, ordered by purpose with "Unknown" last,
+     * written group by group while the visitors are read.
+     */
+    @GetMapping(value = "/grouped-by-purpose/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<String> streamVisitorsGroupedByPurpose() {
+        return jsonStreamWriter.writeGroupedObject(visitorService.streamVisitors(VisitorSort.PURPOSE),
+                visitor -> PurposeOrder.groupOf(visitor.getPurpose()), PurposeOrder.COLLATION);
+    }
+
     @GetMapping("/total-duration")
-    public long calculateTotalVisitDuration() {
-        return visitorService.calculateTotalVisitDuration();
+    public long calculateTotalVisitDuration(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String purpose) {
+        return visitorService.calculateTotalVisitDuration(from, to, purpose);
+    }
+
+    @GetMapping("/stats")
+    public VisitorStatsDTO getVisitorStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String purpose) {
+        return visitorService.getVisitorStats(from, to, purpose);
+    }
+
+    /**
+     * Visitor count, total duration and approved count per check-in hour or day and purpose, for the
+     * buckets starting in {@code [from, to)}.
+     */
+    @GetMapping("/rollups")
+    public List<VisitRollupDTO> getVisitRollups(
+            @RequestParam(required = false) String granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String purpose) {
+        return visitorService.getVisitRollups(granularity, from, to, purpose);
+    }
+
+    @GetMapping("/on-site")
+    public VisitorPage getVisitorsOnSite(@RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer size) {
+        return visitorService.getVisitorsOnSite(cursor, size);
+    }
+
+    @GetMapping("/on-site/count")
+    public long countVisitorsOnSite() {
+        return visitorService.countVisitorsOnSite();
+    }
+
+    @GetMapping(value = "/unique-contacts", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<String> getUniqueContactNumbers() {
+        return jsonStreamWriter.writeArray(visitorService.streamUniqueContactNumbers());
     }
 
-    @GetMapping("/unique-contacts")
-    public Set<String> getUniqueContactNumbers() {
-        return visitorService.getUniqueContactNumbers();
+    @GetMapping("/unique-contacts/count")
+    public long estimateUniqueContactNumbers() {
+        return visitorService.estimateUniqueContactNumbers();
     }
 
     /**
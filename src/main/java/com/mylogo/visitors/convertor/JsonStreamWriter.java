@@ -0,0 +1,96 @@
+package com.mylogo.visitors.convertor;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Renders a stream of pages as a single JSON document, one chunk per page.
+ * <p>
+ * WebFlux collects a {@code Flux} into a list before writing it as {@code application/json};
+ * returning these pre-rendered chunks instead keeps the usual response shape while the body
+ * is written page by page, so only one page is ever held in memory.
+ */
+@Component
+public class JsonStreamWriter {
+
+    private final ObjectMapper objectMapper;
+
+    public JsonStreamWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Renders the elements of all pages as one JSON array.
+     */
+    public <T> Flux<String> writeArray(Flux<? extends List<T>> pages) {
+        return Flux.defer(() -> {
+            boolean[] empty = {true};
+            Flux<String> elements = pages.filter(page -> !page.isEmpty()).map(page -> {
+                StringBuilder chunk = new StringBuilder();
+                for (T element : page) {
+                    if (!empty[0]) {
+                        chunk.append(',');
+                    }
+                    empty[0] = false;
+                    chunk.append(write(element));
+                }
+                return chunk.toString();
+            });
+            return Flux.concat(Mono.just("["), elements, Mono.just("]"));
+        });
+    }
+
+    /**
+     * Renders the elements as one JSON object mapping each group key to the array of its elements.
+     * Elements must arrive ordered by group key.
+     */
+    public <T> Flux<String> writeGroupedObject(Flux<? extends List<T>> pages, Function<T, String> groupKey) {
+        return writeGroupedObject(pages, groupKey, Comparator.naturalOrder());
+    }
+
+    /**
+     * Like {@link #writeGroupedObject(Flux, Function)}, for elements ordered by group key under
+     * {@code keyOrder}. Keys it considers equal belong to one group, written under the first of them.
+     */
+    public <T> Flux<String> writeGroupedObject(Flux<? extends List<T>> pages, Function<T, String> groupKey,
+                                               Comparator<? super String> keyOrder) {
+        return Flux.defer(() -> {
+            String[] currentKey = {null};
+            Flux<String> groups = pages.filter(page -> !page.isEmpty()).map(page -> {
+                StringBuilder chunk = new StringBuilder();
+                for (T element : page) {
+                    String key = groupKey.apply(element);
+                    if (currentKey[0] != null && keyOrder.compare(key, currentKey[0]) == 0) {
+                        chunk.append(',');
+                    } else {
+                        if (currentKey[0] != null) {
+                            chunk.append("],");
+                        }
+                        chunk.append(write(key)).append(":[");
+                        currentKey[0] = key;
+                    }
+                    chunk.append(write(element));
+                }
+                return chunk.toString();
+            });
+            return Flux.concat(Mono.just("{"), groups,
+                    Mono.fromSupplier(() -> currentKey[0] == null ? "}" : "]}"));
+        });
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+}
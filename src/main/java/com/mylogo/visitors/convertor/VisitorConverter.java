@@ -2,22 +2,35 @@ package com.mylogo.visitors.convertor;
 
 import com.mylogo.visitors.dto.VisitorDTO;
 import com.mylogo.visitors.entity.Visitor;
-import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Component
 public class VisitorConverter {
 
+    // Copies fields explicitly instead of through reflective BeanUtils, as this runs once per row on every list read.
     public static VisitorDTO toDTO(Visitor visitor) {
-        VisitorDTO dto = new VisitorDTO();
-        BeanUtils.copyProperties(visitor, dto);
-        return dto;
+        return new VisitorDTO(visitor.getId(), visitor.getName(), visitor.getContactNumber(), visitor.getEmail(),
+                visitor.getPurpose(), visitor.getCheckIn(), visitor.getCheckOut(), visitor.getDuration(),
+                visitor.isApproved(), visitor.getCreatedDate());
+    }
+
+    /**
+     * Detached copy of the given entity, used to keep a before-image across a save.
+     */
+    public static Visitor copyOf(Visitor visitor) {
+        return new Visitor(visitor.getId(), visitor.getName(), visitor.getContactNumber(), visitor.getEmail(),
+                visitor.getPurpose(), visitor.getCheckIn(), visitor.getCheckOut(), visitor.getDuration(),
+                visitor.isApproved(), visitor.getCreatedDate());
     }
 
     public static List<VisitorDTO> toDTOList(List<Visitor> visitors) {
-        return visitors.stream().map(VisitorConverter::toDTO).collect(Collectors.toList());
+        List<VisitorDTO> dtos = new ArrayList<>(visitors.size());
+        for (Visitor visitor : visitors) {
+            dtos.add(toDTO(visitor));
+        }
+        return dtos;
     }
 }
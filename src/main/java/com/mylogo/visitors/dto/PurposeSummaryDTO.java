@@ -0,0 +1,19 @@
+package com.mylogo.visitors.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class PurposeSummaryDTO implements Serializable {
+
+    private String purpose;
+    private Long visitorCount;
+    private Long totalDuration;
+}
@@ -0,0 +1,32 @@
+package com.mylogo.visitors.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Outcome of one visitor of a batch insert, reported at the visitor's position in the request.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(value = JsonInclude.Include.NON_NULL)
+public class VisitorBatchItemResult implements Serializable {
+
+    public enum Status {
+        /** Inserted; {@code id} holds the new id. */
+        CREATED,
+        /** Rejected by validation and not sent to the database. */
+        INVALID,
+        /** Valid but the insert failed. */
+        FAILED
+    }
+
+    private int index;
+    private Status status;
+    private Long id;
+    private String error;
+}
@@ -0,0 +1,18 @@
+package com.mylogo.visitors.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class VisitorBatchResult implements Serializable {
+
+    private int created;
+    private int rejected;
+    private List<VisitorBatchItemResult> results;
+}
@@ -0,0 +1,22 @@
+package com.mylogo.visitors.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Outcome of a bulk state change. Requested visitors that do not exist or were already in the
+ * target state are left out of {@code updatedIds}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class VisitorBulkUpdateResult implements Serializable {
+
+    private int requested;
+    private int updated;
+    private List<Long> updatedIds;
+}
@@ -0,0 +1,15 @@
+package com.mylogo.visitors.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class VisitorIdsRequest {
+
+    private List<Long> ids;
+}
@@ -0,0 +1,27 @@
+package com.mylogo.visitors.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(value = JsonInclude.Include.NON_NULL)
+public class VisitorPage implements Serializable {
+
+    private List<VisitorDTO> content;
+
+    /**
+     * Opaque token to pass back as {@code cursor} for the next page, {@code null} on the last page.
+     */
+    private String nextCursor;
+
+    private int size;
+}
@@ -0,0 +1,58 @@
+package com.mylogo.visitors.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fields supplied to {@code PATCH /visitors/{id}}. A {@code null} field is left unchanged, so a
+ * patch cannot clear a column.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(value = JsonInclude.Include.NON_NULL)
+public class VisitorPatch {
+
+    private String name;
+    private String contactNumber;
+    private String email;
+    private String purpose;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime checkIn;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime checkOut;
+    private Long duration;
+    private Boolean approved;
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return name == null && contactNumber == null && email == null && purpose == null
+                && checkIn == null && checkOut == null && duration == null && approved == null;
+    }
+
+    /**
+     * Copy of {@code visitor} with the supplied fields replaced.
+     */
+    public VisitorDTO applyTo(VisitorDTO visitor) {
+        return new VisitorDTO(visitor.getId(),
+                name != null ? name : visitor.getName(),
+                contactNumber != null ? contactNumber : visitor.getContactNumber(),
+                email != null ? email : visitor.getEmail(),
+                purpose != null ? purpose : visitor.getPurpose(),
+                checkIn != null ? checkIn : visitor.getCheckIn(),
+                checkOut != null ? checkOut : visitor.getCheckOut(),
+                duration != null ? duration : visitor.getDuration(),
+                approved != null ? approved : visitor.isApproved(),
+                visitor.getCreatedDate());
+    }
+}
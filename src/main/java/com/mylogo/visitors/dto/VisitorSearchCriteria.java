@@ -0,0 +1,38 @@
+package com.mylogo.visitors.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters for visitor searches. Every field is optional and the ones that are set are combined with AND.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class VisitorSearchCriteria {
+
+    private Boolean approved;
+    private String purpose;
+
+    /** Inclusive lower bound on check-in. */
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime checkInFrom;
+
+    /** Exclusive upper bound on check-in. */
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime checkInTo;
+
+    /** {@code true} for visitors who checked out, {@code false} for those still on site or never checked out. */
+    private Boolean checkedOut;
+
+    private String namePrefix;
+    private String emailPrefix;
+}
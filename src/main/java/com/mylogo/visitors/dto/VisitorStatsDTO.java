@@ -0,0 +1,29 @@
+package com.mylogo.visitors.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Duration statistics of a set of visitors. Everything but the count and the total is {@code null}
+ * when the set is empty; the percentiles are within 1% of an actual duration.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class VisitorStatsDTO implements Serializable {
+
+    private long visitorCount;
+    private long totalDuration;
+    private Long minDuration;
+    private Long maxDuration;
+    private Double meanDuration;
+    private Double approvedRatio;
+    private Long p50Duration;
+    private Long p90Duration;
+    private Long p99Duration;
+}
@@ -0,0 +1,38 @@
+package com.mylogo.visitors.event;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Change of one visitor, published to Kafka keyed by {@code visitorId} so that all events of a
+ * visitor go to the same partition and are consumed in order.
+ * <p>
+ * {@code payload} depends on the type: the full visitor for {@link VisitorEventType#CREATED} and
+ * {@link VisitorEventType#UPDATED}, the changed fields for in-place updates, and nothing for the rest.
+ * {@code eventId} is unique per event and lets consumers drop redeliveries.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(value = JsonInclude.Include.NON_NULL)
+public class VisitorEvent {
+
+    private String eventId;
+    private VisitorEventType type;
+    private Long visitorId;
+    private Instant occurredAt;
+    private Object payload;
+
+    public static VisitorEvent of(VisitorEventType type, Long visitorId, Object payload) {
+        return new VisitorEvent(UUID.randomUUID().toString(), type, visitorId, Instant.now(), payload);
+    }
+
+    public static VisitorEvent of(VisitorEventType type, Long visitorId) {
+        return of(type, visitorId, null);
+    }
+}
@@ -0,0 +1,29 @@
+package com.mylogo.visitors.event;
+
+public enum VisitorEventType {
+    CREATED,
+    UPDATED,
+    PATCHED,
+    APPROVED,
+    CHECKED_IN,
+    CHECKED_OUT,
+    DELETED,
+    FETCHED(false);
+
+    private final boolean change;
+
+    VisitorEventType() {
+        this(true);
+    }
+
+    VisitorEventType(boolean change) {
+        this.change = change;
+    }
+
+    /**
+     * Whether the event records a change to the visitor table, and so goes through the outbox with it.
+     */
+    public boolean isChange() {
+        return change;
+    }
+}
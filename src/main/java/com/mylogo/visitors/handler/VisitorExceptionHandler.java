@@ -24,6 +24,14 @@ public class VisitorExceptionHandler {
         return new ResponseEntity<>(response.toString(), HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<String> invalidRequestException(InvalidRequestException e) {
+        JSONObject response = new JSONObject();
+        response.put("error", true);
+        response.put("message", e.getMessage());
+        return new ResponseEntity<>(response.toString(), HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(DatabaseOperationException.class)
     public ResponseEntity<String> visitorRetrievalException(DatabaseOperationException e) {
         JSONObject response = new JSONObject();
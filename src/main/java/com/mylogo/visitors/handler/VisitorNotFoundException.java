@@ -1,7 +1,8 @@
 package com.mylogo.visitors.handler;
 
+// Expected outcome of a lookup rather than a fault, so no stack trace is captured
 public class VisitorNotFoundException extends RuntimeException {
     public VisitorNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
\ No newline at end of file
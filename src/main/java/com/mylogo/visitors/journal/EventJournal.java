@@ -0,0 +1,288 @@
+package com.mylogo.visitors.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of opaque records, kept in fixed-size memory-mapped segment files.
+ * <p>
+ * Each record is stored as {@code [length:int][crc32c:int][body]}; the length is written last, so a
+ * record cut short by a crash reads as the end of the segment. When a record does not fit in the
+ * active segment a new one is started. Records are read in append order from a cursor that
+ * {@link #acknowledge(Batch)} moves forward and saves to a {@code checkpoint} file; segments the
+ * cursor has left are deleted.
+ * <p>
+ * On open, every segment is scanned and checksummed. Reading stops at the first torn or corrupt
+ * record of a segment, and the rest of the last segment is cleared so appends continue from there.
+ * Appends are not forced to disk: they survive a crash of the process, not of the host.
+ */
+public class EventJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventJournal.class);
+
+    static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private long readSegment;
+    private int readPosition;
+    private long pending;
+
+    public EventJournal(Path directory, int segmentBytes) throws IOException {
+        if (segmentBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("Journal segments must be larger than " + HEADER_BYTES + " bytes");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        readCheckpoint();
+        recover();
+    }
+
+    /**
+     * @throws IllegalArgumentException when the record can never fit in a segment
+     */
+    public synchronized void append(byte[] record) throws IOException {
+        int size = HEADER_BYTES + record.length;
+        if (size > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + record.length + " bytes exceeds the journal segment size");
+        }
+        if (active.end + size > segmentBytes) {
+            active.buffer.force();
+            active = openSegment(active.index + 1);
+        }
+        MappedByteBuffer buffer = active.buffer;
+        int position = active.end;
+        buffer.put(position + HEADER_BYTES, record);
+        buffer.putInt(position + 4, checksum(record));
+        buffer.putInt(position, record.length);
+        active.end = position + size;
+        pending++;
+    }
+
+    /**
+     * Reads up to {@code max} records from the cursor, without moving it.
+     */
+    public synchronized Batch read(int max) {
+        List<byte[]> records = new ArrayList<>();
+        long segmentIndex = readSegment;
+        int position = readPosition;
+        Segment segment = segments.get(segmentIndex);
+        while (segment != null && records.size() < max) {
+            if (position >= segment.end) {
+                Map.Entry<Long, Segment> next = segments.higherEntry(segment.index);
+                if (next == null) {
+                    break;
+                }
+                segment = next.getValue();
+                segmentIndex = segment.index;
+                position = 0;
+                continue;
+            }
+            int length = segment.buffer.getInt(position);
+            byte[] record = new byte[length];
+            segment.buffer.get(position + HEADER_BYTES, record);
+            records.add(record);
+            position += HEADER_BYTES + length;
+        }
+        return new Batch(records, segmentIndex, position);
+    }
+
+    /**
+     * Moves the cursor past a batch returned by {@link #read(int)} and deletes the segments it has left.
+     */
+    public synchronized void acknowledge(Batch batch) throws IOException {
+        if (batch.records.isEmpty()) {
+            return;
+        }
+        readSegment = batch.segment;
+        readPosition = batch.position;
+        pending -= batch.records.size();
+        writeCheckpoint();
+        while (segments.firstKey() < readSegment) {
+            Segment consumed = segments.pollFirstEntry().getValue();
+            Files.deleteIfExists(consumed.path);
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return pending == 0;
+    }
+
+    /**
+     * Number of records appended and not yet acknowledged.
+     */
+    public synchronized long pending() {
+        return pending;
+    }
+
+    @Override
+    public synchronized void close() {
+        active.buffer.force();
+    }
+
+    private void recover() throws IOException {
+        List<Long> indexes = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> indexes.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        Collections.sort(indexes);
+        for (Long index : indexes) {
+            if (index < readSegment) {
+                Files.deleteIfExists(segmentPath(index));
+                continue;
+            }
+            Segment segment = openSegment(index);
+            boolean last = index.equals(indexes.get(indexes.size() - 1));
+            scan(segment, last);
+        }
+        if (segments.isEmpty()) {
+            openSegment(readSegment);
+            readPosition = 0;
+        } else if (!segments.containsKey(readSegment)) {
+            readSegment = segments.firstKey();
+            readPosition = 0;
+        }
+        active = segments.lastEntry().getValue();
+        if (pending > 0) {
+            logger.info("Recovered {} unsent records from the event journal in {}", pending, directory);
+        }
+    }
+
+    private void scan(Segment segment, boolean last) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        boolean torn = false;
+        while (position + HEADER_BYTES <= segmentBytes) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || position + HEADER_BYTES + length > segmentBytes) {
+                logger.warn("Torn record at offset {} of journal segment {}", position, segment.path);
+                torn = true;
+                break;
+            }
+            byte[] record = new byte[length];
+            buffer.get(position + HEADER_BYTES, record);
+            if (checksum(record) != buffer.getInt(position + 4)) {
+                logger.warn("Checksum mismatch at offset {} of journal segment {}", position, segment.path);
+                torn = true;
+                break;
+            }
+            if (segment.index > readSegment || position >= readPosition) {
+                pending++;
+            }
+            position += HEADER_BYTES + length;
+        }
+        segment.end = position;
+        if (torn && last) {
+            // Later appends must not run into the remains of the torn record
+            buffer.put(position, new byte[segmentBytes - position]);
+        }
+    }
+
+    private Segment openSegment(long index) throws IOException {
+        Path path = segmentPath(index);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            if (file.length() != segmentBytes) {
+                file.setLength(segmentBytes);
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            Segment segment = new Segment(index, path, buffer);
+            segments.put(index, segment);
+            return segment;
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%020d%s", index, SEGMENT_SUFFIX));
+    }
+
+    private void readCheckpoint() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpoint)) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(checkpoint));
+        readSegment = buffer.getLong();
+        readPosition = buffer.getInt();
+    }
+
+    private void writeCheckpoint() throws IOException {
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.write(temp, ByteBuffer.allocate(12).putLong(readSegment).putInt(readPosition).array());
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Records read from the journal, and the cursor position just past them.
+     */
+    public static final class Batch {
+        private final List<byte[]> records;
+        private final long segment;
+        private final int position;
+
+        private Batch(List<byte[]> records, long segment, int position) {
+            this.records = records;
+            this.segment = segment;
+            this.position = position;
+        }
+
+        public List<byte[]> getRecords() {
+            return records;
+        }
+
+        public int size() {
+            return records.size();
+        }
+
+        public boolean isEmpty() {
+            return records.isEmpty();
+        }
+    }
+
+    private static final class Segment {
+        private final long index;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int end;
+
+        private Segment(long index, Path path, MappedByteBuffer buffer) {
+            this.index = index;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+}
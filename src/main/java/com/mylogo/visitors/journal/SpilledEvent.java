@@ -0,0 +1,31 @@
+package com.mylogo.visitors.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A serialized event as kept in the {@link EventJournal}: {@code type\nkey\npayload} in UTF-8, with an
+ * empty key standing for none.
+ */
+@Data
+@AllArgsConstructor
+public class SpilledEvent {
+
+    private String type;
+    private String key;
+    private String payload;
+
+    public byte[] toBytes() {
+        return (type + '\n' + (key == null ? "" : key) + '\n' + payload).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static SpilledEvent fromBytes(byte[] record) {
+        String text = new String(record, StandardCharsets.UTF_8);
+        int typeEnd = text.indexOf('\n');
+        int keyEnd = text.indexOf('\n', typeEnd + 1);
+        String key = text.substring(typeEnd + 1, keyEnd);
+        return new SpilledEvent(text.substring(0, typeEnd), key.isEmpty() ? null : key, text.substring(keyEnd + 1));
+    }
+}
@@ -0,0 +1,39 @@
+package com.mylogo.visitors.pagination;
+
+import java.text.Collator;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * How purposes are compared and grouped, matching the database's case- and accent-insensitive
+ * collation, so that purposes ordered by the database can be grouped in the application.
+ * <p>
+ * Visitors without a purpose are grouped with those whose purpose is "Unknown", and that group
+ * comes last.
+ */
+public final class PurposeOrder {
+
+    public static final String UNKNOWN = "Unknown";
+
+    public static final Comparator<String> COLLATION = collation();
+
+    private PurposeOrder() {
+    }
+
+    public static boolean isUnknown(String purpose) {
+        return purpose == null || COLLATION.compare(purpose, UNKNOWN) == 0;
+    }
+
+    /**
+     * Name of the group a purpose is reported under.
+     */
+    public static String groupOf(String purpose) {
+        return isUnknown(purpose) ? UNKNOWN : purpose;
+    }
+
+    private static Comparator<String> collation() {
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        return collator::compare;
+    }
+}
@@ -0,0 +1,171 @@
+package com.mylogo.visitors.pagination;
+
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.handler.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Position of the last row handed out by a keyset-paginated read.
+ * <p>
+ * The cursor is exchanged with clients as an opaque, URL-safe token. It records the sort
+ * it was issued for, the id of the last row and, for orderings on a nullable column, the
+ * sort key of that row. Rows whose sort key is {@code null} are read after all others,
+ * ordered by id alone.
+ */
+public final class VisitorCursor {
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "|";
+    private static final String NULL_KEY = "n";
+    private static final String VALUE_KEY = "v";
+
+    private final VisitorSort sort;
+    private final Long afterId;
+    private final boolean nullKey;
+    private final String key;
+
+    private VisitorCursor(VisitorSort sort, Long afterId, boolean nullKey, String key) {
+        this.sort = sort;
+        this.afterId = afterId;
+        this.nullKey = nullKey;
+        this.key = key;
+    }
+
+    /**
+     * Cursor positioned before the first row of the given ordering.
+     */
+    public static VisitorCursor start(VisitorSort sort) {
+        return new VisitorCursor(sort, null, false, null);
+    }
+
+    /**
+     * Cursor of the id ordering positioned right after the given id.
+     */
+    public static VisitorCursor afterId(Long id) {
+        return new VisitorCursor(VisitorSort.ID, id, false, null);
+    }
+
+    /**
+     * Cursor positioned right after the given row.
+     */
+    public static VisitorCursor after(VisitorSort sort, Visitor visitor) {
+        switch (sort) {
+            case CHECK_IN:
+                return after(sort, visitor.getId(), visitor.getCheckIn() == null ? null : visitor.getCheckIn().toString());
+            case PURPOSE:
+                return after(sort, visitor.getId(), visitor.getPurpose());
+            case ID:
+            default:
+                return new VisitorCursor(sort, visitor.getId(), false, null);
+        }
+    }
+
+    static VisitorCursor after(VisitorSort sort, Long id, String key) {
+        return new VisitorCursor(sort, id, key == null, key);
+    }
+
+    public static VisitorCursor decode(String token) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Malformed cursor", e);
+        }
+        String[] parts = decoded.split("\\" + SEPARATOR, 4);
+        if (parts.length < 3 || !VERSION.equals(parts[0])) {
+            throw new InvalidRequestException("Malformed cursor");
+        }
+        try {
+            VisitorSort sort = VisitorSort.valueOf(parts[1]);
+            long id = Long.parseLong(parts[2]);
+            if (sort == VisitorSort.ID) {
+                return new VisitorCursor(sort, id, false, null);
+            }
+            if (parts.length < 4 || parts[3].isEmpty()) {
+                throw new InvalidRequestException("Malformed cursor");
+            }
+            if (parts[3].startsWith(NULL_KEY)) {
+                return new VisitorCursor(sort, id, true, null);
+            }
+            if (!parts[3].startsWith(VALUE_KEY)) {
+                throw new InvalidRequestException("Malformed cursor");
+            }
+            VisitorCursor cursor = new VisitorCursor(sort, id, false, parts[3].substring(VALUE_KEY.length()));
+            if (sort == VisitorSort.CHECK_IN) {
+                cursor.checkInKey();
+            }
+            return cursor;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidRequestException("Malformed cursor", e);
+        }
+    }
+
+    public String encode() {
+        if (afterId == null) {
+            throw new IllegalStateException("A start cursor cannot be encoded");
+        }
+        StringBuilder builder = new StringBuilder()
+                .append(VERSION).append(SEPARATOR)
+                .append(sort.name()).append(SEPARATOR)
+                .append(afterId);
+        if (sort != VisitorSort.ID) {
+            builder.append(SEPARATOR).append(nullKey ? NULL_KEY : VALUE_KEY + key);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public VisitorSort getSort() {
+        return sort;
+    }
+
+    /**
+     * Id of the last row read, or {@code null} for a start cursor.
+     */
+    public Long getAfterId() {
+        return afterId;
+    }
+
+    public boolean isStart() {
+        return afterId == null;
+    }
+
+    /**
+     * Whether the last row read had a {@code null} sort key, i.e. the read has moved on to
+     * the trailing section ordered by id only.
+     */
+    public boolean isNullKey() {
+        return nullKey;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public LocalDateTime checkInKey() {
+        return key == null ? null : LocalDateTime.parse(key);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof VisitorCursor)) {
+            return false;
+        }
+        VisitorCursor that = (VisitorCursor) o;
+        return nullKey == that.nullKey && sort == that.sort
+                && Objects.equals(afterId, that.afterId) && Objects.equals(key, that.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sort, afterId, nullKey, key);
+    }
+}
@@ -0,0 +1,39 @@
+package com.mylogo.visitors.pagination;
+
+import com.mylogo.visitors.handler.InvalidRequestException;
+
+import java.util.Locale;
+
+/**
+ * Orderings supported by the keyset-paginated visitor endpoints.
+ * Every ordering ends with the primary key so that positions are unique.
+ */
+public enum VisitorSort {
+
+    /** Ordered by {@code id}. */
+    ID,
+
+    /** Ordered by {@code (check_in, id)} with visitors that never checked in last. */
+    CHECK_IN,
+
+    /**
+     * Ordered by {@code (purpose, id)} with visitors without a purpose, then those whose purpose is
+     * "Unknown", last; see {@link PurposeOrder}.
+     */
+    PURPOSE;
+
+    public static VisitorSort fromParameter(String value) {
+        if (value == null || value.isBlank()) {
+            return ID;
+        }
+        String normalized = value.trim().replace("-", "_").toUpperCase(Locale.ROOT);
+        if ("CHECKIN".equals(normalized)) {
+            return CHECK_IN;
+        }
+        try {
+            return VisitorSort.valueOf(normalized);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Unsupported sort: " + value);
+        }
+    }
+}
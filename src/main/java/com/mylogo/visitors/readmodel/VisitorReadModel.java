@@ -0,0 +1,128 @@
+package com.mylogo.visitors.readmodel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mylogo.visitors.convertor.VisitorConverter;
+import com.mylogo.visitors.dto.VisitorDTO;
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.event.VisitorEvent;
+import com.mylogo.visitors.repository.VisitorRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of visitor state, loaded from the database at startup and then kept current by
+ * applying the visitor events this replica consumes.
+ * <p>
+ * Events carrying the full visitor replace the entry, in-place updates are applied to it, and deletes
+ * remove it. An update to a visitor the view does not hold is skipped. Delivery is at least once, so
+ * the ids of the last {@code visitor.read-model.dedup-capacity} applied events are remembered and a
+ * redelivered event is ignored. The view lags the database by the consumer lag.
+ * <p>
+ * Not used to serve reads yet: the API reads visitors from the database through the visitor cache,
+ * and {@link #find(Long)} has no caller outside the tests.
+ */
+@Component
+public class VisitorReadModel {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitorReadModel.class);
+
+    private final ObjectMapper objectMapper;
+    private final VisitorRepository visitorRepository;
+    private final int loadPageSize;
+    private final Map<Long, VisitorDTO> visitors = new ConcurrentHashMap<>();
+    private final Cache<String, Boolean> appliedEventIds;
+    private final Counter duplicates;
+
+    public VisitorReadModel(ObjectMapper objectMapper, VisitorRepository visitorRepository, MeterRegistry meterRegistry,
+                            @Value("${visitor.read-model.dedup-capacity:100000}") long dedupCapacity,
+                            @Value("${visitor.read-model.load-page-size:5000}") int loadPageSize) {
+        this.objectMapper = objectMapper;
+        this.visitorRepository = visitorRepository;
+        this.loadPageSize = loadPageSize;
+        this.appliedEventIds = Caffeine.newBuilder().maximumSize(dedupCapacity).build();
+        this.duplicates = meterRegistry.counter("visitor.read-model.duplicates");
+        Gauge.builder("visitor.read-model.size", visitors, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Reads every visitor from the database in id-ordered pages. Called before any event is consumed.
+     */
+    public void load() {
+        PageRequest pageRequest = PageRequest.of(0, loadPageSize);
+        List<Visitor> page = visitorRepository.findFirstPageById(pageRequest);
+        while (!page.isEmpty()) {
+            page.forEach(visitor -> visitors.put(visitor.getId(), VisitorConverter.toDTO(visitor)));
+            if (page.size() < loadPageSize) {
+                break;
+            }
+            page = visitorRepository.findPageAfterId(page.get(page.size() - 1).getId(), pageRequest);
+        }
+        logger.info("Loaded {} visitors into the read model", visitors.size());
+    }
+
+    public Optional<VisitorDTO> find(Long id) {
+        return Optional.ofNullable(visitors.get(id));
+    }
+
+    public int size() {
+        return visitors.size();
+    }
+
+    /**
+     * Applies one event, unless an event with the same id was already applied.
+     *
+     * @return whether the view was changed
+     */
+    public boolean apply(VisitorEvent event) {
+        if (event.getEventId() != null && appliedEventIds.getIfPresent(event.getEventId()) != null) {
+            duplicates.increment();
+            logger.debug("Skipping redelivered event {}", event.getEventId());
+            return false;
+        }
+        boolean changed = applyChange(event);
+        if (event.getEventId() != null) {
+            // Redeliveries come from the same partition, so no other thread applies this id meanwhile
+            appliedEventIds.put(event.getEventId(), Boolean.TRUE);
+        }
+        return changed;
+    }
+
+    private boolean applyChange(VisitorEvent event) {
+        Long id = event.getVisitorId();
+        if (id == null) {
+            return false;
+        }
+        switch (event.getType()) {
+            case CREATED:
+            case UPDATED:
+                VisitorDTO visitor = objectMapper.convertValue(event.getPayload(), VisitorDTO.class);
+                visitor.setId(id);
+                visitors.put(id, visitor);
+                return true;
+            case PATCHED:
+            case APPROVED:
+            case CHECKED_IN:
+            case CHECKED_OUT:
+                VisitorPatch patch = objectMapper.convertValue(event.getPayload(), VisitorPatch.class);
+                return visitors.computeIfPresent(id, (key, current) -> patch.applyTo(current)) != null;
+            case DELETED:
+                return visitors.remove(id) != null;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.mylogo.visitors.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * The id and check-in time a bulk check-out needs to work out each visit's duration.
+ */
+public interface VisitCheckIn {
+
+    Long getId();
+
+    LocalDateTime getCheckIn();
+}
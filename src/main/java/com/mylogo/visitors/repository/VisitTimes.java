@@ -0,0 +1,15 @@
+package com.mylogo.visitors.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns a check-out needs, read without loading the whole visitor.
+ */
+public interface VisitTimes {
+
+    LocalDateTime getCheckIn();
+
+    LocalDateTime getCheckOut();
+
+    long getDuration();
+}
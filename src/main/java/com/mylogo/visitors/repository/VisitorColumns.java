@@ -0,0 +1,21 @@
+package com.mylogo.visitors.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns the analytics endpoints aggregate over, read without loading whole visitors.
+ */
+public interface VisitorColumns {
+
+    Long getId();
+
+    long getDuration();
+
+    LocalDateTime getCheckIn();
+
+    boolean isApproved();
+
+    String getPurpose();
+
+    String getContactNumber();
+}
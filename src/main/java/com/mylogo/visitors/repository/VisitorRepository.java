@@ -1,10 +1,147 @@
 package com.mylogo.visitors.repository;
 
+import com.mylogo.visitors.dto.PurposeSummaryDTO;
 import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.pagination.PurposeOrder;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface VisitorRepository extends JpaRepository<Visitor,Long> {
+public interface VisitorRepository extends JpaRepository<Visitor,Long>, JpaSpecificationExecutor<Visitor>,
+        VisitorRepositoryCustom {
+
+    // Keyset pagination on id. Only the page size of the Pageable is used.
+
+    @Query("select v from Visitor v order by v.id asc")
+    List<Visitor> findFirstPageById(Pageable pageable);
+
+    @Query("select v from Visitor v where v.id > :afterId order by v.id asc")
+    List<Visitor> findPageAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Keyset pagination on (check_in, id): rows with a check-in first, then the rest by id.
+
+    @Query("select v from Visitor v where v.checkIn is not null order by v.checkIn asc, v.id asc")
+    List<Visitor> findFirstPageByCheckIn(Pageable pageable);
+
+    @Query("select v from Visitor v where v.checkIn >= :checkIn and (v.checkIn > :checkIn or v.id > :afterId) "
+            + "order by v.checkIn asc, v.id asc")
+    List<Visitor> findPageAfterCheckIn(@Param("checkIn") LocalDateTime checkIn, @Param("afterId") Long afterId,
+                                       Pageable pageable);
+
+    @Query("select v from Visitor v where v.checkIn is null order by v.id asc")
+    List<Visitor> findFirstPageWithoutCheckIn(Pageable pageable);
+
+    @Query("select v from Visitor v where v.checkIn is null and v.id > :afterId order by v.id asc")
+    List<Visitor> findPageWithoutCheckInAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Keyset pagination on (purpose, id): rows with a purpose first, then those without one by id, then
+    // those whose purpose is "Unknown" by id, so that the two sections reported as "Unknown" are adjacent.
+    // Purposes compare with the column's collation, so "Unknown" also matches other cases of it.
+
+    @Query("select v from Visitor v where v.purpose is not null and v.purpose <> '" + PurposeOrder.UNKNOWN + "' "
+            + "order by v.purpose asc, v.id asc")
+    List<Visitor> findFirstPageByPurpose(Pageable pageable);
+
+    @Query("select v from Visitor v where v.purpose >= :purpose and (v.purpose > :purpose or v.id > :afterId) "
+            + "and v.purpose <> '" + PurposeOrder.UNKNOWN + "' order by v.purpose asc, v.id asc")
+    List<Visitor> findPageAfterPurpose(@Param("purpose") String purpose, @Param("afterId") Long afterId,
+                                       Pageable pageable);
+
+    @Query("select v from Visitor v where v.purpose is null order by v.id asc")
+    List<Visitor> findFirstPageWithoutPurpose(Pageable pageable);
+
+    @Query("select v from Visitor v where v.purpose is null and v.id > :afterId order by v.id asc")
+    List<Visitor> findPageWithoutPurposeAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select v from Visitor v where v.purpose = '" + PurposeOrder.UNKNOWN + "' order by v.id asc")
+    List<Visitor> findFirstPageWithUnknownPurpose(Pageable pageable);
+
+    @Query("select v from Visitor v where v.purpose = '" + PurposeOrder.UNKNOWN + "' and v.id > :afterId "
+            + "order by v.id asc")
+    List<Visitor> findPageWithUnknownPurposeAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Keyset pagination over distinct contact numbers.
+
+    @Query("select distinct v.contactNumber from Visitor v where v.contactNumber is not null "
+            + "order by v.contactNumber asc")
+    List<String> findFirstContactNumbers(Pageable pageable);
+
+    @Query("select distinct v.contactNumber from Visitor v where v.contactNumber > :after order by v.contactNumber asc")
+    List<String> findContactNumbersAfter(@Param("after") String after, Pageable pageable);
+
+    // Set-based state changes. Callers lock the rows with the matching select first, in the same
+    // transaction, so they know exactly which visitors changed.
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select v.id from Visitor v where v.id in :ids and v.approved = false")
+    List<Long> lockUnapprovedIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update Visitor v set v.approved = true where v.id in :ids")
+    int approveByIds(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select v.id as id, v.checkIn as checkIn from Visitor v "
+            + "where v.id in :ids and v.checkOut is null and v.checkIn is not null")
+    List<VisitCheckIn> lockCheckedInNotCheckedOut(@Param("ids") Collection<Long> ids);
+
+    // Whole hours since check-in, the unit of the duration column, as VisitorService.visitHours computes them
+    @Modifying
+    @Query(value = "update visitors set check_out = :checkOut, "
+            + "duration = greatest(0, timestampdiff(HOUR, check_in, :checkOut)) "
+            + "where id in :ids and check_in is not null and check_out is null", nativeQuery = true)
+    int checkOutByIds(@Param("ids") Collection<Long> ids, @Param("checkOut") LocalDateTime checkOut);
+
+    // Kiosk check-in and check-out
+
+    @Modifying
+    @Query("update Visitor v set v.checkIn = :checkIn, v.approved = true where v.id = :id and v.checkIn is null")
+    int checkIn(@Param("id") Long id, @Param("checkIn") LocalDateTime checkIn);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select v.checkIn as checkIn, v.checkOut as checkOut, v.duration as duration from Visitor v where v.id = :id")
+    Optional<VisitTimes> lockVisitTimes(@Param("id") Long id);
+
+    @Modifying
+    @Query("update Visitor v set v.checkOut = :checkOut, v.duration = :duration where v.id = :id")
+    int checkOut(@Param("id") Long id, @Param("checkOut") LocalDateTime checkOut, @Param("duration") long duration);
+
+    // Visitors on site: checked in and not checked out
+
+    @Query("select v.id from Visitor v where v.checkOut is null and v.checkIn is not null order by v.id asc")
+    List<Long> findOnSiteIds();
+
+    @Query("select v.id from Visitor v where v.id in :ids and v.checkOut is null and v.checkIn is not null")
+    List<Long> findOnSiteIdsIn(@Param("ids") Collection<Long> ids);
+
+    // Analytics columns, in id order
+
+    @Query("select v.id as id, v.duration as duration, v.checkIn as checkIn, v.approved as approved, "
+            + "v.purpose as purpose, v.contactNumber as contactNumber from Visitor v where v.id > :afterId order by v.id asc")
+    List<VisitorColumns> findColumnsAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select v.id as id, v.duration as duration, v.checkIn as checkIn, v.approved as approved, "
+            + "v.purpose as purpose, v.contactNumber as contactNumber from Visitor v where v.id in :ids")
+    List<VisitorColumns> findColumnsByIds(@Param("ids") Collection<Long> ids);
+
+    // Aggregates
+
+    @Query("select new com.mylogo.visitors.dto.PurposeSummaryDTO(v.purpose, count(v), coalesce(sum(v.duration), 0)) "
+            + "from Visitor v group by v.purpose order by v.purpose asc")
+    List<PurposeSummaryDTO> summarizeByPurpose();
 
+    @Query("select coalesce(sum(v.duration), 0) from Visitor v")
+    long sumDuration();
 }
@@ -0,0 +1,31 @@
+package com.mylogo.visitors.repository;
+
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.entity.Visitor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface VisitorRepositoryCustom {
+
+    /**
+     * First {@code limit} visitors matching the specification in the given order. Unlike
+     * {@code findAll(Specification, Pageable)} this never issues a count query.
+     */
+    List<Visitor> findLimited(Specification<Visitor> spec, Sort sort, int limit);
+
+    /**
+     * Sum of {@code duration} over the visitors matching the specification. Built per call so that only the
+     * filters actually supplied reach the SQL, keeping the predicate usable by an index.
+     */
+    long sumDuration(Specification<Visitor> spec);
+
+    /**
+     * Writes the supplied fields of one visitor with a single UPDATE that names only those columns,
+     * without loading the row.
+     *
+     * @return the number of rows updated, {@code 0} when the visitor does not exist
+     */
+    int patch(Long id, VisitorPatch patch);
+}
@@ -0,0 +1,72 @@
+package com.mylogo.visitors.repository;
+
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.entity.Visitor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+
+public class VisitorRepositoryImpl implements VisitorRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Visitor> findLimited(Specification<Visitor> spec, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Visitor> query = cb.createQuery(Visitor.class);
+        Root<Visitor> root = query.from(Visitor.class);
+        query.select(root).where(spec.toPredicate(root, query, cb));
+
+        List<Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            orders.add(order.isAscending() ? cb.asc(root.get(order.getProperty())) : cb.desc(root.get(order.getProperty())));
+        }
+        query.orderBy(orders);
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public long sumDuration(Specification<Visitor> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Visitor> root = query.from(Visitor.class);
+        query.select(cb.coalesce(cb.sum(root.<Long>get("duration")), 0L)).where(spec.toPredicate(root, query, cb));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    @Transactional
+    public int patch(Long id, VisitorPatch patch) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Visitor> update = cb.createCriteriaUpdate(Visitor.class);
+        Root<Visitor> root = update.from(Visitor.class);
+        setIfPresent(update, "name", patch.getName());
+        setIfPresent(update, "contactNumber", patch.getContactNumber());
+        setIfPresent(update, "email", patch.getEmail());
+        setIfPresent(update, "purpose", patch.getPurpose());
+        setIfPresent(update, "checkIn", patch.getCheckIn());
+        setIfPresent(update, "checkOut", patch.getCheckOut());
+        setIfPresent(update, "duration", patch.getDuration());
+        setIfPresent(update, "approved", patch.getApproved());
+        update.where(cb.equal(root.get("id"), id));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    private static void setIfPresent(CriteriaUpdate<Visitor> update, String attribute, Object value) {
+        if (value != null) {
+            update.set(attribute, value);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.mylogo.visitors.repository;
+
+import com.mylogo.visitors.dto.VisitorSearchCriteria;
+import com.mylogo.visitors.entity.Visitor;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds visitor queries from {@link VisitorSearchCriteria}. Only sargable predicates are used
+ * (equality, ranges and prefix LIKE) so the database can serve each filter from an index.
+ */
+public final class VisitorSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private VisitorSpecifications() {
+    }
+
+    public static Specification<Visitor> matching(VisitorSearchCriteria criteria) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (criteria.getApproved() != null) {
+                predicates.add(cb.equal(root.get("approved"), criteria.getApproved()));
+            }
+            if (criteria.getPurpose() != null) {
+                predicates.add(cb.equal(root.get("purpose"), criteria.getPurpose()));
+            }
+            if (criteria.getCheckInFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("checkIn"), criteria.getCheckInFrom()));
+            }
+            if (criteria.getCheckInTo() != null) {
+                predicates.add(cb.lessThan(root.get("checkIn"), criteria.getCheckInTo()));
+            }
+            if (criteria.getCheckedOut() != null) {
+                predicates.add(criteria.getCheckedOut()
+                        ? cb.isNotNull(root.get("checkOut"))
+                        : cb.isNull(root.get("checkOut")));
+            }
+            if (criteria.getNamePrefix() != null) {
+                predicates.add(cb.like(root.get("name"), likePrefix(criteria.getNamePrefix()), LIKE_ESCAPE));
+            }
+            if (criteria.getEmailPrefix() != null) {
+                predicates.add(cb.like(root.get("email"), likePrefix(criteria.getEmailPrefix()), LIKE_ESCAPE));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    public static Specification<Visitor> idGreaterThan(Long id) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), id);
+    }
+
+    static String likePrefix(String prefix) {
+        StringBuilder pattern = new StringBuilder(prefix.length() + 1);
+        for (char c : prefix.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+}
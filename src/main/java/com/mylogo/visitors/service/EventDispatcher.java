@@ -0,0 +1,201 @@
+package com.mylogo.visitors.service;
+
+import com.mylogo.visitors.event.VisitorEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands events that are not recorded in the outbox to Kafka from a fixed set of worker threads, so
+ * callers never wait on the producer.
+ * <p>
+ * The queue holds at most {@code visitor.events.dispatch.capacity} events. Enqueueing takes a permit with
+ * a compare-and-set and adds to a lock-free queue; only the {@code block} policy ever waits. When the
+ * queue is full the policy decides what happens to the event:
+ * <ul>
+ *     <li>{@code drop} discards it,</li>
+ *     <li>{@code block} waits up to {@code visitor.events.dispatch.block-timeout-ms} for room, then discards it,</li>
+ *     <li>{@code spill} writes it to {@code visitor_outbox} in its own transaction, for {@link OutboxRelay} to send.</li>
+ * </ul>
+ * Published meters: {@code visitor.events.dispatch.depth}, the {@code visitor.events.dispatch.latency}
+ * timer from enqueue to hand-off to the producer, and {@code visitor.events.dispatch.rejected} tagged
+ * {@code outcome=dropped|spilled}.
+ */
+@Component
+public class EventDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventDispatcher.class);
+
+    private static final long POLL_MS = 100;
+
+    public enum OverflowPolicy {
+        DROP,
+        BLOCK,
+        SPILL
+    }
+
+    private final VisitorEventProducer kafkaProducer;
+    private final OutboxWriter outboxWriter;
+    private final TransactionTemplate spillTransaction;
+    private final OverflowPolicy policy;
+    private final long blockTimeoutMs;
+
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final Semaphore free;
+    private final Semaphore ready = new Semaphore(0);
+    private final AtomicInteger depth = new AtomicInteger();
+    private final ExecutorService workers;
+    private volatile boolean running = true;
+
+    private final Timer latency;
+    private final Counter dropped;
+    private final Counter spilled;
+
+    public EventDispatcher(VisitorEventProducer kafkaProducer, OutboxWriter outboxWriter,
+                           PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                           @Value("${visitor.events.dispatch.capacity:10000}") int capacity,
+                           @Value("${visitor.events.dispatch.workers:2}") int workerCount,
+                           @Value("${visitor.events.dispatch.policy:drop}") String policy,
+                           @Value("${visitor.events.dispatch.block-timeout-ms:50}") long blockTimeoutMs) {
+        if (capacity < 1 || workerCount < 1) {
+            throw new IllegalArgumentException("Event dispatch capacity and workers must be at least 1");
+        }
+        this.kafkaProducer = kafkaProducer;
+        this.outboxWriter = outboxWriter;
+        this.spillTransaction = new TransactionTemplate(transactionManager);
+        // A spilled event is kept even if the caller's transaction rolls back, like a sent one would be
+        this.spillTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.policy = OverflowPolicy.valueOf(policy.toUpperCase(Locale.ROOT));
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.free = new Semaphore(capacity);
+
+        Gauge.builder("visitor.events.dispatch.depth", depth, AtomicInteger::get).register(meterRegistry);
+        this.latency = meterRegistry.timer("visitor.events.dispatch.latency");
+        this.dropped = meterRegistry.counter("visitor.events.dispatch.rejected", "outcome", "dropped");
+        this.spilled = meterRegistry.counter("visitor.events.dispatch.rejected", "outcome", "spilled");
+
+        this.workers = Executors.newFixedThreadPool(workerCount, new CustomizableThreadFactory("visitor-events-"));
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::work);
+        }
+    }
+
+    /**
+     * Queues an event for sending. Never throws; an event that does not fit is handled by the overflow policy.
+     */
+    public void dispatch(VisitorEvent event) {
+        if (!running || !reserve()) {
+            overflow(event);
+            return;
+        }
+        queue.offer(new Pending(event, System.nanoTime()));
+        depth.incrementAndGet();
+        ready.release();
+    }
+
+    public int depth() {
+        return depth.get();
+    }
+
+    private boolean reserve() {
+        if (free.tryAcquire()) {
+            return true;
+        }
+        if (policy != OverflowPolicy.BLOCK) {
+            return false;
+        }
+        try {
+            return free.tryAcquire(blockTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void overflow(VisitorEvent event) {
+        if (policy == OverflowPolicy.SPILL) {
+            try {
+                spillTransaction.executeWithoutResult(status -> outboxWriter.insert(List.of(event)));
+                spilled.increment();
+                return;
+            } catch (Exception e) {
+                logger.error("Failed to spill {} event {} to the outbox", event.getType(), event.getEventId(), e);
+            }
+        }
+        dropped.increment();
+        logger.warn("Event dispatch queue full, dropped {} event {} for visitor ID: {}", event.getType(),
+                event.getEventId(), event.getVisitorId());
+    }
+
+    private void work() {
+        while (running || depth.get() > 0) {
+            try {
+                if (!ready.tryAcquire(POLL_MS, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            Pending pending = queue.poll();
+            depth.decrementAndGet();
+            free.release();
+            try {
+                kafkaProducer.publish(pending.event);
+            } catch (Exception e) {
+                logger.error("Failed to hand {} event {} to the producer", pending.event.getType(),
+                        pending.event.getEventId(), e);
+            }
+            latency.record(System.nanoTime() - pending.enqueuedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops accepting events and gives the workers a few seconds to send what is queued.
+     */
+    @PreDestroy
+    public void shutdown() {
+        logger.info("Shutting down event dispatcher with {} queued events", depth.get());
+        running = false;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Event dispatcher stopped with {} events unsent", depth.get());
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+    }
+
+    private static final class Pending {
+        private final VisitorEvent event;
+        private final long enqueuedAt;
+
+        private Pending(VisitorEvent event, long enqueuedAt) {
+            this.event = event;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
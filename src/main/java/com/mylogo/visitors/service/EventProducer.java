@@ -1,6 +1,29 @@
 package com.mylogo.visitors.service;
 
 
+import com.mylogo.visitors.event.VisitorEvent;
+
+import java.util.List;
+
 public interface EventProducer {
+
+    /**
+     * Publishes an event keyed by its visitor id. Change events are recorded in the caller's transaction,
+     * and a failure to record one is thrown so that the change rolls back with it; other events are sent
+     * directly and never throw.
+     */
+    void publish(VisitorEvent event);
+
+    default void publishAll(List<VisitorEvent> events) {
+        for (VisitorEvent event : events) {
+            publish(event);
+        }
+    }
+
+    /**
+     * @deprecated unkeyed, so the message may be consumed out of order with the visitor's other events;
+     * use {@link #publish(VisitorEvent)}
+     */
+    @Deprecated
     void produceVisitorEvent(String message);
 }
@@ -0,0 +1,77 @@
+package com.mylogo.visitors.service;
+
+import com.mylogo.visitors.journal.EventJournal;
+import com.mylogo.visitors.journal.SpilledEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends the events {@link VisitorEventProducer} journaled while Kafka was unavailable, oldest first.
+ * <p>
+ * Each batch is sent, flushed and acknowledged by the broker before the journal cursor moves past it,
+ * so a failure or a restart resends the batch. Publishes the {@code visitor.events.journal.pending}
+ * gauge and the {@code visitor.events.journal.replayed} counter.
+ */
+@Component
+public class JournalReplayer {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalReplayer.class);
+
+    private final EventJournal journal;
+    private final VisitorEventProducer kafkaProducer;
+    private final Counter replayed;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+
+    public JournalReplayer(EventJournal journal, VisitorEventProducer kafkaProducer, MeterRegistry meterRegistry,
+                           @Value("${visitor.events.journal.replay-batch-size:500}") int batchSize,
+                           @Value("${visitor.events.journal.send-timeout-ms:30000}") long sendTimeoutMs) {
+        this.journal = journal;
+        this.kafkaProducer = kafkaProducer;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.replayed = meterRegistry.counter("visitor.events.journal.replayed");
+        Gauge.builder("visitor.events.journal.pending", journal, EventJournal::pending).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${visitor.events.journal.replay-interval-ms:1000}")
+    public void replay() {
+        if (journal.isEmpty() || !kafkaProducer.isAvailable()) {
+            return;
+        }
+        try {
+            EventJournal.Batch batch;
+            do {
+                batch = journal.read(batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                List<ListenableFuture<SendResult<String, String>>> acks = new ArrayList<>(batch.size());
+                for (byte[] record : batch.getRecords()) {
+                    SpilledEvent event = SpilledEvent.fromBytes(record);
+                    acks.add(kafkaProducer.send(event.getType(), event.getKey(), event.getPayload()));
+                }
+                kafkaProducer.flush();
+                VisitorEventProducer.awaitAll(acks, sendTimeoutMs);
+                journal.acknowledge(batch);
+                replayed.increment(batch.size());
+            } while (batch.size() == batchSize);
+            logger.info("Replayed the event journal; {} events left", journal.pending());
+        } catch (Exception e) {
+            kafkaProducer.markUnavailable();
+            logger.warn("Failed to replay the event journal; {} events are kept for the next attempt",
+                    journal.pending(), e);
+        }
+    }
+}
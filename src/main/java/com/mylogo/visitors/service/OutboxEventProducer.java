@@ -0,0 +1,86 @@
+package com.mylogo.visitors.service;
+
+import com.mylogo.visitors.event.VisitorEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Publishes visitor change events through the {@code visitor_outbox} table.
+ * <p>
+ * The event row is inserted on the caller's transaction, so it commits or rolls back together with
+ * the visitor change it describes, and the request never waits on Kafka. {@link OutboxRelay} sends
+ * the committed rows in order. Events that do not describe a change, such as
+ * {@link com.mylogo.visitors.event.VisitorEventType#FETCHED}, are handed to the {@link EventDispatcher}.
+ */
+@Primary
+@Service
+public class OutboxEventProducer implements EventProducer {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxEventProducer.class);
+
+    private final OutboxWriter outboxWriter;
+    private final EventDispatcher dispatcher;
+    private final VisitorEventProducer kafkaProducer;
+    private final EntityManager entityManager;
+
+    public OutboxEventProducer(OutboxWriter outboxWriter, EventDispatcher dispatcher,
+                               VisitorEventProducer kafkaProducer, EntityManager entityManager) {
+        this.outboxWriter = outboxWriter;
+        this.dispatcher = dispatcher;
+        this.kafkaProducer = kafkaProducer;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public void publish(VisitorEvent event) {
+        if (!event.getType().isChange()) {
+            dispatcher.dispatch(event);
+            return;
+        }
+        beforeInsert();
+        outboxWriter.insert(List.of(event));
+        logger.debug("Queued {} event {} for visitor ID: {}", event.getType(), event.getEventId(), event.getVisitorId());
+    }
+
+    @Override
+    public void publishAll(List<VisitorEvent> events) {
+        List<VisitorEvent> changes = new ArrayList<>(events.size());
+        for (VisitorEvent event : events) {
+            if (event.getType().isChange()) {
+                changes.add(event);
+            } else {
+                dispatcher.dispatch(event);
+            }
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        beforeInsert();
+        outboxWriter.insert(changes);
+        logger.info("Queued {} events", changes.size());
+    }
+
+    @Override
+    @Deprecated
+    public void produceVisitorEvent(String message) {
+        kafkaProducer.produceVisitorEvent(message);
+    }
+
+    private void beforeInsert() {
+        // Outside a transaction the row would commit on its own, and could outlive a change that rolls back
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalTransactionStateException("Visitor change events must be published inside the transaction of the change");
+        }
+        // Writing the change first takes its row locks before the outbox id is drawn, so two changes of one
+        // visitor get outbox ids in the order they commit
+        entityManager.flush();
+    }
+}
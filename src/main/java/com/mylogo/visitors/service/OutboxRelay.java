@@ -0,0 +1,130 @@
+package com.mylogo.visitors.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sends the rows of {@code visitor_outbox} to Kafka, oldest first, and deletes them once acknowledged.
+ * <p>
+ * Each batch is read with {@code FOR UPDATE} in id order, sent without waiting between records, flushed,
+ * and deleted by id only after every record of the batch was acknowledged. The lock keeps replicas from
+ * relaying the same rows concurrently, so a visitor's events reach its partition in commit order. When a
+ * send fails the transaction rolls back and the whole batch is retried on the next poll; delivery is
+ * therefore at least once, and consumers drop duplicates by {@code eventId}.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private static final String SELECT_SQL = "SELECT id, event_type, visitor_id, payload FROM visitor_outbox "
+            + "ORDER BY id LIMIT ? FOR UPDATE";
+    private static final String DELETE_SQL = "DELETE FROM visitor_outbox WHERE id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final VisitorEventProducer kafkaProducer;
+    private final Counter relayed;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                       VisitorEventProducer kafkaProducer, MeterRegistry meterRegistry,
+                       @Value("${visitor.outbox.batch-size:500}") int batchSize,
+                       @Value("${visitor.outbox.send-timeout-ms:30000}") long sendTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Without gap locks, inserts of new events never wait for a batch that is being sent
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.kafkaProducer = kafkaProducer;
+        this.relayed = meterRegistry.counter("visitor.outbox.relayed");
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    /**
+     * Drains the outbox, one batch after another while batches come back full. Does nothing while
+     * {@link VisitorEventProducer#isAvailable()} is false, and a failed batch makes it false.
+     */
+    @Scheduled(initialDelayString = "${visitor.outbox.poll-interval-ms:200}",
+            fixedDelayString = "${visitor.outbox.poll-interval-ms:200}")
+    public void relay() {
+        if (!kafkaProducer.isAvailable()) {
+            return;
+        }
+        try {
+            int sent;
+            do {
+                sent = relayBatch();
+            } while (sent == batchSize);
+        } catch (Exception e) {
+            kafkaProducer.markUnavailable();
+            logger.error("Failed to relay visitor outbox; the batch stays queued for the next poll", e);
+        }
+    }
+
+    /**
+     * Sends and deletes the oldest batch of outbox rows in one transaction.
+     *
+     * @return the number of events sent
+     */
+    int relayBatch() {
+        Integer sent = transactionTemplate.execute(status -> {
+            List<OutboxRow> rows = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> new OutboxRow(rs.getLong("id"),
+                    rs.getString("event_type"), rs.getObject("visitor_id", Long.class), rs.getString("payload")),
+                    batchSize);
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            List<ListenableFuture<SendResult<String, String>>> acks = new ArrayList<>(rows.size());
+            List<Long> ids = new ArrayList<>(rows.size());
+            for (OutboxRow row : rows) {
+                String key = row.visitorId == null ? null : String.valueOf(row.visitorId);
+                acks.add(kafkaProducer.send(row.eventType, key, row.payload));
+                ids.add(row.id);
+            }
+            kafkaProducer.flush();
+            VisitorEventProducer.awaitAll(acks, sendTimeoutMs);
+            // By id rather than by range: a lower id can commit after this batch was read
+            namedJdbcTemplate.update(DELETE_SQL, Collections.singletonMap("ids", ids));
+            return rows.size();
+        });
+        if (sent != null && sent > 0) {
+            relayed.increment(sent);
+            logger.debug("Relayed {} visitor events", sent);
+        }
+        return sent == null ? 0 : sent;
+    }
+
+    private static final class OutboxRow {
+        private final long id;
+        private final String eventType;
+        private final Long visitorId;
+        private final String payload;
+
+        private OutboxRow(long id, String eventType, Long visitorId, String payload) {
+            this.id = id;
+            this.eventType = eventType;
+            this.visitorId = visitorId;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.mylogo.visitors.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mylogo.visitors.event.VisitorEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inserts events into {@code visitor_outbox} on the current transaction, for {@link OutboxRelay} to send.
+ */
+@Component
+public class OutboxWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO visitor_outbox (event_id, event_type, visitor_id, payload, created_at) "
+            + "VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OutboxWriter(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @throws IllegalArgumentException when an event cannot be serialized; nothing is inserted
+     */
+    public void insert(List<VisitorEvent> events) {
+        if (events.size() == 1) {
+            jdbcTemplate.update(INSERT_SQL, row(events.get(0)));
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (VisitorEvent event : events) {
+            rows.add(row(event));
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    private Object[] row(VisitorEvent event) {
+        try {
+            return new Object[]{event.getEventId(), event.getType().name(), event.getVisitorId(),
+                    objectMapper.writeValueAsString(event), Timestamp.from(event.getOccurredAt())};
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize " + event.getType() + " event for visitor ID: "
+                    + event.getVisitorId(), e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.mylogo.visitors.service;
+
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.repository.VisitTimes;
+
+import java.util.List;
+
+/**
+ * Callback for components that keep derived state (totals, sketches, indexes) in step with
+ * visitor writes, so they never have to rescan the visitors table.
+ * <p>
+ * Listeners receive detached snapshots and must not modify them.
+ */
+public interface VisitorChangeListener {
+
+    /**
+     * A visitor was created ({@code previous == null}) or replaced.
+     */
+    default void onVisitorSaved(Visitor previous, Visitor current) {
+    }
+
+    /**
+     * Several visitors were created at once. Listeners that talk to an external store should
+     * override this to apply the batch in one call.
+     */
+    default void onVisitorsCreated(List<Visitor> created) {
+        for (Visitor visitor : created) {
+            onVisitorSaved(null, visitor);
+        }
+    }
+
+    /**
+     * Several visitors were changed in place by a set-based UPDATE, which never loads the rows.
+     * Only the ids are known; a bulk check-out also sets {@code duration}, while the contact details are
+     * never touched by such updates.
+     */
+    default void onVisitorsUpdated(List<Long> ids) {
+    }
+
+    /**
+     * A visitor was changed in place by a partial UPDATE, which never loads the row. Only the
+     * supplied fields are known; the fields left {@code null} in {@code patch} did not change.
+     * {@code previous} holds the check-in, check-out and duration before the update when the writer
+     * read them, otherwise {@code null}. A writer that sets the check-in without reading them only
+     * does so for a visitor that had not checked in.
+     */
+    default void onVisitorPatched(Long id, VisitorPatch patch, VisitTimes previous) {
+    }
+
+    /**
+     * A visitor was deleted; {@code previous} is its last known state.
+     */
+    default void onVisitorDeleted(Visitor previous) {
+    }
+}
@@ -0,0 +1,87 @@
+package com.mylogo.visitors.service;
+
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.repository.VisitTimes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Fans visitor writes out to every registered {@link VisitorChangeListener}.
+ * A failing listener is logged and skipped; it never fails the write that triggered it.
+ */
+@Component
+public class VisitorChangeNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitorChangeNotifier.class);
+
+    private final List<VisitorChangeListener> listeners;
+
+    public VisitorChangeNotifier(List<VisitorChangeListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    public void visitorSaved(Visitor previous, Visitor current) {
+        for (VisitorChangeListener listener : listeners) {
+            try {
+                listener.onVisitorSaved(previous, current);
+            } catch (Exception e) {
+                logger.error("Visitor change listener {} failed for visitor ID: {}",
+                        listener.getClass().getSimpleName(), current.getId(), e);
+            }
+        }
+    }
+
+    public void visitorsCreated(List<Visitor> created) {
+        if (created.isEmpty()) {
+            return;
+        }
+        for (VisitorChangeListener listener : listeners) {
+            try {
+                listener.onVisitorsCreated(created);
+            } catch (Exception e) {
+                logger.error("Visitor change listener {} failed for {} created visitors",
+                        listener.getClass().getSimpleName(), created.size(), e);
+            }
+        }
+    }
+
+    public void visitorsUpdated(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        for (VisitorChangeListener listener : listeners) {
+            try {
+                listener.onVisitorsUpdated(ids);
+            } catch (Exception e) {
+                logger.error("Visitor change listener {} failed for {} updated visitors",
+                        listener.getClass().getSimpleName(), ids.size(), e);
+            }
+        }
+    }
+
+    public void visitorPatched(Long id, VisitorPatch patch, VisitTimes previous) {
+        for (VisitorChangeListener listener : listeners) {
+            try {
+                listener.onVisitorPatched(id, patch, previous);
+            } catch (Exception e) {
+                logger.error("Visitor change listener {} failed for patched visitor ID: {}",
+                        listener.getClass().getSimpleName(), id, e);
+            }
+        }
+    }
+
+    public void visitorDeleted(Visitor previous) {
+        for (VisitorChangeListener listener : listeners) {
+            try {
+                listener.onVisitorDeleted(previous);
+            } catch (Exception e) {
+                logger.error("Visitor change listener {} failed for deleted visitor ID: {}",
+                        listener.getClass().getSimpleName(), previous.getId(), e);
+            }
+        }
+    }
+}
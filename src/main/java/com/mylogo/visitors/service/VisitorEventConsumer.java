@@ -1,17 +1,78 @@
 package com.mylogo.visitors.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mylogo.visitors.config.KafkaConsumerConfig;
+import com.mylogo.visitors.event.VisitorEvent;
+import com.mylogo.visitors.readmodel.VisitorReadModel;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
+/**
+ * Feeds the {@link VisitorReadModel} from the visitor event topic, in batches.
+ * <p>
+ * The read model lives in memory, so every replica consumes every partition in a consumer group of its
+ * own, named after the replica so that it survives restarts. Once the application is ready the view is
+ * loaded from the database and only then is the listener started: it resumes from the group's committed
+ * offsets, replaying onto the loaded view the events committed since the last applied batch, or from the
+ * latest offsets when the group is new. Offsets are committed after each applied batch; records that are
+ * not visitor events are logged and skipped.
+ */
 @Component
 public class VisitorEventConsumer {
     private static final Logger logger = LoggerFactory.getLogger(VisitorEventConsumer.class);
 
-    @KafkaListener(topics = "visitorTopic", groupId = "visitor-app")
-    public void listen(String message) {
-        logger.info("Consumed message: {} ", message);
-        // Implement your logic here based on the consumed message
+    public static final String LISTENER_ID = "visitorReadModel";
+
+    private final ObjectMapper objectMapper;
+    private final VisitorReadModel readModel;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+
+    public VisitorEventConsumer(ObjectMapper objectMapper, VisitorReadModel readModel,
+                                KafkaListenerEndpointRegistry listenerRegistry) {
+        this.objectMapper = objectMapper;
+        this.readModel = readModel;
+        this.listenerRegistry = listenerRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        try {
+            readModel.load();
+        } catch (Exception e) {
+            logger.error("Failed to load the read model; it only holds visitors changed from now on", e);
+        }
+        listenerRegistry.getListenerContainer(LISTENER_ID).start();
+    }
+
+    @KafkaListener(id = LISTENER_ID, autoStartup = "false",
+            topics = "${visitor.events.topic:visitorTopic}",
+            groupId = "${visitor.read-model.group-id:visitor-read-model-${HOSTNAME:local}}",
+            properties = "auto.offset.reset=latest",
+            containerFactory = KafkaConsumerConfig.VISITOR_EVENT_BATCH_FACTORY)
+    public void listen(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        int applied = 0;
+        for (ConsumerRecord<String, String> record : records) {
+            VisitorEvent event;
+            try {
+                event = objectMapper.readValue(record.value(), VisitorEvent.class);
+            } catch (Exception e) {
+                logger.warn("Skipping unreadable record at {}-{}@{}", record.topic(), record.partition(), record.offset(), e);
+                continue;
+            }
+            if (event.getType() != null && readModel.apply(event)) {
+                applied++;
+            }
+        }
+        acknowledgment.acknowledge();
+        logger.debug("Consumed {} records, {} applied to the read model", records.size(), applied);
     }
 }
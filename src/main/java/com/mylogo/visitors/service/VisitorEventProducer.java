@@ -1,21 +1,219 @@
 package com.mylogo.visitors.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mylogo.visitors.event.VisitorEvent;
+import com.mylogo.visitors.journal.EventJournal;
+import com.mylogo.visitors.journal.SpilledEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.common.errors.RetriableException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
+import org.springframework.util.concurrent.ListenableFuture;
 
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes visitor events to Kafka, keyed by visitor id.
+ * <p>
+ * Sends are asynchronous: the producer buffers them and ships them in batches according to the
+ * profile set up in {@code KafkaProducerConfig}. Each send is timed in {@code visitor.events.send},
+ * tagged with the event type and {@code result=success|failure}, from the call until the broker
+ * acknowledges or the send fails.
+ * <p>
+ * A send that fails because the broker cannot be reached marks Kafka unavailable for
+ * {@code visitor.events.journal.retry-ms}. Meanwhile, and for as long as anything is left in the
+ * {@link EventJournal}, {@link #publish(VisitorEvent)} appends to the journal instead of sending, so no
+ * thread waits on {@code max.block.ms}; {@link JournalReplayer} sends the journal in order once the
+ * retry time has passed.
+ */
 @Service
 public class VisitorEventProducer implements EventProducer {
 
     private static final Logger logger = LoggerFactory.getLogger(VisitorEventProducer.class);
-    @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final String topic;
+    private final EventJournal journal;
+    private final long retryMs;
+    private final Counter journaled;
+    private volatile long unavailableUntil;
+
+    public VisitorEventProducer(KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${visitor.events.topic:visitorTopic}") String topic,
+                                EventJournal journal,
+                                @Value("${visitor.events.journal.retry-ms:5000}") long retryMs) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.topic = topic;
+        this.journal = journal;
+        this.retryMs = retryMs;
+        this.journaled = meterRegistry.counter("visitor.events.journal.appended");
+    }
+
+    @Override
+    public void publish(VisitorEvent event) {
+        send(event);
+        logger.debug("Produced {} event {} for visitor ID: {}", event.getType(), event.getEventId(), event.getVisitorId());
+    }
+
+    @Override
+    public void publishAll(List<VisitorEvent> events) {
+        for (VisitorEvent event : events) {
+            send(event);
+        }
+        logger.info("Produced {} events", events.size());
+    }
 
     @Override
+    @Deprecated
     public void produceVisitorEvent(String message) {
-        kafkaTemplate.send("visitorTopic", message);
+        kafkaTemplate.send(topic, message);
         logger.info("Produced message: {} ", message);
     }
+
+    /**
+     * Sends one already serialized event and times it like {@link #publish(VisitorEvent)}. Unlike
+     * {@code publish}, a send the producer rejects up front is thrown to the caller, and nothing is journaled.
+     *
+     * @param key the visitor id, or {@code null}
+     */
+    public ListenableFuture<SendResult<String, String>> send(String type, String key, String payload) {
+        long start = System.nanoTime();
+        ListenableFuture<SendResult<String, String>> future;
+        try {
+            future = kafkaTemplate.send(topic, key, payload);
+        } catch (RuntimeException e) {
+            record(type, "failure", start);
+            checkAvailability(e);
+            throw e;
+        }
+        future.addCallback(result -> record(type, "success", start), failure -> {
+            record(type, "failure", start);
+            checkAvailability(failure);
+        });
+        return future;
+    }
+
+    /**
+     * Sends everything the producer has buffered without waiting for {@code linger.ms}.
+     */
+    public void flush() {
+        kafkaTemplate.flush();
+    }
+
+    /**
+     * Whether sends should be attempted: false for {@code visitor.events.journal.retry-ms} after the
+     * broker could not be reached.
+     */
+    public boolean isAvailable() {
+        return System.currentTimeMillis() >= unavailableUntil;
+    }
+
+    public void markUnavailable() {
+        unavailableUntil = System.currentTimeMillis() + retryMs;
+    }
+
+    /**
+     * Waits until every send is acknowledged, up to {@code timeoutMs} in total.
+     *
+     * @throws IllegalStateException when a send failed or was not acknowledged in time
+     */
+    static void awaitAll(List<ListenableFuture<SendResult<String, String>>> acks, long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            for (ListenableFuture<SendResult<String, String>> ack : acks) {
+                ack.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for Kafka acknowledgements", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Kafka did not acknowledge the batch", e);
+        }
+    }
+
+    private void send(VisitorEvent event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            record(event.getType().name(), "failure", System.nanoTime());
+            failed(event, e);
+            return;
+        }
+        SpilledEvent serialized = new SpilledEvent(event.getType().name(),
+                event.getVisitorId() == null ? null : String.valueOf(event.getVisitorId()), payload);
+        // Once anything is journaled, later events queue behind it to keep their order
+        if (!isAvailable() || !journal.isEmpty()) {
+            journal(event, serialized);
+            return;
+        }
+        try {
+            send(serialized.getType(), serialized.getKey(), payload).addCallback(result -> { }, failure -> {
+                if (isRetriable(failure)) {
+                    journal(event, serialized);
+                } else {
+                    failed(event, failure);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (isRetriable(e)) {
+                journal(event, serialized);
+            } else {
+                failed(event, e);
+            }
+        }
+    }
+
+    private void journal(VisitorEvent event, SpilledEvent serialized) {
+        try {
+            journal.append(serialized.toBytes());
+            journaled.increment();
+        } catch (Exception e) {
+            failed(event, e);
+        }
+    }
+
+    private void checkAvailability(Throwable failure) {
+        if (isRetriable(failure)) {
+            markUnavailable();
+        }
+    }
+
+    // Broker or metadata unreachable, as opposed to a record the broker will never accept
+    private static boolean isRetriable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void failed(VisitorEvent event, Throwable failure) {
+        logger.error("Failed to publish {} event {} for visitor ID: {}", event.getType(), event.getEventId(),
+                event.getVisitorId(), failure);
+    }
+
+    private void record(String type, String result, long start) {
+        Timer.builder("visitor.events.send")
+                .tag("type", type)
+                .tag("result", result)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
 }
@@ -1,83 +1,361 @@
 package com.mylogo.visitors.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mylogo.visitors.analytics.DurationStats;
+import com.mylogo.visitors.analytics.OccupancyTracker;
+import com.mylogo.visitors.analytics.RollupGranularity;
+import com.mylogo.visitors.analytics.UniqueContactEstimator;
+import com.mylogo.visitors.analytics.VisitDurationTotal;
+import com.mylogo.visitors.analytics.VisitRollups;
+import com.mylogo.visitors.analytics.VisitorColumnStore;
+import com.mylogo.visitors.cache.MissingVisitorCache;
+import com.mylogo.visitors.cache.TwoLevelCache;
+import com.mylogo.visitors.cache.VisitorPageCache;
+import com.mylogo.visitors.convertor.VisitorConverter;
+import com.mylogo.visitors.dto.PurposeSummaryDTO;
+import com.mylogo.visitors.dto.VisitRollupDTO;
+import com.mylogo.visitors.dto.VisitorBatchItemResult;
+import com.mylogo.visitors.dto.VisitorBatchResult;
+import com.mylogo.visitors.dto.VisitorBulkUpdateResult;
 import com.mylogo.visitors.dto.VisitorDTO;
+import com.mylogo.visitors.dto.VisitorPage;
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.dto.VisitorSearchCriteria;
+import com.mylogo.visitors.dto.VisitorStatsDTO;
+import com.mylogo.visitors.dto.VisitorStatusDTO;
+import com.mylogo.visitors.handler.InvalidRequestException;
+import com.mylogo.visitors.pagination.PurposeOrder;
+import com.mylogo.visitors.pagination.VisitorCursor;
+import com.mylogo.visitors.pagination.VisitorSort;
+import com.mylogo.visitors.repository.VisitCheckIn;
+import com.mylogo.visitors.repository.VisitTimes;
+import com.mylogo.visitors.repository.VisitorColumns;
 import com.mylogo.visitors.repository.VisitorRepository;
+import com.mylogo.visitors.repository.VisitorSpecifications;
 import com.mylogo.visitors.handler.DatabaseOperationException;
 import com.mylogo.visitors.handler.VisitorNotFoundException;
 import com.mylogo.visitors.handler.VisitorRetrievalException;
 import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.event.VisitorEvent;
+import com.mylogo.visitors.event.VisitorEventType;
+import com.mylogo.visitors.validator.VisitorValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class VisitorService {
     private static final Logger logger = LoggerFactory.getLogger(VisitorService.class);
+    public static final String UNKNOWN_PURPOSE = PurposeOrder.UNKNOWN;
     @Autowired
     private VisitorRepository visitorRepository;
 
     @Autowired
-    private VisitorEventProducer eventProducer;
+    private EventProducer eventProducer;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private VisitorChangeNotifier changeNotifier;
 
-   @Cacheable(value = "visitors")
+    @Autowired
+    private VisitDurationTotal visitDurationTotal;
+
+    @Autowired
+    private UniqueContactEstimator uniqueContactEstimator;
+
+    @Autowired
+    private VisitorColumnStore columnStore;
+
+    @Autowired
+    private VisitRollups visitRollups;
+
+    @Autowired
+    private OccupancyTracker occupancyTracker;
+
+    @Value("${visitor.rollup.max-buckets:5000}")
+    private int maxRollupBuckets;
+
+    @Autowired
+    private VisitorPageCache visitorPageCache;
+
+    @Autowired
+    private MissingVisitorCache missingVisitorCache;
+
+    @Value("${visitor.pagination.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${visitor.pagination.max-size:500}")
+    private int maxPageSize;
+
+    @Autowired
+    private VisitorValidator visitorValidator;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${visitor.batch.chunk-size:500}")
+    private int batchChunkSize;
+
+    @Value("${visitor.batch.max-size:5000}")
+    private int maxBatchSize;
+
+    // Assembled from the cached id-ordered pages, so a write invalidates the list without rebuilding it
     public List<VisitorDTO> getAllVisitors() {
+        logger.info("Attempting to retrieve all visitors");
+        List<VisitorDTO> visitors = new ArrayList<>();
+        String cursor = null;
+        do {
+            VisitorPage page = getVisitorPage(cursor, maxPageSize, VisitorSort.ID.name());
+            visitors.addAll(page.getContent());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return visitors;
+    }
+
+    private List<VisitorDTO> convertEntityToDTO(List<Visitor> visitors) {
+        return VisitorConverter.toDTOList(visitors);
+    }
+
+    /**
+     * Reads one page of visitors using keyset pagination, so the cost of a page does not
+     * depend on how deep into the table it is.
+     *
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param size   the requested page size, capped at {@code visitor.pagination.max-size}
+     * @param sort   {@code id} or {@code checkIn}; must match the cursor's sort when both are given
+     * @return the page and the cursor for the next one
+     */
+    public VisitorPage getVisitorPage(String cursor, Integer size, String sort) {
+        VisitorCursor position = resolveCursor(cursor, sort);
+        int pageSize = resolvePageSize(size);
         try {
-            logger.info("Attempting to retrieve all visitors");
-            List<Visitor> visitors=visitorRepository.findAll();
-            return convertEntityToDTO(visitors);
+            return visitorPageCache.get(position, pageSize, () -> {
+                logger.info("Retrieving visitor page sorted by {} with size {}", position.getSort(), pageSize);
+                KeysetBatch batch = readBatch(position, pageSize);
+                String nextCursor = batch.next == null ? null : batch.next.encode();
+                return new VisitorPage(convertEntityToDTO(batch.visitors), nextCursor, batch.visitors.size());
+            });
         } catch (Exception e) {
-            logger.error("Failed to retrieve visitors from the database", e);
+            logger.error("Failed to retrieve visitor page from the database", e);
             throw new VisitorRetrievalException("Failed to retrieve visitors from the database", e);
         }
     }
 
-    private List<VisitorDTO> convertEntityToDTO(List<Visitor> visitors) {
-        List<VisitorDTO> visitorDTOList = new ArrayList<>();
-        visitors.forEach(visitor -> {
-            VisitorDTO visitorDTO = new VisitorDTO();
-            BeanUtils.copyProperties(visitor, visitorDTO);
-            visitorDTOList.add(visitorDTO);
-        });
-        return visitorDTOList;
+    /**
+     * Searches visitors with any combination of filters in a single query, paginated by id.
+     *
+     * @param criteria the filters to apply; unset fields are ignored
+     * @param cursor   the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param size     the requested page size, capped at {@code visitor.pagination.max-size}
+     */
+    public VisitorPage searchVisitors(VisitorSearchCriteria criteria, String cursor, Integer size) {
+        if (criteria.getCheckInFrom() != null && criteria.getCheckInTo() != null
+                && !criteria.getCheckInFrom().isBefore(criteria.getCheckInTo())) {
+            throw new InvalidRequestException("checkInFrom must be before checkInTo");
+        }
+        VisitorCursor position = resolveCursor(cursor, VisitorSort.ID.name());
+        int pageSize = resolvePageSize(size);
+        try {
+            logger.info("Searching visitors with {}", criteria);
+            Specification<Visitor> spec = VisitorSpecifications.matching(criteria);
+            if (!position.isStart()) {
+                spec = spec.and(VisitorSpecifications.idGreaterThan(position.getAfterId()));
+            }
+            List<Visitor> visitors = visitorRepository.findLimited(spec, Sort.by("id"), pageSize + 1);
+            String nextCursor = null;
+            if (visitors.size() > pageSize) {
+                visitors = visitors.subList(0, pageSize);
+                nextCursor = VisitorCursor.after(VisitorSort.ID, visitors.get(pageSize - 1)).encode();
+            }
+            return new VisitorPage(convertEntityToDTO(visitors), nextCursor, visitors.size());
+        } catch (Exception e) {
+            logger.error("Failed to search visitors", e);
+            throw new VisitorRetrievalException("Failed to search visitors", e);
+        }
+    }
+
+    /**
+     * Streams every visitor in the given order as consecutive keyset pages of at most
+     * {@code visitor.pagination.max-size} entities. Each page is read on the bounded elastic
+     * scheduler only once the previous one has been consumed, so at most one page is held
+     * in memory per subscriber.
+     */
+    public Flux<List<Visitor>> streamVisitors(VisitorSort sort) {
+        return readBatchAsync(VisitorCursor.start(sort), maxPageSize)
+                .expand(batch -> batch.next == null ? Mono.empty() : readBatchAsync(batch.next, maxPageSize))
+                .map(batch -> batch.visitors)
+                .onErrorMap(e -> !(e instanceof VisitorRetrievalException),
+                        e -> new VisitorRetrievalException("Failed to retrieve visitors from the database", e));
+    }
+
+    /**
+     * Streams the distinct, non-null contact numbers in ascending order, one keyset page at a time,
+     * or from the column store once it is loaded.
+     */
+    public Flux<List<String>> streamUniqueContactNumbers() {
+        if (columnStore.isLoaded()) {
+            return Flux.defer(() -> Flux.fromIterable(columnStore.distinctContactNumbers())).buffer(maxPageSize);
+        }
+        return readContactBatch(null)
+                .expand(batch -> batch.size() < maxPageSize ? Mono.empty() : readContactBatch(batch.get(batch.size() - 1)))
+                .onErrorMap(e -> new VisitorRetrievalException("Failed to retrieve contact numbers from the database", e));
+    }
+
+    private Mono<List<String>> readContactBatch(String after) {
+        PageRequest page = PageRequest.of(0, maxPageSize);
+        return Mono.fromCallable(() -> after == null
+                        ? visitorRepository.findFirstContactNumbers(page)
+                        : visitorRepository.findContactNumbersAfter(after, page))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<KeysetBatch> readBatchAsync(VisitorCursor position, int batchSize) {
+        return Mono.fromCallable(() -> readBatch(position, batchSize))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private KeysetBatch readBatch(VisitorCursor position, int batchSize) {
+        List<Visitor> visitors = fetchPage(position, batchSize + 1);
+        if (visitors.size() <= batchSize) {
+            return new KeysetBatch(visitors, null);
+        }
+        List<Visitor> page = visitors.subList(0, batchSize);
+        return new KeysetBatch(page, VisitorCursor.after(position.getSort(), page.get(batchSize - 1)));
+    }
+
+    private static final class KeysetBatch {
+        private final List<Visitor> visitors;
+        private final VisitorCursor next;
+
+        private KeysetBatch(List<Visitor> visitors, VisitorCursor next) {
+            this.visitors = visitors;
+            this.next = next;
+        }
+    }
+
+    private VisitorCursor resolveCursor(String cursor, String sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return VisitorCursor.start(VisitorSort.fromParameter(sort));
+        }
+        VisitorCursor position = VisitorCursor.decode(cursor);
+        if (sort != null && !sort.isBlank() && VisitorSort.fromParameter(sort) != position.getSort()) {
+            throw new InvalidRequestException("Cursor was issued for sort " + position.getSort());
+        }
+        return position;
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        if (size < 1) {
+            throw new InvalidRequestException("Page size must be positive");
+        }
+        return Math.min(size, maxPageSize);
     }
 
-    @Cacheable(value = "visitor", key = "#id")
+    private List<Visitor> fetchPage(VisitorCursor position, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        switch (position.getSort()) {
+            case CHECK_IN:
+                if (position.isNullKey()) {
+                    return visitorRepository.findPageWithoutCheckInAfterId(position.getAfterId(), page);
+                }
+                return continueWithSection(position.isStart()
+                        ? visitorRepository.findFirstPageByCheckIn(page)
+                        : visitorRepository.findPageAfterCheckIn(position.checkInKey(), position.getAfterId(), page),
+                        limit, visitorRepository::findFirstPageWithoutCheckIn);
+            case PURPOSE:
+                if (position.isNullKey()) {
+                    return continueWithSection(
+                            visitorRepository.findPageWithoutPurposeAfterId(position.getAfterId(), page),
+                            limit, visitorRepository::findFirstPageWithUnknownPurpose);
+                }
+                if (!position.isStart() && PurposeOrder.isUnknown(position.getKey())) {
+                    return visitorRepository.findPageWithUnknownPurposeAfterId(position.getAfterId(), page);
+                }
+                List<Visitor> visitors = position.isStart()
+                        ? visitorRepository.findFirstPageByPurpose(page)
+                        : visitorRepository.findPageAfterPurpose(position.getKey(), position.getAfterId(), page);
+                // Visitors without a purpose and those whose purpose is "Unknown" form the last group
+                visitors = continueWithSection(visitors, limit, visitorRepository::findFirstPageWithoutPurpose);
+                return continueWithSection(visitors, limit, visitorRepository::findFirstPageWithUnknownPurpose);
+            case ID:
+            default:
+                return position.isStart()
+                        ? visitorRepository.findFirstPageById(page)
+                        : visitorRepository.findPageAfterId(position.getAfterId(), page);
+        }
+    }
+
+    // Once a section of the ordering is exhausted, fill the page from the start of the next one,
+    // e.g. the rows whose sort key is null after those with a key.
+    private List<Visitor> continueWithSection(List<Visitor> section, int limit,
+                                              Function<Pageable, List<Visitor>> firstPageOfNext) {
+        if (section.size() >= limit) {
+            return section;
+        }
+        List<Visitor> visitors = new ArrayList<>(section);
+        visitors.addAll(firstPageOfNext.apply(PageRequest.of(0, limit - section.size())));
+        return visitors;
+    }
+
+    // sync: concurrent misses for one id share a single load, see TwoLevelCache
+    @Cacheable(value = "visitor", key = "#id", sync = true)
     public VisitorDTO getVisitorById(Long id) {
 
+        if (missingVisitorCache.isKnownMissing(id)) {
+            throw new VisitorNotFoundException("Visitor with ID " + id + " not found");
+        }
         try {
             logger.info("Attempting to retrieve visitor with ID: {}", id);
             Optional<Visitor> visitor = visitorRepository.findById(id);
             if (visitor.isEmpty()) {
                 logger.warn("Visitor with ID {} not found", id);
+                missingVisitorCache.markMissing(id);
                 throw new VisitorNotFoundException("Visitor with ID " + id + " not found");
             }
             VisitorDTO visitorDTO=new VisitorDTO();
-            CompletableFuture.runAsync(() -> eventProducer.produceVisitorEvent("Visitor fetched: " + visitor.get().getId()));
+            eventProducer.publish(VisitorEvent.of(VisitorEventType.FETCHED, id));
             BeanUtils.copyProperties(visitor.get(), visitorDTO);
             return visitorDTO;
         }catch (VisitorNotFoundException e){
-            throw new VisitorNotFoundException("Visitor with ID " + id + " not found");
+            throw e;
         }
         catch (Exception e) {
             logger.error("Error retrieving visitor with ID: {}", id, e);
@@ -95,12 +373,13 @@ public class VisitorService {
        Visitor savedVisitor = null;
        try {
            logger.info("Attempting to save a new visitor: {}", visitor);
-           savedVisitor = visitorRepository.save(visitor);
+           savedVisitor = new TransactionTemplate(transactionManager).execute(status -> {
+               Visitor saved = visitorRepository.save(visitor);
+               eventProducer.publish(VisitorEvent.of(VisitorEventType.CREATED, saved.getId(), saved));
+               return saved;
+           });
            logger.info("Visitor saved successfully with ID: {}", savedVisitor.getId());
-
-           String message = convertVisitorToJson(savedVisitor);
-           CompletableFuture.runAsync(()->eventProducer.produceVisitorEvent(message));
-           logger.info("Visitor event sent successfully for visitor ID: {}", savedVisitor.getId());
+           changeNotifier.visitorSaved(null, savedVisitor);
 
        } catch (Exception e) {
            logger.error("Error saving visitor with details: {}", visitor, e);
@@ -111,24 +390,122 @@ public class VisitorService {
        return visitorDTO;
    }
 
+    /**
+     * Inserts many visitors using JDBC batching. Each visitor is validated first. The valid ones are
+     * inserted in chunks of {@code visitor.batch.chunk-size}, one transaction per chunk, which also
+     * records the chunk's events. If a chunk fails, its visitors are retried one at a time,
+     * so a bad row only fails itself.
+     *
+     * @return one result per visitor, in request order
+     */
+    public VisitorBatchResult addVisitors(List<Visitor> visitors) {
+        if (visitors == null || visitors.isEmpty()) {
+            throw new InvalidRequestException("At least one visitor is required");
+        }
+        if (visitors.size() > maxBatchSize) {
+            throw new InvalidRequestException("At most " + maxBatchSize + " visitors can be added at once");
+        }
+        logger.info("Attempting to add a batch of {} visitors", visitors.size());
+        VisitorBatchItemResult[] results = new VisitorBatchItemResult[visitors.size()];
+        List<Integer> valid = new ArrayList<>(visitors.size());
+        for (int i = 0; i < visitors.size(); i++) {
+            try {
+                visitorValidator.validate(visitors.get(i));
+                valid.add(i);
+            } catch (IllegalArgumentException e) {
+                results[i] = new VisitorBatchItemResult(i, VisitorBatchItemResult.Status.INVALID, null, e.getMessage());
+            }
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int created = 0;
+        for (int from = 0; from < valid.size(); from += batchChunkSize) {
+            List<Integer> chunk = valid.subList(from, Math.min(from + batchChunkSize, valid.size()));
+            List<Visitor> saved = insertChunk(transactionTemplate, visitors, chunk, results);
+            if (!saved.isEmpty()) {
+                changeNotifier.visitorsCreated(saved);
+            }
+            created += saved.size();
+        }
+        logger.info("Added {} of {} visitors", created, visitors.size());
+        return new VisitorBatchResult(created, visitors.size() - created, Arrays.asList(results));
+    }
+
+    private List<Visitor> insertChunk(TransactionTemplate transactionTemplate, List<Visitor> visitors,
+                                      List<Integer> chunk, VisitorBatchItemResult[] results) {
+        List<Visitor> batch = new ArrayList<>(chunk.size());
+        for (Integer index : chunk) {
+            Visitor visitor = visitors.get(index);
+            visitor.setId(null);
+            batch.add(visitor);
+        }
+        try {
+            List<Visitor> saved = transactionTemplate.execute(status -> {
+                List<Visitor> inserted = visitorRepository.saveAll(batch);
+                eventProducer.publishAll(createdEvents(inserted));
+                return inserted;
+            });
+            for (int i = 0; i < chunk.size(); i++) {
+                results[chunk.get(i)] = new VisitorBatchItemResult(chunk.get(i),
+                        VisitorBatchItemResult.Status.CREATED, saved.get(i).getId(), null);
+            }
+            return saved;
+        } catch (Exception e) {
+            logger.warn("Batch insert of {} visitors failed, retrying them one at a time", batch.size(), e);
+        }
+
+        List<Visitor> saved = new ArrayList<>();
+        for (Integer index : chunk) {
+            Visitor visitor = visitors.get(index);
+            // Ids handed out inside the rolled back transaction are discarded
+            visitor.setId(null);
+            try {
+                Visitor savedVisitor = transactionTemplate.execute(status -> {
+                    Visitor inserted = visitorRepository.save(visitor);
+                    eventProducer.publish(VisitorEvent.of(VisitorEventType.CREATED, inserted.getId(), inserted));
+                    return inserted;
+                });
+                saved.add(savedVisitor);
+                results[index] = new VisitorBatchItemResult(index, VisitorBatchItemResult.Status.CREATED,
+                        savedVisitor.getId(), null);
+            } catch (Exception e) {
+                logger.error("Error saving visitor at index {} of batch", index, e);
+                results[index] = new VisitorBatchItemResult(index, VisitorBatchItemResult.Status.FAILED, null,
+                        "Error saving visitor");
+            }
+        }
+        return saved;
+    }
+
+    private static List<VisitorEvent> createdEvents(List<Visitor> created) {
+        List<VisitorEvent> events = new ArrayList<>(created.size());
+        for (Visitor visitor : created) {
+            events.add(VisitorEvent.of(VisitorEventType.CREATED, visitor.getId(), visitor));
+        }
+        return events;
+    }
+
     @CachePut(value = "visitor", key = "#id", condition = "#result != null")
     public VisitorDTO updateVisitor(Long id, Visitor visitor) {
         try {
             logger.info("Attempting to update visitor with ID: {}", id);
-            return visitorRepository.findById(id)
-                    .map(existingVisitor -> {
-                        visitor.setId(id);
-                        Visitor updatedVisitor = visitorRepository.save(visitor);
-                        String message = convertVisitorToJson(updatedVisitor);
-                        CompletableFuture.runAsync(()->eventProducer.produceVisitorEvent(message));
-                        logger.info("Visitor sent update event successfully for visitor ID: {}", updatedVisitor.getId());
-                        VisitorDTO visitorDTO=new VisitorDTO();
-                        BeanUtils.copyProperties(updatedVisitor,visitorDTO);
-                        return visitorDTO;
-                    }).orElseThrow(() -> {
-                        logger.warn("Visitor with ID {} not found during update", id);
-                        return new VisitorNotFoundException("Visitor with ID " + id + " not found");
-                    });
+            AtomicReference<Visitor> previousVisitor = new AtomicReference<>();
+            Visitor updatedVisitor = new TransactionTemplate(transactionManager).execute(status -> {
+                Visitor existingVisitor = visitorRepository.findById(id).orElseThrow(() -> {
+                    logger.warn("Visitor with ID {} not found during update", id);
+                    return new VisitorNotFoundException("Visitor with ID " + id + " not found");
+                });
+                previousVisitor.set(VisitorConverter.copyOf(existingVisitor));
+                visitor.setId(id);
+                Visitor updated = visitorRepository.save(visitor);
+                eventProducer.publish(VisitorEvent.of(VisitorEventType.UPDATED, id, updated));
+                return updated;
+            });
+            logger.info("Visitor updated successfully for visitor ID: {}", updatedVisitor.getId());
+            changeNotifier.visitorSaved(previousVisitor.get(), updatedVisitor);
+            VisitorDTO visitorDTO=new VisitorDTO();
+            BeanUtils.copyProperties(updatedVisitor,visitorDTO);
+            return visitorDTO;
         } catch (VisitorNotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -137,12 +514,243 @@ public class VisitorService {
         }
     }
 
+    /**
+     * Approves every listed visitor that is not approved yet, with one UPDATE.
+     */
+    public VisitorBulkUpdateResult approveVisitors(List<Long> ids) {
+        VisitorPatch change = VisitorPatch.builder().approved(true).build();
+        return bulkUpdate(VisitorEventType.APPROVED, ids, distinctIds -> {
+            List<Long> pending = visitorRepository.lockUnapprovedIds(distinctIds);
+            Map<Long, VisitorPatch> changes = new LinkedHashMap<>();
+            if (!pending.isEmpty()) {
+                visitorRepository.approveByIds(pending);
+                pending.forEach(id -> changes.put(id, change));
+            }
+            return changes;
+        });
+    }
+
+    /**
+     * Checks out every listed visitor that has checked in but not out yet, with one UPDATE stamping the
+     * current time and the length of each visit in whole hours. Visitors who never checked in are left alone.
+     */
+    public VisitorBulkUpdateResult checkOutVisitors(List<Long> ids) {
+        LocalDateTime checkOut = LocalDateTime.now();
+        return bulkUpdate(VisitorEventType.CHECKED_OUT, ids, distinctIds -> {
+            List<VisitCheckIn> pending = visitorRepository.lockCheckedInNotCheckedOut(distinctIds);
+            Map<Long, VisitorPatch> changes = new LinkedHashMap<>();
+            if (!pending.isEmpty()) {
+                for (VisitCheckIn visit : pending) {
+                    changes.put(visit.getId(), VisitorPatch.builder().checkOut(checkOut)
+                            .duration(visitHours(visit.getCheckIn(), checkOut)).build());
+                }
+                visitorRepository.checkOutByIds(changes.keySet(), checkOut);
+            }
+            return changes;
+        });
+    }
+
+    /**
+     * Runs a set-based update in one transaction, together with one event per changed visitor, then
+     * evicts the changed visitors from the cache in one call.
+     *
+     * @param update locks and updates the rows, returning the fields it wrote for each visitor it changed,
+     *               published as the event payloads
+     */
+    private VisitorBulkUpdateResult bulkUpdate(VisitorEventType eventType, List<Long> ids,
+                                               Function<Set<Long>, Map<Long, VisitorPatch>> update) {
+        if (ids == null || ids.isEmpty()) {
+            throw new InvalidRequestException("At least one visitor id is required");
+        }
+        if (ids.size() > maxBatchSize) {
+            throw new InvalidRequestException("At most " + maxBatchSize + " visitors can be updated at once");
+        }
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        distinctIds.remove(null);
+        List<Long> updated;
+        try {
+            logger.info("Applying {} to {} visitors", eventType, distinctIds.size());
+            updated = new TransactionTemplate(transactionManager).execute(status -> {
+                Map<Long, VisitorPatch> changed = update.apply(distinctIds);
+                if (!changed.isEmpty()) {
+                    List<VisitorEvent> events = new ArrayList<>(changed.size());
+                    changed.forEach((id, change) -> events.add(VisitorEvent.of(eventType, id, change)));
+                    eventProducer.publishAll(events);
+                }
+                return new ArrayList<>(changed.keySet());
+            });
+        } catch (Exception e) {
+            logger.error("Error applying {} to {} visitors", eventType, distinctIds.size(), e);
+            throw new DatabaseOperationException("Error updating visitors", e);
+        }
+
+        if (!updated.isEmpty()) {
+            evictVisitors(updated);
+            changeNotifier.visitorsUpdated(updated);
+        }
+        logger.info("{} applied to {} of {} visitors", eventType, updated.size(), distinctIds.size());
+        return new VisitorBulkUpdateResult(distinctIds.size(), updated.size(), updated);
+    }
+
+    private void evictVisitors(List<Long> ids) {
+        try {
+            Cache cache = cacheManager.getCache("visitor");
+            if (cache instanceof TwoLevelCache) {
+                ((TwoLevelCache) cache).evictAll(ids);
+            } else if (cache != null) {
+                ids.forEach(cache::evict);
+            }
+        } catch (Exception e) {
+            // The database is already updated; stale entries age out with the cache TTL
+            logger.warn("Failed to evict {} updated visitors from the cache", ids.size(), e);
+        }
+    }
+
+    /**
+     * Writes only the supplied fields of a visitor, with one UPDATE. Only a patch that moves the
+     * check-in or the duration first reads the previous visit times, by primary key under a row lock,
+     * so the listeners can take the old values back out. The cached copy of the visitor is evicted on
+     * every replica once the UPDATE has committed, and the next read loads the row again.
+     */
+    public void patchVisitor(Long id, VisitorPatch patch) {
+        if (patch == null || patch.isEmpty()) {
+            throw new InvalidRequestException("At least one field is required");
+        }
+        if (patch.getName() != null && patch.getName().isEmpty()) {
+            throw new InvalidRequestException("Visitor name cannot be empty");
+        }
+        boolean readsPrevious = patch.getCheckIn() != null || patch.getDuration() != null;
+        AtomicReference<VisitTimes> previous = new AtomicReference<>();
+        int updated;
+        try {
+            logger.info("Attempting to patch visitor with ID: {}", id);
+            updated = new TransactionTemplate(transactionManager).execute(status -> {
+                if (readsPrevious) {
+                    previous.set(visitorRepository.lockVisitTimes(id).orElse(null));
+                }
+                int rows = visitorRepository.patch(id, patch);
+                if (rows > 0) {
+                    eventProducer.publish(VisitorEvent.of(VisitorEventType.PATCHED, id, patch));
+                }
+                return rows;
+            });
+        } catch (Exception e) {
+            logger.error("Error patching visitor with ID: {}", id, e);
+            throw new DatabaseOperationException("Error updating visitor with ID " + id, e);
+        }
+        if (updated == 0) {
+            logger.warn("Visitor with ID {} not found during patch", id);
+            throw new VisitorNotFoundException("Visitor with ID " + id + " not found");
+        }
+
+        afterPatch(id, patch, previous.get());
+        logger.info("Successfully patched visitor with ID: {}", id);
+    }
+
+    /**
+     * Stamps the check-in time and approves the visitor with one UPDATE. A visitor checks in once.
+     */
+    public VisitorStatusDTO checkIn(Long id) {
+        LocalDateTime now = LocalDateTime.now();
+        VisitorPatch change = VisitorPatch.builder().checkIn(now).approved(true).build();
+        try {
+            logger.info("Checking in visitor with ID: {}", id);
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                if (visitorRepository.checkIn(id, now) == 0) {
+                    // Only the failure path pays for telling the two cases apart
+                    if (!visitorRepository.existsById(id)) {
+                        throw new VisitorNotFoundException("Visitor with ID " + id + " not found");
+                    }
+                    throw new InvalidRequestException("Visitor with ID " + id + " has already checked in");
+                }
+                eventProducer.publish(VisitorEvent.of(VisitorEventType.CHECKED_IN, id, change));
+            });
+        } catch (VisitorNotFoundException | InvalidRequestException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error checking in visitor with ID: {}", id, e);
+            throw new DatabaseOperationException("Error checking in visitor with ID " + id, e);
+        }
+        afterPatch(id, change, null);
+        return new VisitorStatusDTO(id, now, null, null, true);
+    }
+
+    /**
+     * Stamps the check-out time and stores the length of the visit in whole hours, the unit
+     * of the existing duration column. The check-in time is read by primary key under a row lock, so the
+     * UPDATE never races a second check-out.
+     */
+    public VisitorStatusDTO checkOut(Long id) {
+        LocalDateTime now = LocalDateTime.now();
+        VisitTimes times;
+        try {
+            logger.info("Checking out visitor with ID: {}", id);
+            times = new TransactionTemplate(transactionManager).execute(status -> {
+                VisitTimes current = visitorRepository.lockVisitTimes(id)
+                        .orElseThrow(() -> new VisitorNotFoundException("Visitor with ID " + id + " not found"));
+                if (current.getCheckIn() == null) {
+                    throw new InvalidRequestException("Visitor with ID " + id + " has not checked in");
+                }
+                if (current.getCheckOut() != null) {
+                    throw new InvalidRequestException("Visitor with ID " + id + " has already checked out");
+                }
+                long hours = visitHours(current.getCheckIn(), now);
+                visitorRepository.checkOut(id, now, hours);
+                eventProducer.publish(VisitorEvent.of(VisitorEventType.CHECKED_OUT, id,
+                        VisitorPatch.builder().checkOut(now).duration(hours).build()));
+                return current;
+            });
+        } catch (VisitorNotFoundException | InvalidRequestException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error checking out visitor with ID: {}", id, e);
+            throw new DatabaseOperationException("Error checking out visitor with ID " + id, e);
+        }
+        long duration = visitHours(times.getCheckIn(), now);
+        afterPatch(id, VisitorPatch.builder().checkOut(now).duration(duration).build(), times);
+        return new VisitorStatusDTO(id, null, now, duration, null);
+    }
+
+    static long visitHours(LocalDateTime checkIn, LocalDateTime checkOut) {
+        return Math.max(0L, Duration.between(checkIn, checkOut).toHours());
+    }
+
+    /**
+     * Brings the cache and the listeners up to date after a write that did not load the row.
+     */
+    private void afterPatch(Long id, VisitorPatch patch, VisitTimes previous) {
+        evictCachedVisitor(id);
+        changeNotifier.visitorPatched(id, patch, previous);
+    }
+
+    /**
+     * Patching the cached copy in place would race concurrent writers and write a possibly stale local
+     * copy back to Redis, so the key is dropped instead.
+     */
+    private void evictCachedVisitor(Long id) {
+        try {
+            Cache cache = cacheManager.getCache("visitor");
+            if (cache != null) {
+                cache.evict(id);
+            }
+        } catch (Exception e) {
+            // The database is already updated; a stale entry ages out with the cache TTL
+            logger.warn("Failed to evict cached visitor with ID: {}", id, e);
+        }
+    }
+
+
     @CacheEvict(value = "visitor", key = "#id")
     public void deleteVisitor(Long id) {
         try {
             logger.info("Attempting to delete visitor with ID: {}", id);
-            visitorRepository.deleteById(id);
-            CompletableFuture.runAsync(()->eventProducer.produceVisitorEvent("Visitor Deleted with visitorID: " + id));
+            Optional<Visitor> existingVisitor = new TransactionTemplate(transactionManager).execute(status -> {
+                Optional<Visitor> existing = visitorRepository.findById(id);
+                visitorRepository.deleteById(id);
+                eventProducer.publish(VisitorEvent.of(VisitorEventType.DELETED, id));
+                return existing;
+            });
+            existingVisitor.ifPresent(changeNotifier::visitorDeleted);
             logger.info("Successfully deleted visitor with ID: {}", id);
         } catch (Exception e) {
             logger.error("Error deleting visitor with ID: {}", id, e);
@@ -158,6 +766,11 @@ public class VisitorService {
         });
     }
 
+    /**
+     * @deprecated needs every visitor in memory first; use {@link #calculateTotalVisitDuration()} or
+     * {@link #calculateTotalVisitDuration(LocalDateTime, LocalDateTime, String)}, which aggregate without loading rows.
+     */
+    @Deprecated
     public CompletableFuture<Long> calculateTotalVisitDuration(List<Visitor> visitors) {
         return CompletableFuture.supplyAsync(() -> {
             logger.info("Calculating total visit duration");
@@ -166,34 +779,61 @@ public class VisitorService {
     }
 
 
-    /**
-     * Converts a Visitor object to a JSON string.
-     *
-     * @param visitor the Visitor object to convert
-     * @return the JSON string representation of the Visitor object
-     */
-    private String convertVisitorToJson(Visitor visitor) {
-        try {
-            return objectMapper.writeValueAsString(visitor);
-        } catch (JsonProcessingException e) {
-            logger.error("Error converting Visitor object to JSON", e);
-            return "{}";
+    // Ordered by the database along the (check_in, id) index; prefer streamVisitors(CHECK_IN) for large tables
+    public List<Visitor> getAllVisitorsSortedByCheckIn() {
+        List<Visitor> visitors = new ArrayList<>();
+        KeysetBatch batch = readBatch(VisitorCursor.start(VisitorSort.CHECK_IN), maxPageSize);
+        visitors.addAll(batch.visitors);
+        while (batch.next != null) {
+            batch = readBatch(batch.next, maxPageSize);
+            visitors.addAll(batch.visitors);
         }
+        return visitors;
     }
 
+    // Visitors who have been approved, filtered by the database
+    public List<Visitor> getApprovedVisitors() {
+        return visitorRepository.findAll(
+                VisitorSpecifications.matching(VisitorSearchCriteria.builder().approved(true).build()), Sort.by("id"));
+    }
 
-    public List<Visitor> getAllVisitorsSortedByCheckIn() {
-        return visitorRepository.findAll().stream()
-                .sorted(Comparator.comparing(Visitor::getCheckIn, Comparator.nullsLast(Comparator.naturalOrder()))
-                        .thenComparing(Visitor::getId))
-                .collect(Collectors.toList());
+    /**
+     * Visitor count and total duration per purpose, ordered by purpose with visitors without a purpose
+     * reported last as "Unknown". Purposes are merged the way the database collation compares them, so
+     * each one, and "Unknown", is reported once. Served from the column store once it is loaded, otherwise
+     * from a single GROUP BY.
+     */
+    public List<PurposeSummaryDTO> summarizeVisitorsByPurpose() {
+        try {
+            Map<String, PurposeSummaryDTO> byPurpose = new TreeMap<>(PurposeOrder.COLLATION);
+            PurposeSummaryDTO unknown = null;
+            for (PurposeSummaryDTO summary : columnStore.isLoaded()
+                    ? columnStore.summarizeByPurpose() : visitorRepository.summarizeByPurpose()) {
+                if (PurposeOrder.isUnknown(summary.getPurpose())) {
+                    unknown = mergeSummaries(unknown, summary, UNKNOWN_PURPOSE);
+                } else {
+                    byPurpose.put(summary.getPurpose(),
+                            mergeSummaries(byPurpose.get(summary.getPurpose()), summary, summary.getPurpose()));
+                }
+            }
+            List<PurposeSummaryDTO> summaries = new ArrayList<>(byPurpose.values());
+            if (unknown != null) {
+                summaries.add(unknown);
+            }
+            return summaries;
+        } catch (Exception e) {
+            logger.error("Error summarizing visitors by purpose", e);
+            throw new DatabaseOperationException("Error summarizing visitors by purpose", e);
+        }
     }
 
-    // Filter visitors who have been approved
-    public List<Visitor> getApprovedVisitors() {
-        return visitorRepository.findAll().stream()
-                .filter(Visitor::isApproved)
-                .collect(Collectors.toList());
+    private static PurposeSummaryDTO mergeSummaries(PurposeSummaryDTO merged, PurposeSummaryDTO summary, String purpose) {
+        if (merged == null) {
+            return new PurposeSummaryDTO(purpose, summary.getVisitorCount(), summary.getTotalDuration());
+        }
+        merged.setVisitorCount(merged.getVisitorCount() + summary.getVisitorCount());
+        merged.setTotalDuration(merged.getTotalDuration() + summary.getTotalDuration());
+        return merged;
     }
 
     public Map<String, List<Visitor>> groupVisitorsByPurpose() {
@@ -213,15 +853,194 @@ public class VisitorService {
         return groupedVisitors;
     }
 
-    // Calculate total visit duration for all visitors
+    // Total visit duration for all visitors, served from the running total
     public long calculateTotalVisitDuration() {
-        return visitorRepository.findAll().stream()
-                .mapToLong(Visitor::getDuration)
-                .sum();
+        return visitDurationTotal.get();
+    }
+
+    /**
+     * Total visit duration of the visitors matching the given filters, scanned from the column store
+     * once it is loaded and computed by the database before that. Without any filter the running
+     * total is returned instead.
+     *
+     * @param from    inclusive lower bound on check-in, optional
+     * @param to      exclusive upper bound on check-in, optional
+     * @param purpose exact purpose, optional
+     */
+    public long calculateTotalVisitDuration(LocalDateTime from, LocalDateTime to, String purpose) {
+        if (from == null && to == null && purpose == null) {
+            return calculateTotalVisitDuration();
+        }
+        if (columnStore.isLoaded()) {
+            return columnStore.sumDuration(from, to, purpose);
+        }
+        try {
+            VisitorSearchCriteria criteria = VisitorSearchCriteria.builder()
+                    .checkInFrom(from)
+                    .checkInTo(to)
+                    .purpose(purpose)
+                    .build();
+            return visitorRepository.sumDuration(VisitorSpecifications.matching(criteria));
+        } catch (Exception e) {
+            logger.error("Error calculating total visit duration", e);
+            throw new DatabaseOperationException("Error calculating total visit duration", e);
+        }
+    }
+
+    /**
+     * Duration statistics of the visitors matching the given filters, from the column store once it
+     * is loaded. Before that they are computed from one pass over the visitor columns in the database.
+     *
+     * @param from    inclusive lower bound on check-in, optional
+     * @param to      exclusive upper bound on check-in, optional
+     * @param purpose purpose, compared with the database collation, optional
+     */
+    public VisitorStatsDTO getVisitorStats(LocalDateTime from, LocalDateTime to, String purpose) {
+        if (columnStore.isLoaded()) {
+            return columnStore.stats(from, to, purpose);
+        }
+        try {
+            DurationStats stats = new DurationStats();
+            long afterId = 0L;
+            List<VisitorColumns> page;
+            do {
+                page = visitorRepository.findColumnsAfterId(afterId, PageRequest.of(0, maxPageSize));
+                for (VisitorColumns row : page) {
+                    if (matches(row, from, to, purpose)) {
+                        stats.add(row.getDuration(), row.isApproved());
+                    }
+                }
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == maxPageSize);
+            return stats.toDTO();
+        } catch (Exception e) {
+            logger.error("Error calculating visitor statistics", e);
+            throw new DatabaseOperationException("Error calculating visitor statistics", e);
+        }
+    }
+
+    private static boolean matches(VisitorColumns row, LocalDateTime from, LocalDateTime to, String purpose) {
+        // Compared like the purpose = ? of the database and the column store
+        if (purpose != null && (row.getPurpose() == null || PurposeOrder.COLLATION.compare(purpose, row.getPurpose()) != 0)) {
+            return false;
+        }
+        if (from == null && to == null) {
+            return true;
+        }
+        return row.getCheckIn() != null
+                && (from == null || !row.getCheckIn().isBefore(from))
+                && (to == null || row.getCheckIn().isBefore(to));
+    }
+
+    /**
+     * Pre-aggregated visitor count, total duration and approved count of every check-in bucket
+     * starting in {@code [from, to)}, per purpose, with visitors without a purpose reported as "Unknown".
+     *
+     * @param granularity {@code hour} or {@code day}, the default
+     * @param purpose     exact purpose, optional
+     */
+    public List<VisitRollupDTO> getVisitRollups(String granularity, LocalDateTime from, LocalDateTime to, String purpose) {
+        RollupGranularity bucket = RollupGranularity.fromParameter(granularity);
+        if (from == null || to == null) {
+            throw new InvalidRequestException("Both from and to are required");
+        }
+        if (!to.isAfter(from)) {
+            throw new InvalidRequestException("to must be after from");
+        }
+        if (bucket.bucketsBetween(from, to) > maxRollupBuckets) {
+            throw new InvalidRequestException("At most " + maxRollupBuckets + " buckets can be read at once");
+        }
+        try {
+            return mergeUnknownRollups(visitRollups.find(bucket, from, to, purpose));
+        } catch (Exception e) {
+            logger.error("Error reading visit rollups", e);
+            throw new DatabaseOperationException("Error reading visit rollups", e);
+        }
+    }
+
+    /**
+     * Reports the visitors without a purpose and those whose purpose is "Unknown" as one "Unknown"
+     * rollup, last in its bucket, as {@link #summarizeVisitorsByPurpose()} does. Rollups arrive
+     * ordered by bucket.
+     */
+    private static List<VisitRollupDTO> mergeUnknownRollups(List<VisitRollupDTO> rollups) {
+        List<VisitRollupDTO> merged = new ArrayList<>(rollups.size());
+        VisitRollupDTO unknown = null;
+        for (VisitRollupDTO rollup : rollups) {
+            if (unknown != null && !unknown.getBucketStart().equals(rollup.getBucketStart())) {
+                merged.add(unknown);
+                unknown = null;
+            }
+            if (!PurposeOrder.isUnknown(rollup.getPurpose())) {
+                merged.add(rollup);
+            } else if (unknown == null) {
+                unknown = new VisitRollupDTO(rollup.getBucketStart(), UNKNOWN_PURPOSE, rollup.getVisitorCount(),
+                        rollup.getTotalDuration(), rollup.getApprovedCount());
+            } else {
+                unknown.setVisitorCount(unknown.getVisitorCount() + rollup.getVisitorCount());
+                unknown.setTotalDuration(unknown.getTotalDuration() + rollup.getTotalDuration());
+                unknown.setApprovedCount(unknown.getApprovedCount() + rollup.getApprovedCount());
+            }
+        }
+        if (unknown != null) {
+            merged.add(unknown);
+        }
+        return merged;
+    }
+
+    // Number of visitors checked in and not checked out, from the occupancy counter
+    public long countVisitorsOnSite() {
+        try {
+            return occupancyTracker.count();
+        } catch (Exception e) {
+            logger.error("Error counting visitors on site", e);
+            throw new VisitorRetrievalException("Failed to count visitors on site", e);
+        }
+    }
+
+    /**
+     * Reads one page of the visitors checked in and not checked out, in id order. The ids come from
+     * the occupancy tracker and only the page is loaded, by primary key.
+     *
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param size   the requested page size, capped at {@code visitor.pagination.max-size}
+     */
+    public VisitorPage getVisitorsOnSite(String cursor, Integer size) {
+        VisitorCursor position = resolveCursor(cursor, VisitorSort.ID.name());
+        int pageSize = resolvePageSize(size);
+        try {
+            List<Long> ids = occupancyTracker.page(position.getAfterId(), pageSize + 1);
+            String nextCursor = null;
+            if (ids.size() > pageSize) {
+                ids = ids.subList(0, pageSize);
+                nextCursor = VisitorCursor.afterId(ids.get(pageSize - 1)).encode();
+            }
+            List<Visitor> visitors = new ArrayList<>(visitorRepository.findAllById(ids));
+            visitors.sort(Comparator.comparing(Visitor::getId));
+            return new VisitorPage(convertEntityToDTO(visitors), nextCursor, visitors.size());
+        } catch (Exception e) {
+            logger.error("Failed to retrieve visitors on site", e);
+            throw new VisitorRetrievalException("Failed to retrieve visitors on site", e);
+        }
+    }
+
+    // Approximate number of distinct contact numbers, from the HyperLogLog sketch
+    public long estimateUniqueContactNumbers() {
+        try {
+            return uniqueContactEstimator.estimate();
+        } catch (Exception e) {
+            logger.error("Error estimating unique contact numbers", e);
+            throw new VisitorRetrievalException("Failed to estimate unique contact numbers", e);
+        }
     }
 
     // Find unique contact numbers using a Set
     public Set<String> getUniqueContactNumbers() {
+        if (columnStore.isLoaded()) {
+            return new LinkedHashSet<>(columnStore.distinctContactNumbers());
+        }
         return visitorRepository.findAll().stream()
                 .map(Visitor::getContactNumber)
                 .collect(Collectors.toSet());
@@ -0,0 +1,15 @@
+-- Schema as previously generated by hibernate.ddl-auto=update. Existing databases are baselined at
+-- this version (spring.flyway.baseline-on-migrate), so this script only runs against an empty schema.
+CREATE TABLE IF NOT EXISTS visitors (
+    id             BIGINT       NOT NULL AUTO_INCREMENT,
+    name           VARCHAR(255),
+    contact_number VARCHAR(255),
+    email          VARCHAR(255),
+    purpose        VARCHAR(255),
+    check_in       DATETIME(6),
+    check_out      DATETIME(6),
+    duration       BIGINT       NOT NULL,
+    approved       BIT          NOT NULL,
+    created_date   DATETIME(6),
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,18 @@
+-- Keyset pages ordered by check-in, and the check-in window of searches and duration sums
+CREATE INDEX idx_visitors_check_in_id ON visitors (check_in, id);
+
+-- Keyset pages and GROUP BY on purpose, and the purpose filter of searches and duration sums
+CREATE INDEX idx_visitors_purpose_id ON visitors (purpose, id);
+
+-- Approved filter, still read in id order
+CREATE INDEX idx_visitors_approved_id ON visitors (approved, id);
+
+-- Checked-out / still-on-site filter
+CREATE INDEX idx_visitors_check_out_id ON visitors (check_out, id);
+
+-- DISTINCT keyset over contact numbers
+CREATE INDEX idx_visitors_contact_number ON visitors (contact_number);
+
+-- Prefix searches
+CREATE INDEX idx_visitors_name ON visitors (name);
+CREATE INDEX idx_visitors_email ON visitors (email);
@@ -0,0 +1,8 @@
+-- Backing table of the pooled-lo id generator on Visitor (MySQL has no sequences). Each replica
+-- reserves a block of ids with one update, so inserts no longer need the AUTO_INCREMENT value
+-- back and Hibernate can batch them. Seeded past the highest id handed out by AUTO_INCREMENT.
+CREATE TABLE visitors_seq (
+    next_val BIGINT NOT NULL
+);
+
+INSERT INTO visitors_seq (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM visitors;
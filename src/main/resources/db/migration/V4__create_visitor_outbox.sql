@@ -0,0 +1,12 @@
+-- Visitor change events waiting to be sent to Kafka. A row is inserted in the same transaction as
+-- the visitor change it describes and deleted by OutboxRelay once the broker has acknowledged it,
+-- so the auto-increment id is both the send order and the relay's cursor.
+CREATE TABLE visitor_outbox (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    event_id VARCHAR(36) NOT NULL,
+    event_type VARCHAR(32) NOT NULL,
+    visitor_id BIGINT NULL,
+    payload TEXT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,12 @@
+-- Visitor count, total duration and approved count per check-in hour and day and per purpose,
+-- maintained by VisitRollups. Visitors without a purpose are counted under an empty purpose, since
+-- primary key columns cannot be NULL; the primary key also serves the range reads of /visitors/rollups.
+CREATE TABLE visitor_rollups (
+    granularity VARCHAR(8) NOT NULL,
+    bucket_start DATETIME NOT NULL,
+    purpose VARCHAR(255) NOT NULL,
+    visitor_count BIGINT NOT NULL,
+    total_duration BIGINT NOT NULL,
+    approved_count BIGINT NOT NULL,
+    PRIMARY KEY (granularity, bucket_start, purpose)
+);
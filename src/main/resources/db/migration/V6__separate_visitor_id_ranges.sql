@@ -0,0 +1,9 @@
+-- Replicas built before V3 still insert through AUTO_INCREMENT while newer ones take ids from
+-- visitors_seq. An explicit id at or above the AUTO_INCREMENT counter moves the counter past it,
+-- so the old replicas would take ids from the blocks the new ones reserved. Moving the counter far
+-- past anything visitors_seq will hand out keeps the two ranges apart for the whole rollout.
+ALTER TABLE visitors AUTO_INCREMENT = 1000000000000;
+
+-- Rows the old replicas inserted after V3 seeded the table must not be handed out again
+UPDATE visitors_seq
+SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 1 FROM visitors WHERE id < 1000000000000));
@@ -0,0 +1,68 @@
+package com.mylogo.visitors.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DurationSketchTest {
+
+    @Test
+    void testQuantiles_WithinRelativeAccuracy() {
+        DurationSketch sketch = new DurationSketch();
+        long[] values = new Random(7).longs(100_000, 1, 1_000_000).sorted().toArray();
+        LongStream.of(values).forEach(sketch::add);
+
+        for (double quantile : new double[]{0.01, 0.5, 0.9, 0.99, 1.0}) {
+            long exact = values[(int) Math.ceil(quantile * values.length) - 1];
+            long estimate = sketch.quantile(quantile);
+            assertTrue(Math.abs(estimate - exact) <= exact * DurationSketch.DEFAULT_ACCURACY + 1,
+                    () -> "q" + quantile + ": " + estimate + " vs " + exact);
+        }
+    }
+
+    @Test
+    void testMerge_EqualsSketchOfBothInputs() {
+        DurationSketch left = new DurationSketch();
+        DurationSketch right = new DurationSketch();
+        DurationSketch both = new DurationSketch();
+        for (long value = -50; value <= 500; value++) {
+            (value % 2 == 0 ? left : right).add(value);
+            both.add(value);
+        }
+
+        left.merge(right);
+
+        assertEquals(both.count(), left.count());
+        for (double quantile = 0; quantile <= 1; quantile += 0.05) {
+            assertEquals(both.quantile(quantile), left.quantile(quantile));
+        }
+    }
+
+    @Test
+    void testRemove_ForgetsValues() {
+        DurationSketch sketch = new DurationSketch();
+        sketch.add(10);
+        sketch.add(0);
+        sketch.add(1000);
+        sketch.remove(1000);
+
+        assertEquals(2, sketch.count());
+        assertEquals(10L, sketch.quantile(1.0));
+        assertEquals(0L, sketch.quantile(0.5));
+
+        sketch.remove(10);
+        sketch.remove(0);
+        assertNull(sketch.quantile(0.5));
+    }
+
+    @Test
+    void testMerge_RejectsDifferentAccuracy() {
+        assertThrows(IllegalArgumentException.class, () -> new DurationSketch(0.01).merge(new DurationSketch(0.02)));
+    }
+}
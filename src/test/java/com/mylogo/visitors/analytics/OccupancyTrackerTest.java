@@ -0,0 +1,115 @@
+package com.mylogo.visitors.analytics;
+
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.repository.VisitTimes;
+import com.mylogo.visitors.repository.VisitorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OccupancyTrackerTest {
+
+    private static final LocalDateTime CHECK_IN = LocalDateTime.of(2024, 11, 12, 9, 0);
+
+    @Mock
+    private VisitorRepository visitorRepository;
+
+    private OccupancyTracker occupancyTracker;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        occupancyTracker = new OccupancyTracker(visitorRepository);
+    }
+
+    @Test
+    void testCount_LoadsFromDatabaseOnce() {
+        when(visitorRepository.findOnSiteIds()).thenReturn(List.of(3L, 5L));
+
+        assertEquals(2L, occupancyTracker.count());
+        assertEquals(2L, occupancyTracker.count());
+
+        verify(visitorRepository, times(1)).findOnSiteIds();
+    }
+
+    @Test
+    void testPage_OrdersIdsAfterCursor() {
+        when(visitorRepository.findOnSiteIds()).thenReturn(List.of(9L, 3L, 5L, 7L));
+
+        assertEquals(List.of(3L, 5L), occupancyTracker.page(null, 2));
+        assertEquals(List.of(7L, 9L), occupancyTracker.page(5L, 2));
+        assertEquals(List.of(), occupancyTracker.page(9L, 2));
+    }
+
+    @Test
+    void testCheckInAndCheckOut_MoveVisitorsOnAndOffSite() {
+        when(visitorRepository.findOnSiteIds()).thenReturn(List.of(3L));
+        occupancyTracker.load();
+        when(visitorRepository.findOnSiteIdsIn(List.of(4L))).thenReturn(List.of(4L));
+
+        occupancyTracker.onVisitorPatched(4L, VisitorPatch.builder().checkIn(CHECK_IN).approved(true).build(), null);
+        occupancyTracker.onVisitorPatched(3L, VisitorPatch.builder().checkOut(CHECK_IN).duration(30L).build(),
+                mock(VisitTimes.class));
+
+        assertEquals(1L, occupancyTracker.count());
+        assertEquals(List.of(4L), occupancyTracker.page(null, 10));
+    }
+
+    @Test
+    void testResync_ReplaysChangesMadeWhileReading() {
+        when(visitorRepository.findOnSiteIds()).thenReturn(List.of(3L, 5L));
+        occupancyTracker.load();
+        when(visitorRepository.findOnSiteIds()).thenAnswer(invocation -> {
+            // Committed after the ids below were read
+            occupancyTracker.onVisitorPatched(3L, VisitorPatch.builder().checkOut(CHECK_IN).build(), mock(VisitTimes.class));
+            occupancyTracker.onVisitorPatched(4L, VisitorPatch.builder().checkIn(CHECK_IN).build(), mock(VisitTimes.class));
+            return List.of(3L, 5L);
+        });
+
+        occupancyTracker.resync();
+
+        assertEquals(2L, occupancyTracker.count());
+        assertEquals(List.of(4L, 5L), occupancyTracker.page(null, 10));
+    }
+
+    @Test
+    void testWrites_FollowCheckInAndCheckOutColumns() {
+        when(visitorRepository.findOnSiteIds()).thenReturn(List.of());
+        occupancyTracker.load();
+
+        occupancyTracker.onVisitorsCreated(List.of(visitor(1L, CHECK_IN, null), visitor(2L, null, null),
+                visitor(3L, CHECK_IN, null)));
+        occupancyTracker.onVisitorSaved(visitor(1L, CHECK_IN, null), visitor(1L, CHECK_IN, CHECK_IN.plusHours(1)));
+        occupancyTracker.onVisitorDeleted(visitor(3L, CHECK_IN, null));
+
+        assertEquals(0L, occupancyTracker.count());
+    }
+
+    @Test
+    void testBulkCheckOut_RereadsChangedIds() {
+        when(visitorRepository.findOnSiteIds()).thenReturn(List.of(1L, 2L, 3L));
+        occupancyTracker.load();
+        when(visitorRepository.findOnSiteIdsIn(List.of(1L, 2L))).thenReturn(List.of(2L));
+
+        occupancyTracker.onVisitorsUpdated(List.of(1L, 2L));
+
+        assertEquals(List.of(2L, 3L), occupancyTracker.page(null, 10));
+        assertEquals(2L, occupancyTracker.count());
+    }
+
+    private static Visitor visitor(Long id, LocalDateTime checkIn, LocalDateTime checkOut) {
+        return new Visitor(id, "Visitor " + id, "9876543210", "visitor@yopmail.com", "Meeting", checkIn, checkOut, 0L,
+                true, CHECK_IN);
+    }
+}
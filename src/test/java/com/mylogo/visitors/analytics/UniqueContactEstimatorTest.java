@@ -0,0 +1,90 @@
+package com.mylogo.visitors.analytics;
+
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.repository.VisitorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.HyperLogLogOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class UniqueContactEstimatorTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private HyperLogLogOperations<String, String> hyperLogLog;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private VisitorRepository visitorRepository;
+
+    private UniqueContactEstimator estimator;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(redisTemplate.opsForHyperLogLog()).thenReturn(hyperLogLog);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        estimator = new UniqueContactEstimator(redisTemplate, visitorRepository, 2);
+    }
+
+    @Test
+    void testEstimate() {
+        when(hyperLogLog.size(UniqueContactEstimator.SKETCH_KEY)).thenReturn(3L);
+
+        assertEquals(3L, estimator.estimate());
+    }
+
+    @Test
+    void testSeedIfAbsent_LoadsDistinctContactsInBatches() {
+        when(redisTemplate.hasKey(UniqueContactEstimator.SEEDED_KEY)).thenReturn(false);
+        when(visitorRepository.findFirstContactNumbers(PageRequest.of(0, 2))).thenReturn(List.of("111", "222"));
+        when(visitorRepository.findContactNumbersAfter("222", PageRequest.of(0, 2))).thenReturn(List.of("333"));
+
+        estimator.seedIfAbsent();
+
+        verify(hyperLogLog).add(UniqueContactEstimator.SKETCH_KEY, "111", "222");
+        verify(hyperLogLog).add(UniqueContactEstimator.SKETCH_KEY, "333");
+        verify(valueOperations).set(UniqueContactEstimator.SEEDED_KEY, "3");
+    }
+
+    @Test
+    void testSeedIfAbsent_SkipsWhenAlreadySeeded() {
+        when(redisTemplate.hasKey(UniqueContactEstimator.SEEDED_KEY)).thenReturn(true);
+
+        estimator.seedIfAbsent();
+
+        verifyNoInteractions(visitorRepository);
+    }
+
+    @Test
+    void testOnVisitorSaved_AddsNewContactNumbersOnly() {
+        Visitor previous = new Visitor();
+        previous.setContactNumber("111");
+        Visitor current = new Visitor();
+        current.setContactNumber("111");
+
+        estimator.onVisitorSaved(previous, current);
+        verify(hyperLogLog, never()).add(any(), any());
+
+        current.setContactNumber("222");
+        estimator.onVisitorSaved(previous, current);
+        verify(hyperLogLog).add(UniqueContactEstimator.SKETCH_KEY, "222");
+    }
+}
@@ -0,0 +1,108 @@
+package com.mylogo.visitors.analytics;
+
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.repository.VisitTimes;
+import com.mylogo.visitors.repository.VisitorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VisitDurationTotalTest {
+
+    @Mock
+    private VisitorRepository visitorRepository;
+
+    private VisitDurationTotal visitDurationTotal;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        visitDurationTotal = new VisitDurationTotal(visitorRepository);
+    }
+
+    @Test
+    void testGet_SeedsFromDatabaseOnce() {
+        when(visitorRepository.sumDuration()).thenReturn(100L);
+
+        assertEquals(100L, visitDurationTotal.get());
+        assertEquals(100L, visitDurationTotal.get());
+
+        verify(visitorRepository, times(1)).sumDuration();
+    }
+
+    @Test
+    void testWrites_AdjustRunningTotal() {
+        when(visitorRepository.sumDuration()).thenReturn(100L);
+        visitDurationTotal.get();
+
+        visitDurationTotal.onVisitorSaved(null, visitor(10L));
+        visitDurationTotal.onVisitorSaved(visitor(10L), visitor(4L));
+        visitDurationTotal.onVisitorDeleted(visitor(4L));
+
+        assertEquals(100L, visitDurationTotal.get());
+    }
+
+    @Test
+    void testResync_ReplacesRunningTotal() {
+        when(visitorRepository.sumDuration()).thenReturn(100L, 250L);
+        visitDurationTotal.get();
+        visitDurationTotal.onVisitorSaved(null, visitor(10L));
+
+        visitDurationTotal.resync();
+
+        assertEquals(250L, visitDurationTotal.get());
+    }
+
+    @Test
+    void testPatchedDuration_ResyncsOnNextRead() {
+        when(visitorRepository.sumDuration()).thenReturn(100L, 130L);
+        visitDurationTotal.get();
+
+        visitDurationTotal.onVisitorPatched(1L, VisitorPatch.builder().approved(true).build(), null);
+        assertEquals(100L, visitDurationTotal.get());
+
+        visitDurationTotal.onVisitorPatched(1L, VisitorPatch.builder().duration(40L).build(), null);
+        assertEquals(130L, visitDurationTotal.get());
+    }
+
+    @Test
+    void testCheckOut_AdjustsByReportedPreviousDuration() {
+        when(visitorRepository.sumDuration()).thenReturn(100L);
+        visitDurationTotal.get();
+
+        VisitTimes previous = mock(VisitTimes.class);
+        when(previous.getDuration()).thenReturn(5L);
+
+        visitDurationTotal.onVisitorPatched(1L, VisitorPatch.builder().duration(45L).build(), previous);
+
+        assertEquals(140L, visitDurationTotal.get());
+        verify(visitorRepository, times(1)).sumDuration();
+    }
+
+    @Test
+    void testBulkCheckOut_ResyncsOnNextRead() {
+        when(visitorRepository.sumDuration()).thenReturn(100L, 103L);
+        visitDurationTotal.get();
+
+        visitDurationTotal.onVisitorsUpdated(List.of(1L, 2L));
+
+        assertEquals(103L, visitDurationTotal.get());
+    }
+
+    private Visitor visitor(long duration) {
+        Visitor visitor = new Visitor();
+        visitor.setId(1L);
+        visitor.setDuration(duration);
+        return visitor;
+    }
+}
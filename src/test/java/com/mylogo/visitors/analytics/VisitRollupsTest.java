@@ -0,0 +1,181 @@
+package com.mylogo.visitors.analytics;
+
+import com.mylogo.visitors.dto.VisitRollupDTO;
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.repository.VisitTimes;
+import com.mylogo.visitors.repository.VisitorRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Maintains the rollups against H2 in MySQL mode, with the schema built by the Flyway migrations.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:visitor-rollups;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// The recomputes commit their own transactions, as they do in the application
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VisitRollupsTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 11, 12, 0, 0);
+
+    @Autowired
+    private VisitorRepository visitorRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JdbcTemplate jdbcTemplate;
+    private VisitRollups rollups;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        rollups = new VisitRollups(jdbcTemplate, visitorRepository, transactionManager, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM visitor_rollups");
+        visitorRepository.deleteAll();
+    }
+
+    @Test
+    void testFlush_RecomputesTouchedHoursAndTheirDay() {
+        List<Visitor> created = visitorRepository.saveAll(List.of(
+                visitor("Meeting", DAY.plusHours(9).plusMinutes(5), 30L, true),
+                visitor("Meeting", DAY.plusHours(9).plusMinutes(40), 20L, false),
+                visitor(null, DAY.plusHours(14), 10L, true),
+                visitor("Meeting", null, 99L, true)));
+        rollups.onVisitorsCreated(created);
+
+        rollups.flush();
+
+        assertEquals(List.of(
+                        new VisitRollupDTO(DAY.plusHours(9), "Meeting", 2L, 50L, 1L),
+                        new VisitRollupDTO(DAY.plusHours(14), null, 1L, 10L, 1L)),
+                rollups.find(RollupGranularity.HOUR, DAY, DAY.plusDays(1), null));
+        assertEquals(List.of(
+                        new VisitRollupDTO(DAY, null, 1L, 10L, 1L),
+                        new VisitRollupDTO(DAY, "Meeting", 2L, 50L, 1L)),
+                rollups.find(RollupGranularity.DAY, DAY, DAY.plusDays(1), null));
+    }
+
+    @Test
+    void testPatchedCheckIn_MovesVisitorBetweenHours() {
+        Visitor saved = visitorRepository.save(visitor("Meeting", DAY.plusHours(9), 30L, false));
+        rollups.onVisitorSaved(null, saved);
+        rollups.flush();
+
+        LocalDateTime moved = DAY.plusDays(1).plusHours(11);
+        saved.setCheckIn(moved);
+        visitorRepository.save(saved);
+        VisitTimes previous = mock(VisitTimes.class);
+        when(previous.getCheckIn()).thenReturn(DAY.plusHours(9));
+        rollups.onVisitorPatched(saved.getId(), VisitorPatch.builder().checkIn(moved).build(), previous);
+        rollups.flush();
+
+        assertEquals(List.of(new VisitRollupDTO(DAY.plusDays(1), "Meeting", 1L, 30L, 0L)),
+                rollups.find(RollupGranularity.DAY, DAY, DAY.plusDays(2), "Meeting"));
+        assertEquals(List.of(new VisitRollupDTO(moved, "Meeting", 1L, 30L, 0L)),
+                rollups.find(RollupGranularity.HOUR, DAY, DAY.plusDays(2), null));
+    }
+
+    @Test
+    void testBulkUpdate_ReadsCheckInsBack() {
+        Visitor saved = visitorRepository.save(visitor("Interview", DAY.plusHours(9), 30L, false));
+        rollups.onVisitorSaved(null, saved);
+        rollups.flush();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> visitorRepository.approveByIds(List.of(saved.getId())));
+        rollups.onVisitorsUpdated(List.of(saved.getId()));
+        rollups.flush();
+
+        assertEquals(1L, rollups.find(RollupGranularity.DAY, DAY, DAY.plusDays(1), "Interview").get(0).getApprovedCount());
+    }
+
+    @Test
+    void testRebuildIfEmpty_AggregatesEveryVisitor() {
+        visitorRepository.saveAll(List.of(
+                visitor("Meeting", DAY.plusHours(9), 30L, true),
+                visitor("Meeting", DAY.plusHours(10), 20L, false),
+                visitor("Interview", DAY.plusDays(1), 10L, true)));
+
+        rollups.rebuildIfEmpty();
+
+        assertEquals(List.of(
+                        new VisitRollupDTO(DAY, "Meeting", 2L, 50L, 1L),
+                        new VisitRollupDTO(DAY.plusDays(1), "Interview", 1L, 10L, 1L)),
+                rollups.find(RollupGranularity.DAY, DAY, DAY.plusDays(2), null));
+        assertEquals(3, rollups.find(RollupGranularity.HOUR, DAY, DAY.plusDays(2), null).size());
+    }
+
+    @Test
+    void testRebuild_MergesPurposesDifferingOnlyInCase() {
+        visitorRepository.saveAll(List.of(
+                visitor("Meeting", DAY.plusHours(9), 30L, true),
+                visitor("meeting", DAY.plusHours(9), 20L, false)));
+
+        rollups.rebuild();
+
+        List<VisitRollupDTO> days = rollups.find(RollupGranularity.DAY, DAY, DAY.plusDays(1), null);
+        assertEquals(1, days.size());
+        assertEquals(2L, days.get(0).getVisitorCount());
+        assertEquals(50L, days.get(0).getTotalDuration());
+        assertEquals(1, rollups.find(RollupGranularity.HOUR, DAY, DAY.plusDays(1), null).size());
+    }
+
+    @Test
+    void testFind_UnknownAlsoMatchesVisitorsWithoutPurpose() {
+        visitorRepository.saveAll(List.of(
+                visitor(null, DAY.plusHours(9), 30L, true),
+                visitor("Unknown", DAY.plusHours(10), 20L, false),
+                visitor("Meeting", DAY.plusHours(11), 10L, false)));
+
+        rollups.rebuild();
+
+        assertEquals(2, rollups.find(RollupGranularity.DAY, DAY, DAY.plusDays(1), "Unknown").size());
+    }
+
+    private static Visitor visitor(String purpose, LocalDateTime checkIn, long duration, boolean approved) {
+        return new Visitor(null, "Visitor", "9876543210", "visitor@yopmail.com", purpose, checkIn, null, duration,
+                approved, DAY);
+    }
+
+    // Replaces the application class so that only the persistence layer is started.
+    @SpringBootConfiguration
+    @EntityScan(basePackageClasses = Visitor.class)
+    @EnableJpaRepositories(basePackageClasses = VisitorRepository.class)
+    static class RollupTestConfiguration {
+    }
+}
@@ -0,0 +1,248 @@
+package com.mylogo.visitors.analytics;
+
+import com.mylogo.visitors.dto.PurposeSummaryDTO;
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.dto.VisitorStatsDTO;
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.repository.VisitorColumns;
+import com.mylogo.visitors.repository.VisitorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+class VisitorColumnStoreTest {
+
+    private static final LocalDateTime CHECK_IN = LocalDateTime.of(2024, 11, 12, 9, 0);
+
+    @Mock
+    private VisitorRepository visitorRepository;
+
+    private VisitorColumnStore columnStore;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        columnStore = new VisitorColumnStore(visitorRepository, 2);
+    }
+
+    @Test
+    void testLoad_ReadsKeysetPages() {
+        when(visitorRepository.findColumnsAfterId(0L, PageRequest.of(0, 2))).thenReturn(List.of(
+                columns(1L, 10L, CHECK_IN, true, "Meeting", "111"),
+                columns(2L, 20L, CHECK_IN.plusDays(1), false, "Interview", "222")));
+        when(visitorRepository.findColumnsAfterId(2L, PageRequest.of(0, 2))).thenReturn(List.of(
+                columns(3L, 30L, null, false, null, "111")));
+
+        assertFalse(columnStore.isLoaded());
+        columnStore.load();
+
+        assertTrue(columnStore.isLoaded());
+        assertEquals(60L, columnStore.sumDuration(null, null, null));
+        assertEquals(List.of("111", "222"), columnStore.distinctContactNumbers());
+    }
+
+    @Test
+    void testLoad_FailureLeavesStoreUnloaded() {
+        when(visitorRepository.findColumnsAfterId(0L, PageRequest.of(0, 2))).thenThrow(new RuntimeException("Database error"));
+
+        columnStore.load();
+
+        assertFalse(columnStore.isLoaded());
+    }
+
+    @Test
+    void testSumDuration_FiltersOnCheckInAndPurpose() {
+        columnStore.onVisitorsCreated(List.of(
+                visitor(1L, 10L, CHECK_IN, "Meeting", "111"),
+                visitor(2L, 20L, CHECK_IN.plusDays(1), "Meeting", "222"),
+                visitor(3L, 40L, CHECK_IN.plusDays(1), "Interview", "333"),
+                visitor(4L, 80L, null, "Meeting", "444")));
+
+        assertEquals(110L, columnStore.sumDuration(null, null, "Meeting"));
+        assertEquals(10L, columnStore.sumDuration(CHECK_IN, CHECK_IN.plusDays(1), null));
+        assertEquals(20L, columnStore.sumDuration(CHECK_IN.plusDays(1), null, "Meeting"));
+        assertEquals(0L, columnStore.sumDuration(null, null, "Delivery"));
+    }
+
+    @Test
+    void testResync_ReplaysWritesMadeWhileReading() {
+        columnStore.onVisitorsCreated(List.of(visitor(1L, 10L, CHECK_IN, "Meeting", "111")));
+        when(visitorRepository.findColumnsAfterId(0L, PageRequest.of(0, 2))).thenAnswer(invocation -> {
+            // Committed after the rows below were read
+            columnStore.onVisitorSaved(null, visitor(1L, 15L, CHECK_IN, "Meeting", "111"));
+            columnStore.onVisitorsCreated(List.of(visitor(2L, 20L, CHECK_IN, "Interview", "222")));
+            return List.of(columns(1L, 10L, CHECK_IN, false, "Meeting", "111"));
+        });
+
+        columnStore.resync();
+
+        assertEquals(35L, columnStore.sumDuration(null, null, null));
+        assertEquals(List.of(
+                new PurposeSummaryDTO("Interview", 1L, 20L),
+                new PurposeSummaryDTO("Meeting", 1L, 15L)), columnStore.summarizeByPurpose());
+    }
+
+    @Test
+    void testPurposeFilter_ComparesLikeTheDatabaseCollation() {
+        columnStore.onVisitorsCreated(List.of(
+                visitor(1L, 10L, CHECK_IN, "Meeting", "111"),
+                visitor(2L, 20L, CHECK_IN, "meeting", "222"),
+                visitor(3L, 40L, CHECK_IN, "Interview", "333")));
+
+        assertEquals(30L, columnStore.sumDuration(null, null, "MEETING"));
+        assertEquals(2L, columnStore.stats(null, null, "meeting").getVisitorCount());
+        assertEquals(List.of(
+                new PurposeSummaryDTO("Interview", 1L, 40L),
+                new PurposeSummaryDTO("Meeting", 2L, 30L)), columnStore.summarizeByPurpose());
+    }
+
+    @Test
+    void testSummarizeByPurpose_GroupsDictionaryCodes() {
+        columnStore.onVisitorsCreated(List.of(
+                visitor(1L, 10L, CHECK_IN, "Meeting", "111"),
+                visitor(2L, 20L, CHECK_IN, null, "222"),
+                visitor(3L, 40L, CHECK_IN, "Interview", "333"),
+                visitor(4L, 80L, CHECK_IN, "Meeting", "444")));
+
+        List<PurposeSummaryDTO> summaries = columnStore.summarizeByPurpose();
+
+        assertEquals(List.of(
+                new PurposeSummaryDTO(null, 1L, 20L),
+                new PurposeSummaryDTO("Interview", 1L, 40L),
+                new PurposeSummaryDTO("Meeting", 2L, 90L)), summaries);
+    }
+
+    @Test
+    void testWrites_KeepColumnsCurrent() {
+        columnStore.onVisitorsCreated(List.of(
+                visitor(1L, 10L, CHECK_IN, "Meeting", "111"),
+                visitor(2L, 20L, CHECK_IN, "Meeting", "222")));
+
+        columnStore.onVisitorSaved(null, visitor(1L, 15L, CHECK_IN, "Interview", "333"));
+        columnStore.onVisitorPatched(2L, VisitorPatch.builder().duration(25L).contactNumber("333").build(), null);
+        columnStore.onVisitorDeleted(visitor(1L, 15L, CHECK_IN, "Interview", "333"));
+
+        assertEquals(25L, columnStore.sumDuration(null, null, null));
+        assertEquals(List.of(new PurposeSummaryDTO("Meeting", 1L, 25L)), columnStore.summarizeByPurpose());
+        assertEquals(List.of("333"), columnStore.distinctContactNumbers());
+    }
+
+    @Test
+    void testBulkUpdate_RereadsChangedRows() {
+        columnStore.onVisitorsCreated(List.of(visitor(1L, 10L, CHECK_IN, "Meeting", "111")));
+        when(visitorRepository.findColumnsByIds(List.of(1L))).thenReturn(List.of(
+                columns(1L, 70L, CHECK_IN, true, "Meeting", "111")));
+
+        columnStore.onVisitorsUpdated(List.of(1L));
+
+        assertEquals(70L, columnStore.sumDuration(null, null, "Meeting"));
+    }
+
+    @Test
+    void testStats_MergesPurposeAggregates() {
+        columnStore.onVisitorsCreated(List.of(
+                visitor(1L, 10L, CHECK_IN, "Meeting", "111"),
+                visitor(2L, 30L, CHECK_IN, "Interview", "222"),
+                visitor(3L, 20L, CHECK_IN, "Meeting", "333")));
+        columnStore.onVisitorPatched(3L, VisitorPatch.builder().approved(true).build(), null);
+
+        assertEquals(new VisitorStatsDTO(3L, 60L, 10L, 30L, 20.0, 1 / 3.0, 20L, 30L, 30L),
+                columnStore.stats(null, null, null));
+        assertEquals(new VisitorStatsDTO(2L, 30L, 10L, 20L, 15.0, 0.5, 10L, 20L, 20L),
+                columnStore.stats(null, null, "Meeting"));
+        assertEquals(new VisitorStatsDTO(0L, 0L, null, null, null, null, null, null, null),
+                columnStore.stats(null, null, "Delivery"));
+    }
+
+    @Test
+    void testStats_DeletingExtremeRefreshesBounds() {
+        columnStore.onVisitorsCreated(List.of(
+                visitor(1L, 10L, CHECK_IN, "Meeting", "111"),
+                visitor(2L, 20L, CHECK_IN, "Meeting", "222"),
+                visitor(3L, 30L, CHECK_IN, "Meeting", "333")));
+
+        columnStore.onVisitorDeleted(visitor(3L, 30L, CHECK_IN, "Meeting", "333"));
+        columnStore.onVisitorSaved(null, visitor(1L, 15L, CHECK_IN, "Meeting", "111"));
+
+        VisitorStatsDTO stats = columnStore.stats(null, null, "Meeting");
+        assertEquals(15L, stats.getMinDuration());
+        assertEquals(20L, stats.getMaxDuration());
+        assertEquals(20L, stats.getP99Duration());
+    }
+
+    @Test
+    void testStats_CheckInWindowScansColumns() {
+        columnStore.onVisitorsCreated(List.of(
+                visitor(1L, 10L, CHECK_IN, "Meeting", "111"),
+                visitor(2L, 20L, CHECK_IN.plusDays(1), "Meeting", "222"),
+                visitor(3L, 40L, CHECK_IN.plusDays(1), "Interview", "333"),
+                visitor(4L, 80L, null, "Meeting", "444")));
+
+        VisitorStatsDTO stats = columnStore.stats(CHECK_IN.plusDays(1), null, null);
+
+        assertEquals(2L, stats.getVisitorCount());
+        assertEquals(60L, stats.getTotalDuration());
+        assertEquals(20L, stats.getP50Duration());
+    }
+
+    @Test
+    void testManyRows_GrowColumns() {
+        for (long id = 1; id <= 3000; id++) {
+            columnStore.onVisitorSaved(null, visitor(id, 1L, CHECK_IN, "Purpose " + (id % 7), String.valueOf(id % 100)));
+        }
+
+        assertEquals(3000L, columnStore.sumDuration(null, null, null));
+        assertEquals(7, columnStore.summarizeByPurpose().size());
+        assertEquals(100, columnStore.distinctContactNumbers().size());
+    }
+
+    private static Visitor visitor(Long id, long duration, LocalDateTime checkIn, String purpose, String contactNumber) {
+        return new Visitor(id, "Visitor " + id, contactNumber, "visitor" + id + "@yopmail.com", purpose, checkIn, null,
+                duration, false, CHECK_IN);
+    }
+
+    private static VisitorColumns columns(Long id, long duration, LocalDateTime checkIn, boolean approved,
+                                          String purpose, String contactNumber) {
+        return new VisitorColumns() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public long getDuration() {
+                return duration;
+            }
+
+            @Override
+            public LocalDateTime getCheckIn() {
+                return checkIn;
+            }
+
+            @Override
+            public boolean isApproved() {
+                return approved;
+            }
+
+            @Override
+            public String getPurpose() {
+                return purpose;
+            }
+
+            @Override
+            public String getContactNumber() {
+                return contactNumber;
+            }
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package com.mylogo.visitors.cache;
+
+import com.mylogo.visitors.entity.Visitor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MissingVisitorCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MissingVisitorCache missingVisitorCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        missingVisitorCache = new MissingVisitorCache(new ConcurrentMapCacheManager(), meterRegistry);
+    }
+
+    @Test
+    void testMarkMissing_CountsHitsAndMisses() {
+        assertFalse(missingVisitorCache.isKnownMissing(7L));
+        missingVisitorCache.markMissing(7L);
+        assertTrue(missingVisitorCache.isKnownMissing(7L));
+        assertTrue(missingVisitorCache.isKnownMissing(7L));
+
+        assertEquals(2.0, meterRegistry.get("visitor.cache.missing").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("visitor.cache.missing").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void testOnVisitorCreated_ClearsMissingEntry() {
+        missingVisitorCache.markMissing(7L);
+        Visitor created = new Visitor();
+        created.setId(7L);
+
+        missingVisitorCache.onVisitorSaved(null, created);
+
+        assertFalse(missingVisitorCache.isKnownMissing(7L));
+    }
+
+    @Test
+    void testOnVisitorsCreated_ClearsOnlyCreatedIds() {
+        missingVisitorCache.markMissing(7L);
+        missingVisitorCache.markMissing(8L);
+        Visitor created = new Visitor();
+        created.setId(7L);
+
+        missingVisitorCache.onVisitorsCreated(List.of(created));
+
+        assertFalse(missingVisitorCache.isKnownMissing(7L));
+        assertTrue(missingVisitorCache.isKnownMissing(8L));
+    }
+}
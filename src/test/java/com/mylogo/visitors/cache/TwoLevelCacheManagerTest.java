@@ -0,0 +1,105 @@
+package com.mylogo.visitors.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class TwoLevelCacheManagerTest {
+
+    private ConcurrentMapCacheManager remote;
+    private StringRedisTemplate redisTemplate;
+    private TwoLevelCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        remote = new ConcurrentMapCacheManager();
+        redisTemplate = mock(StringRedisTemplate.class);
+        cacheManager = new TwoLevelCacheManager(remote, redisTemplate, 100, Duration.ofMinutes(1), Duration.ZERO);
+    }
+
+    @Test
+    void testPut_PublishesInvalidation() {
+        cacheManager.getCache("visitor").put(1L, "John Doe");
+
+        verify(redisTemplate).convertAndSend(TwoLevelCacheManager.INVALIDATION_CHANNEL,
+                cacheManager.getInstanceId() + "|E|visitor|1");
+    }
+
+    @Test
+    void testOnMessage_FromOtherReplicaEvictsLocalCopy() {
+        Cache cache = cacheManager.getCache("visitor");
+        cache.put(1L, "John Doe");
+        remote.getCache("visitor").put(1L, "Jane Smith");
+
+        cacheManager.onMessage(message("other-instance|E|visitor|1"), null);
+
+        assertEquals("Jane Smith", cache.get(1L).get());
+    }
+
+    @Test
+    void testOnMessage_OwnMessageIgnored() {
+        Cache cache = cacheManager.getCache("visitor");
+        cache.put(1L, "John Doe");
+        remote.getCache("visitor").put(1L, "Jane Smith");
+
+        cacheManager.onMessage(message(cacheManager.getInstanceId() + "|E|visitor|1"), null);
+
+        assertEquals("John Doe", cache.get(1L).get());
+    }
+
+    @Test
+    void testOnMessage_ClearDropsAllLocalEntries() {
+        Cache cache = cacheManager.getCache("visitors");
+        cache.put("all", "old");
+        remote.getCache("visitors").put("all", "new");
+
+        cacheManager.onMessage(message("other-instance|C|visitors|"), null);
+
+        assertEquals("new", cache.get("all").get());
+    }
+
+    @Test
+    void testEvictAll_DeletesRedisKeysInOneCallAndPublishesOneMessage() {
+        TwoLevelCacheManager redisBacked = new TwoLevelCacheManager(
+                RedisCacheManager.builder(mock(RedisConnectionFactory.class)).build(), redisTemplate, 100,
+                Duration.ofMinutes(1), Duration.ZERO);
+
+        ((TwoLevelCache) redisBacked.getCache("visitor")).evictAll(List.of(1L, 2L));
+
+        verify(redisTemplate).delete(List.of("visitor::1", "visitor::2"));
+        verify(redisTemplate).convertAndSend(TwoLevelCacheManager.INVALIDATION_CHANNEL,
+                redisBacked.getInstanceId() + "|M|visitor|1\n2");
+    }
+
+    @Test
+    void testOnMessage_ManyKeysEvictsEachLocalCopy() {
+        Cache cache = cacheManager.getCache("visitor");
+        cache.put(1L, "John Doe");
+        cache.put(2L, "Jane Smith");
+        remote.getCache("visitor").put(1L, "John Roe");
+        remote.getCache("visitor").put(2L, "Jane Roe");
+
+        cacheManager.onMessage(message("other-instance|M|visitor|1\n2"), null);
+
+        assertEquals("John Roe", cache.get(1L).get());
+        assertEquals("Jane Roe", cache.get(2L).get());
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(TwoLevelCacheManager.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
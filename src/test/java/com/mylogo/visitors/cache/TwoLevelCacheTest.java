@@ -0,0 +1,235 @@
+package com.mylogo.visitors.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class TwoLevelCacheTest {
+
+    private Cache remote;
+    private CacheInvalidationPublisher publisher;
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    void setUp() {
+        remote = spy(new ConcurrentMapCache("visitor"));
+        publisher = mock(CacheInvalidationPublisher.class);
+        cache = new TwoLevelCache("visitor", remote, Caffeine.newBuilder().maximumSize(10).build(), publisher,
+                Duration.ofMinutes(1), Duration.ZERO, Runnable::run);
+    }
+
+    @Test
+    void testGet_ServedLocallyAfterFirstRemoteRead() {
+        remote.put(1L, "John Doe");
+
+        assertEquals("John Doe", cache.get(1L).get());
+        assertEquals("John Doe", cache.get(1L).get());
+
+        verify(remote, times(1)).get(1L);
+    }
+
+    @Test
+    void testPut_WritesBothLevelsAndPublishes() {
+        cache.put(1L, "John Doe");
+
+        assertEquals("John Doe", cache.get(1L).get());
+        verify(remote, never()).get(1L);
+        assertEquals("John Doe", remote.get(1L).get());
+        verify(publisher).publish("visitor", 1L);
+    }
+
+    @Test
+    void testEvictLocal_NextReadGoesToRemote() {
+        cache.put(1L, "John Doe");
+        remote.put(1L, "Jane Smith");
+
+        cache.evictLocal("1");
+
+        assertEquals("Jane Smith", cache.get(1L).get());
+    }
+
+    @Test
+    void testEvict_RemovesBothLevelsAndPublishes() {
+        cache.put(1L, "John Doe");
+
+        cache.evict(1L);
+
+        assertNull(cache.get(1L));
+        verify(publisher, times(2)).publish("visitor", 1L);
+    }
+
+    @Test
+    void testEvictAll_RemovesBothLevelsAndPublishesOnce() {
+        cache.put(1L, "John Doe");
+        cache.put(2L, "Jane Smith");
+
+        cache.evictAll(List.of(1L, 2L));
+
+        assertNull(cache.get(1L));
+        assertNull(cache.get(2L));
+        verify(publisher).publishAll("visitor", List.of(1L, 2L));
+    }
+
+    @Test
+    void testGetWithLoader_CachesLoadedValueInBothLevels() {
+        assertEquals("John Doe", cache.get(1L, () -> "John Doe"));
+        assertEquals("John Doe", cache.get(1L, () -> "unexpected"));
+
+        verify(remote, times(1)).put(1L, "John Doe");
+        verify(publisher, never()).publish(any(), any());
+    }
+
+    @Test
+    void testGetWithLoader_ConcurrentMissesShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Callable<String> loader = () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            release.await();
+            return "John Doe";
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.get(1L, loader)));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> cache.get(1L, loader)));
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("John Doe", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGetWithLoader_LoaderFailureIsWrapped() {
+        IllegalStateException failure = new IllegalStateException("Database error");
+
+        Cache.ValueRetrievalException exception = assertThrows(Cache.ValueRetrievalException.class,
+                () -> cache.get(1L, () -> {
+                    throw failure;
+                }));
+
+        assertSame(failure, exception.getCause());
+        assertEquals("Jane Smith", cache.get(1L, () -> "Jane Smith"));
+    }
+
+    @Test
+    void testGetWithLoader_RefreshesAheadOfExpiry() throws Exception {
+        cache = new TwoLevelCache("visitor", remote, Caffeine.newBuilder().maximumSize(10).build(), publisher,
+                Duration.ofMinutes(1), Duration.ofMinutes(1).minusMillis(1), Runnable::run);
+        cache.get(1L, () -> "John Doe");
+        Thread.sleep(5);
+
+        assertEquals("John Doe", cache.get(1L, () -> "Jane Smith"));
+
+        for (int i = 0; i < 100 && !"Jane Smith".equals(remote.get(1L).get()); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals("Jane Smith", remote.get(1L).get());
+        assertEquals("Jane Smith", cache.get(1L).get());
+    }
+
+    @Test
+    void testGetWithLoader_RefreshDoesNotRestoreEvictedKey() throws Exception {
+        ExecutorService refresher = Executors.newSingleThreadExecutor();
+        try {
+            cache = new TwoLevelCache("visitor", remote, Caffeine.newBuilder().maximumSize(10).build(), publisher,
+                    Duration.ofMinutes(1), Duration.ofMinutes(1).minusMillis(1), refresher);
+            cache.get(1L, () -> "John Doe");
+            Thread.sleep(5);
+            CountDownLatch loading = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+
+            cache.get(1L, () -> {
+                loading.countDown();
+                release.await();
+                return "Jane Smith";
+            });
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            cache.evict(1L);
+            release.countDown();
+            refresher.shutdown();
+            assertTrue(refresher.awaitTermination(5, TimeUnit.SECONDS));
+
+            assertNull(remote.get(1L));
+            assertNull(cache.get(1L));
+        } finally {
+            refresher.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGetWithLoader_MissAfterEvictDoesNotJoinRefresh() throws Exception {
+        ExecutorService refresher = Executors.newSingleThreadExecutor();
+        try {
+            cache = new TwoLevelCache("visitor", remote, Caffeine.newBuilder().maximumSize(10).build(), publisher,
+                    Duration.ofMinutes(1), Duration.ofMinutes(1).minusMillis(1), refresher);
+            cache.get(1L, () -> "John Doe");
+            Thread.sleep(5);
+            CountDownLatch loading = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            cache.get(1L, () -> {
+                loading.countDown();
+                release.await();
+                return "John Doe";
+            });
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            cache.evict(1L);
+
+            assertEquals("Jane Smith", cache.get(1L, () -> "Jane Smith"));
+            release.countDown();
+        } finally {
+            refresher.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGetWithLoader_RejectedRefreshIsSkipped() throws Exception {
+        cache = new TwoLevelCache("visitor", remote, Caffeine.newBuilder().maximumSize(10).build(), publisher,
+                Duration.ofMinutes(1), Duration.ofMinutes(1).minusMillis(1), command -> {
+                    throw new RejectedExecutionException("Queue full");
+                });
+        cache.get(1L, () -> "John Doe");
+        Thread.sleep(5);
+
+        assertEquals("John Doe", cache.get(1L, () -> "Jane Smith"));
+        assertEquals("John Doe", remote.get(1L).get());
+    }
+}
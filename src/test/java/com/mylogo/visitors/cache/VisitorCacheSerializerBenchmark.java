@@ -0,0 +1,110 @@
+package com.mylogo.visitors.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mylogo.visitors.dto.VisitorDTO;
+import com.mylogo.visitors.dto.VisitorPage;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares cache value serializers on a single visitor and on a 50-visitor page: bytes stored,
+ * encode and decode time, and, when a Redis URI is given, {@code MEMORY USAGE} of the stored key.
+ * <p>
+ * Not a unit test; run it from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.mylogo.visitors.cache.VisitorCacheSerializerBenchmark -Dexec.args="redis://localhost:6379"}.
+ */
+public class VisitorCacheSerializerBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int MEASURED_ITERATIONS = 50_000;
+
+    public static void main(String[] args) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+        Map<String, RedisSerializer<Object>> serializers = new LinkedHashMap<>();
+        serializers.put("jackson-json", new GenericJackson2JsonRedisSerializer(objectMapper));
+        serializers.put("jdk", new JdkSerializationRedisSerializer());
+        serializers.put("binary", new VisitorCacheSerializer(-1));
+        serializers.put("binary+deflate", new VisitorCacheSerializer(512));
+
+        List<VisitorDTO> visitors = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            visitors.add(VisitorCacheSerializerTest.visitor(id));
+        }
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("visitor", visitors.get(0));
+        values.put("page(50)", new VisitorPage(visitors, "MXxJRHw1MA", visitors.size()));
+
+        RedisCommands<byte[], byte[]> redis = null;
+        StatefulRedisConnection<byte[], byte[]> connection = null;
+        RedisClient client = null;
+        if (args.length > 0) {
+            client = RedisClient.create(args[0]);
+            connection = client.connect(ByteArrayCodec.INSTANCE);
+            redis = connection.sync();
+        }
+
+        System.out.printf("%-10s %-16s %8s %12s %12s %12s%n",
+                "value", "serializer", "bytes", "encode ns", "decode ns", "redis bytes");
+        try {
+            for (Map.Entry<String, Object> value : values.entrySet()) {
+                for (Map.Entry<String, RedisSerializer<Object>> serializer : serializers.entrySet()) {
+                    run(value.getKey(), value.getValue(), serializer.getKey(), serializer.getValue(), redis);
+                }
+            }
+        } finally {
+            if (connection != null) {
+                connection.close();
+                client.shutdown();
+            }
+        }
+    }
+
+    private static void run(String valueName, Object value, String serializerName, RedisSerializer<Object> serializer,
+                            RedisCommands<byte[], byte[]> redis) {
+        byte[] bytes = serializer.serialize(value);
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += serializer.serialize(value).length;
+            sink += serializer.deserialize(bytes) == null ? 0 : 1;
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            sink += serializer.serialize(value).length;
+        }
+        long encodeNanos = (System.nanoTime() - start) / MEASURED_ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            sink += serializer.deserialize(bytes) == null ? 0 : 1;
+        }
+        long decodeNanos = (System.nanoTime() - start) / MEASURED_ITERATIONS;
+
+        String redisBytes = "-";
+        if (redis != null) {
+            byte[] key = ("benchmark:" + valueName + ":" + serializerName).getBytes(StandardCharsets.UTF_8);
+            redis.set(key, bytes);
+            redisBytes = String.valueOf(redis.memoryUsage(key));
+            redis.del(key);
+        }
+
+        System.out.printf("%-10s %-16s %8d %12d %12d %12s%s%n", valueName, serializerName, bytes.length,
+                encodeNanos, decodeNanos, redisBytes, sink == 42 ? " " : "");
+    }
+}
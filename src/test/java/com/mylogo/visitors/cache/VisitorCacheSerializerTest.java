@@ -0,0 +1,101 @@
+package com.mylogo.visitors.cache;
+
+import com.mylogo.visitors.dto.VisitorDTO;
+import com.mylogo.visitors.dto.VisitorPage;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VisitorCacheSerializerTest {
+
+    private final VisitorCacheSerializer serializer = new VisitorCacheSerializer(512);
+
+    @Test
+    void testRoundTrip_Visitor() {
+        VisitorDTO visitor = visitor(1L);
+
+        byte[] bytes = serializer.serialize(visitor);
+
+        assertEquals(VisitorCacheSerializer.TYPE_VISITOR, bytes[3]);
+        assertEquals(visitor, serializer.deserialize(bytes));
+    }
+
+    @Test
+    void testRoundTrip_VisitorWithNullFields() {
+        VisitorDTO visitor = new VisitorDTO();
+        visitor.setDuration(3);
+
+        assertEquals(visitor, serializer.deserialize(serializer.serialize(visitor)));
+    }
+
+    @Test
+    void testRoundTrip_LargePageIsCompressed() {
+        List<VisitorDTO> visitors = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            visitors.add(visitor(id));
+        }
+        VisitorPage page = new VisitorPage(visitors, "MXxJRHw1MA", 50);
+
+        byte[] bytes = serializer.serialize(page);
+
+        assertEquals(VisitorCacheSerializer.FLAG_DEFLATED, bytes[2] & VisitorCacheSerializer.FLAG_DEFLATED);
+        assertEquals(page, serializer.deserialize(bytes));
+    }
+
+    @Test
+    void testRoundTrip_VisitorList() {
+        List<VisitorDTO> visitors = List.of(visitor(1L), visitor(2L));
+
+        byte[] bytes = serializer.serialize(visitors);
+
+        assertEquals(VisitorCacheSerializer.TYPE_VISITOR_LIST, bytes[3]);
+        assertEquals(visitors, serializer.deserialize(bytes));
+    }
+
+    @Test
+    void testRoundTrip_OtherValuesFallBackToJdk() {
+        Map<String, Long> value = Map.of("count", 3L);
+
+        byte[] bytes = serializer.serialize(value);
+
+        assertEquals(VisitorCacheSerializer.TYPE_OTHER, bytes[3]);
+        assertEquals(value, serializer.deserialize(bytes));
+    }
+
+    @Test
+    void testDeserialize_ReadsLegacyJdkEntries() {
+        VisitorDTO visitor = visitor(1L);
+        byte[] legacy = new JdkSerializationRedisSerializer().serialize(visitor);
+
+        assertEquals(visitor, serializer.deserialize(legacy));
+    }
+
+    @Test
+    void testDeserialize_NewerFormatVersionIsAMiss() {
+        byte[] bytes = serializer.serialize(visitor(1L));
+        bytes[1] = VisitorCacheSerializer.VERSION + 1;
+
+        assertNull(serializer.deserialize(bytes));
+    }
+
+    @Test
+    void testSerialize_SmallerThanJdk() {
+        VisitorDTO visitor = visitor(1L);
+
+        assertTrue(serializer.serialize(visitor).length < new JdkSerializationRedisSerializer().serialize(visitor).length);
+    }
+
+    static VisitorDTO visitor(long id) {
+        LocalDateTime checkIn = LocalDateTime.of(2024, 11, 12, 9, 0).plusMinutes(id);
+        return new VisitorDTO(id, "Visitor " + id, "98765432" + (id % 100), "visitor" + id + "@yopmail.com",
+                "Business Meeting", checkIn, checkIn.plusHours(8), 8, id % 2 == 0, checkIn.minusDays(1).withNano(123_000_000));
+    }
+}
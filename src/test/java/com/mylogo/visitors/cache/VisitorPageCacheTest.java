@@ -0,0 +1,80 @@
+package com.mylogo.visitors.cache;
+
+import com.mylogo.visitors.dto.VisitorPage;
+import com.mylogo.visitors.pagination.VisitorCursor;
+import com.mylogo.visitors.pagination.VisitorSort;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VisitorPageCacheTest {
+
+    private ValueOperations<String, String> valueOperations;
+    private VisitorPageCache pageCache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        pageCache = new VisitorPageCache(redisTemplate, new ConcurrentMapCacheManager());
+    }
+
+    @Test
+    void testGet_CachedWithinGeneration() {
+        when(valueOperations.get(VisitorPageCache.GENERATION_KEY)).thenReturn("3");
+
+        VisitorPage first = pageCache.get(VisitorCursor.start(VisitorSort.ID), 50, this::load);
+        VisitorPage second = pageCache.get(VisitorCursor.start(VisitorSort.ID), 50, this::load);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testGet_NewGenerationReloads() {
+        when(valueOperations.get(VisitorPageCache.GENERATION_KEY)).thenReturn("3", "4");
+
+        pageCache.get(VisitorCursor.start(VisitorSort.ID), 50, this::load);
+        pageCache.get(VisitorCursor.start(VisitorSort.ID), 50, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testGet_RedisUnavailableBypassesCache() {
+        when(valueOperations.get(VisitorPageCache.GENERATION_KEY)).thenThrow(new RuntimeException("Redis is down"));
+
+        pageCache.get(VisitorCursor.start(VisitorSort.ID), 50, this::load);
+        pageCache.get(VisitorCursor.start(VisitorSort.ID), 50, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testWrites_AdvanceGeneration() {
+        pageCache.onVisitorSaved(null, null);
+        pageCache.onVisitorDeleted(null);
+
+        verify(valueOperations, times(2)).increment(VisitorPageCache.GENERATION_KEY);
+    }
+
+    private VisitorPage load() {
+        loads.incrementAndGet();
+        return new VisitorPage(Collections.emptyList(), null, 0);
+    }
+}
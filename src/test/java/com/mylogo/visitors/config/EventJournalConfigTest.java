@@ -0,0 +1,19 @@
+package com.mylogo.visitors.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventJournalConfigTest {
+
+    @Test
+    void testDirectoriesUnderTmpdirAreDetected() {
+        String tmpdir = System.getProperty("java.io.tmpdir");
+
+        assertTrue(EventJournalConfig.isUnderTmpdir(Paths.get(tmpdir, "visitor-events-journal")));
+        assertFalse(EventJournalConfig.isUnderTmpdir(Paths.get(tmpdir, "..", "var", "lib", "visitor-service", "journal")));
+    }
+}
@@ -0,0 +1,32 @@
+package com.mylogo.visitors.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KafkaProducerConfigTest {
+
+    @Test
+    void testProfileDefaults() {
+        Map<String, Object> configs = KafkaProducerConfig.producerConfigs(
+                KafkaProducerConfig.Profile.fromProperty("throughput"), null, null, null, 1000);
+
+        assertEquals(25, configs.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals(262_144, configs.get(ProducerConfig.BATCH_SIZE_CONFIG));
+        assertEquals("zstd", configs.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals(true, configs.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+    }
+
+    @Test
+    void testExplicitSettingsOverrideProfile() {
+        Map<String, Object> configs = KafkaProducerConfig.producerConfigs(
+                KafkaProducerConfig.Profile.BALANCED, 50, null, "gzip", 1000);
+
+        assertEquals(50, configs.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals(65_536, configs.get(ProducerConfig.BATCH_SIZE_CONFIG));
+        assertEquals("gzip", configs.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+    }
+}
@@ -1,8 +1,12 @@
 package com.mylogo.visitors.controller;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mylogo.visitors.convertor.JsonStreamWriter;
 import com.mylogo.visitors.dto.VisitorDTO;
+import com.mylogo.visitors.dto.VisitorPage;
 import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.pagination.VisitorSort;
 import com.mylogo.visitors.service.VisitorService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,7 +14,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -40,12 +47,53 @@ public class VisitorControllerTest {
     @Test
     void testGetAllVisitors() {
         List<VisitorDTO> visitors = Arrays.asList(new VisitorDTO(), new VisitorDTO());
-        when(visitorService.getAllVisitors()).thenReturn(visitors);
+        when(visitorService.getVisitorPage("token", 2, "checkIn")).thenReturn(new VisitorPage(visitors, "next", 2));
 
-        List<VisitorDTO> result = visitorController.getAllVisitors();
+        VisitorPage result = visitorController.getAllVisitors("token", 2, "checkIn");
 
-        assertEquals(2, result.size());
-        verify(visitorService, times(1)).getAllVisitors();
+        assertEquals(2, result.getContent().size());
+        assertEquals("next", result.getNextCursor());
+        verify(visitorService, times(1)).getVisitorPage("token", 2, "checkIn");
+    }
+
+    @Test
+    void testStreamVisitorsGroupedByPurpose() {
+        Visitor meeting = new Visitor();
+        meeting.setId(1L);
+        meeting.setPurpose("Meeting");
+        Visitor unknown = new Visitor();
+        unknown.setId(2L);
+        when(visitorService.streamVisitors(VisitorSort.PURPOSE)).thenReturn(Flux.just(List.of(meeting), List.of(unknown)));
+        VisitorController controller = new VisitorController(visitorService, new JsonStreamWriter(new ObjectMapper().findAndRegisterModules()));
+
+        WebTestClient.bindToController(controller).build()
+                .get().uri("/visitors/grouped-by-purpose/stream")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.Meeting[0].id").isEqualTo(1)
+                .jsonPath("$.Unknown[0].id").isEqualTo(2);
+    }
+
+    @Test
+    void testGetAllVisitorsSortedByCheckIn_StreamsJsonArray() {
+        Visitor first = new Visitor();
+        first.setId(3L);
+        Visitor second = new Visitor();
+        second.setId(1L);
+        when(visitorService.streamVisitors(VisitorSort.CHECK_IN)).thenReturn(Flux.just(List.of(first), List.of(second)));
+        VisitorController controller = new VisitorController(visitorService,
+                new JsonStreamWriter(new ObjectMapper().findAndRegisterModules()));
+
+        WebTestClient.bindToController(controller).build()
+                .get().uri("/visitors/sorted")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].id").isEqualTo(3)
+                .jsonPath("$[1].id").isEqualTo(1);
     }
 
     @Test
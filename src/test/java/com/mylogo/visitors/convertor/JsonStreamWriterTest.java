@@ -0,0 +1,56 @@
+package com.mylogo.visitors.convertor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonStreamWriterTest {
+
+    private final JsonStreamWriter writer = new JsonStreamWriter(new ObjectMapper());
+
+    @Test
+    void testWriteArray() {
+        Flux<List<String>> pages = Flux.just(List.of("a", "b"), Collections.emptyList(), List.of("c"));
+
+        assertEquals("[\"a\",\"b\",\"c\"]", join(writer.writeArray(pages)));
+    }
+
+    @Test
+    void testWriteArray_Empty() {
+        assertEquals("[]", join(writer.writeArray(Flux.<List<String>>empty())));
+    }
+
+    @Test
+    void testWriteGroupedObject_GroupSpansPages() {
+        Flux<List<String>> pages = Flux.just(List.of("a1", "a2"), List.of("a3", "b1"), List.of("c1"));
+
+        String json = join(writer.writeGroupedObject(pages, value -> value.substring(0, 1)));
+
+        assertEquals("{\"a\":[\"a1\",\"a2\",\"a3\"],\"b\":[\"b1\"],\"c\":[\"c1\"]}", json);
+    }
+
+    @Test
+    void testWriteGroupedObject_KeysEqualUnderOrderShareOneGroup() {
+        Flux<List<String>> pages = Flux.just(List.of("Meeting:1", "meeting:2"), List.of("MEETING:3", "Tour:4"));
+
+        String json = join(writer.writeGroupedObject(pages, value -> value.substring(0, value.indexOf(':')),
+                String.CASE_INSENSITIVE_ORDER));
+
+        assertEquals("{\"Meeting\":[\"Meeting:1\",\"meeting:2\",\"MEETING:3\"],\"Tour\":[\"Tour:4\"]}", json);
+    }
+
+    @Test
+    void testWriteGroupedObject_Empty() {
+        assertEquals("{}", join(writer.writeGroupedObject(Flux.<List<String>>empty(), Function.identity())));
+    }
+
+    private String join(Flux<String> chunks) {
+        return String.join("", chunks.collectList().block());
+    }
+}
@@ -0,0 +1,133 @@
+package com.mylogo.visitors.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventJournalTest {
+
+    // Room for three 16-byte records per segment
+    private static final int SEGMENT_BYTES = 3 * (EventJournal.HEADER_BYTES + 16);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testReadsInAppendOrderUntilAcknowledged() throws IOException {
+        EventJournal journal = new EventJournal(directory, SEGMENT_BYTES);
+        append(journal, 1, 2);
+
+        assertEquals(List.of(record(1), record(2)), text(journal.read(10)));
+        assertEquals(List.of(record(1)), text(journal.read(1)));
+
+        journal.acknowledge(journal.read(1));
+
+        assertEquals(List.of(record(2)), text(journal.read(10)));
+        assertEquals(1, journal.pending());
+    }
+
+    @Test
+    void testRollsOverAndDeletesConsumedSegments() throws IOException {
+        EventJournal journal = new EventJournal(directory, SEGMENT_BYTES);
+        append(journal, 1, 2, 3, 4, 5, 6, 7);
+        assertEquals(3, segmentCount());
+
+        journal.acknowledge(journal.read(4));
+
+        assertEquals(2, segmentCount());
+        assertEquals(List.of(record(5), record(6), record(7)), text(journal.read(10)));
+    }
+
+    @Test
+    void testReopenResumesFromTheCheckpoint() throws IOException {
+        EventJournal journal = new EventJournal(directory, SEGMENT_BYTES);
+        append(journal, 1, 2, 3, 4);
+        journal.acknowledge(journal.read(2));
+        journal.close();
+
+        EventJournal reopened = new EventJournal(directory, SEGMENT_BYTES);
+        assertEquals(2, reopened.pending());
+        append(reopened, 5);
+
+        assertEquals(List.of(record(3), record(4), record(5)), text(reopened.read(10)));
+    }
+
+    @Test
+    void testRecoveryStopsAtATornRecordAndAppendsOverIt() throws IOException {
+        EventJournal journal = new EventJournal(directory, SEGMENT_BYTES);
+        append(journal, 1);
+        journal.close();
+        // A crash after the length of the second record was written, but not its body
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            file.seek(EventJournal.HEADER_BYTES + 16);
+            file.writeInt(16);
+        }
+
+        EventJournal reopened = new EventJournal(directory, SEGMENT_BYTES);
+        assertEquals(1, reopened.pending());
+        append(reopened, 2);
+
+        assertEquals(List.of(record(1), record(2)), text(reopened.read(10)));
+    }
+
+    @Test
+    void testRecoveryDropsRecordsWithABadChecksum() throws IOException {
+        EventJournal journal = new EventJournal(directory, SEGMENT_BYTES);
+        append(journal, 1, 2);
+        journal.close();
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            file.seek(2L * EventJournal.HEADER_BYTES + 16 + 3);
+            file.write('X');
+        }
+
+        EventJournal reopened = new EventJournal(directory, SEGMENT_BYTES);
+
+        assertEquals(List.of(record(1)), text(reopened.read(10)));
+    }
+
+    @Test
+    void testRejectsARecordLargerThanASegment() throws IOException {
+        EventJournal journal = new EventJournal(directory, SEGMENT_BYTES);
+
+        assertThrows(IllegalArgumentException.class, () -> journal.append(new byte[SEGMENT_BYTES]));
+        assertTrue(journal.isEmpty());
+    }
+
+    private static void append(EventJournal journal, int... ids) throws IOException {
+        for (int id : ids) {
+            journal.append(record(id).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // Every record is 16 bytes long
+    private static String record(int id) {
+        return String.format("visitor-event-%02d", id);
+    }
+
+    private static List<String> text(EventJournal.Batch batch) {
+        return batch.getRecords().stream().map(bytes -> new String(bytes, StandardCharsets.UTF_8))
+                .collect(Collectors.toList());
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".seg")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        return segments().size();
+    }
+}
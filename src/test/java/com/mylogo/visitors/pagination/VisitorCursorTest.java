@@ -0,0 +1,68 @@
+package com.mylogo.visitors.pagination;
+
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.handler.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VisitorCursorTest {
+
+    @Test
+    void testEncodeDecode_IdSort() {
+        Visitor visitor = new Visitor();
+        visitor.setId(42L);
+
+        VisitorCursor decoded = VisitorCursor.decode(VisitorCursor.after(VisitorSort.ID, visitor).encode());
+
+        assertEquals(VisitorSort.ID, decoded.getSort());
+        assertEquals(42L, decoded.getAfterId());
+        assertFalse(decoded.isStart());
+    }
+
+    @Test
+    void testEncodeDecode_CheckInSort() {
+        Visitor visitor = new Visitor();
+        visitor.setId(7L);
+        visitor.setCheckIn(LocalDateTime.of(2024, 11, 12, 9, 0));
+
+        VisitorCursor decoded = VisitorCursor.decode(VisitorCursor.after(VisitorSort.CHECK_IN, visitor).encode());
+
+        assertEquals(VisitorSort.CHECK_IN, decoded.getSort());
+        assertEquals(7L, decoded.getAfterId());
+        assertFalse(decoded.isNullKey());
+        assertEquals(visitor.getCheckIn(), decoded.checkInKey());
+    }
+
+    @Test
+    void testEncodeDecode_CheckInSort_NullCheckIn() {
+        Visitor visitor = new Visitor();
+        visitor.setId(9L);
+
+        VisitorCursor decoded = VisitorCursor.decode(VisitorCursor.after(VisitorSort.CHECK_IN, visitor).encode());
+
+        assertTrue(decoded.isNullKey());
+        assertNull(decoded.checkInKey());
+        assertEquals(9L, decoded.getAfterId());
+    }
+
+    @Test
+    void testDecode_RejectsMalformedToken() {
+        assertThrows(InvalidRequestException.class, () -> VisitorCursor.decode("not a cursor!"));
+        assertThrows(InvalidRequestException.class, () -> VisitorCursor.decode("MXxJRHxhYmM"));
+    }
+
+    @Test
+    void testFromParameter() {
+        assertEquals(VisitorSort.ID, VisitorSort.fromParameter(null));
+        assertEquals(VisitorSort.CHECK_IN, VisitorSort.fromParameter("checkIn"));
+        assertEquals(VisitorSort.CHECK_IN, VisitorSort.fromParameter("check_in"));
+        assertThrows(InvalidRequestException.class, () -> VisitorSort.fromParameter("name"));
+    }
+}
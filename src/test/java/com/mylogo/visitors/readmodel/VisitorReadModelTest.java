@@ -0,0 +1,113 @@
+package com.mylogo.visitors.readmodel;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mylogo.visitors.dto.VisitorDTO;
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.event.VisitorEvent;
+import com.mylogo.visitors.event.VisitorEventType;
+import com.mylogo.visitors.repository.VisitorRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VisitorReadModelTest {
+
+    private static final LocalDateTime CHECK_IN = LocalDateTime.of(2024, 11, 12, 9, 0);
+
+    private ObjectMapper objectMapper;
+    private VisitorRepository visitorRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private VisitorReadModel readModel;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        visitorRepository = mock(VisitorRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        readModel = new VisitorReadModel(objectMapper, visitorRepository, meterRegistry, 100, 2);
+    }
+
+    @Test
+    void testAppliesCreateThenInPlaceUpdates() throws JsonProcessingException {
+        readModel.apply(consumed(VisitorEvent.of(VisitorEventType.CREATED, 7L,
+                new Visitor(7L, "Jane", "9876543210", "jane@yopmail.com", "Meeting", null, null, 0, false, CHECK_IN))));
+        readModel.apply(consumed(VisitorEvent.of(VisitorEventType.CHECKED_IN, 7L,
+                VisitorPatch.builder().checkIn(CHECK_IN).approved(true).build())));
+
+        VisitorDTO visitor = readModel.find(7L).orElseThrow();
+        assertEquals("Jane", visitor.getName());
+        assertEquals(CHECK_IN, visitor.getCheckIn());
+        assertTrue(visitor.isApproved());
+        assertEquals(CHECK_IN, visitor.getCreatedDate());
+        assertEquals(1, meterRegistry.get("visitor.read-model.size").gauge().value());
+    }
+
+    @Test
+    void testDeleteRemovesTheVisitor() throws JsonProcessingException {
+        readModel.apply(consumed(VisitorEvent.of(VisitorEventType.CREATED, 7L, new Visitor())));
+
+        assertTrue(readModel.apply(consumed(VisitorEvent.of(VisitorEventType.DELETED, 7L))));
+
+        assertFalse(readModel.find(7L).isPresent());
+    }
+
+    @Test
+    void testLoadReadsKeysetPagesThenAppliesEvents() throws JsonProcessingException {
+        when(visitorRepository.findFirstPageById(PageRequest.of(0, 2))).thenReturn(List.of(
+                new Visitor(3L, "Jane", "9876543210", "jane@yopmail.com", "Meeting", null, null, 0, false, CHECK_IN),
+                new Visitor(5L, "John", "9876543211", "john@yopmail.com", "Interview", null, null, 0, false, CHECK_IN)));
+        when(visitorRepository.findPageAfterId(5L, PageRequest.of(0, 2))).thenReturn(List.of(
+                new Visitor(8L, "Joan", "9876543212", "joan@yopmail.com", null, null, null, 0, false, CHECK_IN)));
+
+        readModel.load();
+        readModel.apply(consumed(VisitorEvent.of(VisitorEventType.APPROVED, 5L,
+                VisitorPatch.builder().approved(true).build())));
+
+        assertEquals(3, readModel.size());
+        assertEquals("Joan", readModel.find(8L).orElseThrow().getName());
+        assertTrue(readModel.find(5L).orElseThrow().isApproved());
+    }
+
+    @Test
+    void testUpdateOfUnknownVisitorIsSkipped() throws JsonProcessingException {
+        assertFalse(readModel.apply(consumed(VisitorEvent.of(VisitorEventType.APPROVED, 7L,
+                VisitorPatch.builder().approved(true).build()))));
+
+        assertEquals(0, readModel.size());
+    }
+
+    @Test
+    void testRedeliveredEventIsAppliedOnce() throws JsonProcessingException {
+        VisitorEvent created = consumed(VisitorEvent.of(VisitorEventType.CREATED, 7L, new Visitor()));
+        VisitorEvent renamed = consumed(VisitorEvent.of(VisitorEventType.PATCHED, 7L,
+                VisitorPatch.builder().name("Jane").build()));
+        readModel.apply(created);
+        readModel.apply(renamed);
+
+        // A relay batch resent after a failure: the create must not undo the rename
+        assertFalse(readModel.apply(created));
+
+        assertEquals("Jane", readModel.find(7L).orElseThrow().getName());
+        assertEquals(1, meterRegistry.get("visitor.read-model.duplicates").counter().count());
+    }
+
+    // Round trip through JSON, as the consumer receives it
+    private VisitorEvent consumed(VisitorEvent event) throws JsonProcessingException {
+        return objectMapper.readValue(objectMapper.writeValueAsString(event), VisitorEvent.class);
+    }
+}
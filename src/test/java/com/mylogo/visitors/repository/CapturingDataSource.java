@@ -0,0 +1,102 @@
+package com.mylogo.visitors.repository;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * DataSource that records every prepared query and update together with its bound parameters, so tests
+ * can replay them under EXPLAIN.
+ */
+class CapturingDataSource extends DelegatingDataSource {
+
+    private final List<CapturedQuery> queries = Collections.synchronizedList(new ArrayList<>());
+
+    CapturingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    List<CapturedQuery> getQueries() {
+        synchronized (queries) {
+            return new ArrayList<>(queries);
+        }
+    }
+
+    void clear() {
+        queries.clear();
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if ("prepareStatement".equals(method.getName()) && result instanceof PreparedStatement) {
+                        return wrap((PreparedStatement) result, (String) args[0]);
+                    }
+                    return result;
+                });
+    }
+
+    private PreparedStatement wrap(PreparedStatement statement, String sql) {
+        Map<Integer, Object> parameters = new TreeMap<>();
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                parameters.put((Integer) args[0], "setNull".equals(name) ? null : args[1]);
+            } else if ("clearParameters".equals(name)) {
+                parameters.clear();
+            } else if (("executeQuery".equals(name) || "executeUpdate".equals(name)) && (args == null || args.length == 0)) {
+                queries.add(new CapturedQuery(sql, new ArrayList<>(parameters.values())));
+            }
+            return invoke(statement, method, args);
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    static final class CapturedQuery {
+
+        final String sql;
+        final List<Object> parameters;
+
+        CapturedQuery(String sql, List<Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public String toString() {
+            return sql + " " + parameters;
+        }
+    }
+}
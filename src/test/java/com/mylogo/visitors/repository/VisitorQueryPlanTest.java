@@ -0,0 +1,201 @@
+package com.mylogo.visitors.repository;
+
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.dto.VisitorSearchCriteria;
+import com.mylogo.visitors.entity.Visitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every repository query and update against H2 in MySQL mode, with the schema built by the Flyway
+ * migrations, and fails when the plan of any of them falls back to a full table scan.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:visitor-plans;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class VisitorQueryPlanTest {
+
+    private static final Pageable PAGE = PageRequest.of(0, 10);
+    private static final LocalDateTime CHECK_IN = LocalDateTime.of(2024, 11, 12, 9, 0);
+
+    @Autowired
+    private VisitorRepository visitorRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        for (int i = 0; i < 50; i++) {
+            visitorRepository.save(new Visitor(null, "Visitor " + i, "98765432" + (i % 20), "visitor" + i + "@yopmail.com",
+                    i % 3 == 0 ? null : "Purpose " + (i % 5), i % 4 == 0 ? null : CHECK_IN.plusHours(i),
+                    i % 2 == 0 ? null : CHECK_IN.plusHours(i + 2), 2, i % 2 == 0, CHECK_IN));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        capturing().clear();
+    }
+
+    @Test
+    void testKeysetPagesUseIndexes() throws SQLException {
+        visitorRepository.findFirstPageById(PAGE);
+        visitorRepository.findPageAfterId(5L, PAGE);
+        visitorRepository.findFirstPageByCheckIn(PAGE);
+        visitorRepository.findPageAfterCheckIn(CHECK_IN, 5L, PAGE);
+        visitorRepository.findFirstPageWithoutCheckIn(PAGE);
+        visitorRepository.findPageWithoutCheckInAfterId(5L, PAGE);
+        visitorRepository.findFirstPageByPurpose(PAGE);
+        visitorRepository.findPageAfterPurpose("Purpose 1", 5L, PAGE);
+        visitorRepository.findFirstPageWithoutPurpose(PAGE);
+        visitorRepository.findPageWithoutPurposeAfterId(5L, PAGE);
+        visitorRepository.findFirstPageWithUnknownPurpose(PAGE);
+        visitorRepository.findPageWithUnknownPurposeAfterId(5L, PAGE);
+        visitorRepository.findFirstContactNumbers(PAGE);
+        visitorRepository.findContactNumbersAfter("9876543210", PAGE);
+        visitorRepository.findColumnsAfterId(5L, PAGE);
+        visitorRepository.findOnSiteIds();
+        visitorRepository.findById(5L);
+
+        assertNoFullScans();
+    }
+
+    @Test
+    void testFilteredAggregatesUseIndexes() throws SQLException {
+        visitorRepository.sumDuration(VisitorSpecifications.matching(VisitorSearchCriteria.builder()
+                .checkInFrom(CHECK_IN).checkInTo(CHECK_IN.plusDays(1)).build()));
+        visitorRepository.sumDuration(VisitorSpecifications.matching(VisitorSearchCriteria.builder()
+                .purpose("Purpose 1").build()));
+
+        assertNoFullScans();
+    }
+
+    @Test
+    void testSearchFiltersUseIndexes() throws SQLException {
+        search(VisitorSearchCriteria.builder().approved(true).build());
+        search(VisitorSearchCriteria.builder().purpose("Purpose 1").build());
+        search(VisitorSearchCriteria.builder().checkInFrom(CHECK_IN).checkInTo(CHECK_IN.plusDays(1)).build());
+        search(VisitorSearchCriteria.builder().checkedOut(false).build());
+        search(VisitorSearchCriteria.builder().namePrefix("Visitor 1").build());
+        search(VisitorSearchCriteria.builder().emailPrefix("visitor1").build());
+
+        assertNoFullScans();
+    }
+
+    @Test
+    void testBulkUpdatesLockByPrimaryKey() throws SQLException {
+        visitorRepository.lockUnapprovedIds(List.of(1L, 2L, 3L));
+        visitorRepository.approveByIds(List.of(1L, 2L, 3L));
+        visitorRepository.lockCheckedInNotCheckedOut(List.of(1L, 2L, 3L));
+        // H2 only checks the plan here; greatest and timestampdiff are evaluated with MySQL semantics in production
+        visitorRepository.checkOutByIds(List.of(1L, 2L, 3L), CHECK_IN.plusDays(3));
+        visitorRepository.lockVisitTimes(1L);
+        visitorRepository.findColumnsByIds(List.of(1L, 2L, 3L));
+        visitorRepository.findOnSiteIdsIn(List.of(1L, 2L, 3L));
+
+        assertNoFullScans();
+    }
+
+    @Test
+    void testSingleVisitorWritesUsePrimaryKey() throws SQLException {
+        visitorRepository.checkIn(4L, CHECK_IN);
+        visitorRepository.checkOut(5L, CHECK_IN.plusDays(1), 24);
+        visitorRepository.patch(6L, VisitorPatch.builder().name("Visitor 6").approved(true).build());
+
+        assertNoFullScans();
+    }
+
+    @Test
+    void testWholeTableAggregatesAreTheOnlyScans() throws SQLException {
+        // These read every row by definition; the GROUP BY should still be served in index order.
+        visitorRepository.summarizeByPurpose();
+        visitorRepository.sumDuration();
+
+        List<String> plans = explainCaptured();
+        assertTrue(plans.get(0).contains("group sorted"), plans.get(0));
+    }
+
+    private void search(VisitorSearchCriteria criteria) {
+        visitorRepository.findLimited(VisitorSpecifications.matching(criteria), Sort.by("id"), 10);
+    }
+
+    private void assertNoFullScans() throws SQLException {
+        List<String> plans = explainCaptured();
+        assertFalse(plans.isEmpty(), "No queries were captured");
+        for (String plan : plans) {
+            assertFalse(plan.contains("tablescan"), () -> "Full table scan:\n" + plan);
+        }
+    }
+
+    private List<String> explainCaptured() throws SQLException {
+        List<String> plans = new ArrayList<>();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        for (CapturingDataSource.CapturedQuery query : capturing().getQueries()) {
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + query.sql)) {
+                for (int i = 0; i < query.parameters.size(); i++) {
+                    explain.setObject(i + 1, query.parameters.get(i));
+                }
+                try (ResultSet rs = explain.executeQuery()) {
+                    rs.next();
+                    plans.add(rs.getString(1).toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return plans;
+    }
+
+    private CapturingDataSource capturing() throws SQLException {
+        return dataSource.unwrap(CapturingDataSource.class);
+    }
+
+    // Replaces the application class so that only the persistence layer is started.
+    @SpringBootConfiguration
+    @EntityScan(basePackageClasses = Visitor.class)
+    @EnableJpaRepositories(basePackageClasses = VisitorRepository.class)
+    static class QueryPlanTestConfiguration {
+
+        @Bean
+        static BeanPostProcessor capturingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource && !(bean instanceof CapturingDataSource)
+                            ? new CapturingDataSource((DataSource) bean) : bean;
+                }
+            };
+        }
+    }
+}
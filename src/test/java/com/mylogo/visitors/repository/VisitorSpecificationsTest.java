@@ -0,0 +1,18 @@
+package com.mylogo.visitors.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VisitorSpecificationsTest {
+
+    @Test
+    void testLikePrefix_AppendsWildcard() {
+        assertEquals("Jo%", VisitorSpecifications.likePrefix("Jo"));
+    }
+
+    @Test
+    void testLikePrefix_EscapesWildcardsInInput() {
+        assertEquals("50\\%\\_off\\\\%", VisitorSpecifications.likePrefix("50%_off\\"));
+    }
+}
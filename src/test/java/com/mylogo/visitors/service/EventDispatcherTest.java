@@ -0,0 +1,158 @@
+package com.mylogo.visitors.service;
+
+import com.mylogo.visitors.event.VisitorEvent;
+import com.mylogo.visitors.event.VisitorEventType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class EventDispatcherTest {
+
+    private VisitorEventProducer kafkaProducer;
+    private OutboxWriter outboxWriter;
+    private PlatformTransactionManager transactionManager;
+    private SimpleMeterRegistry meterRegistry;
+    private CountDownLatch brokerStalled;
+    private EventDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        kafkaProducer = mock(VisitorEventProducer.class);
+        outboxWriter = mock(OutboxWriter.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        meterRegistry = new SimpleMeterRegistry();
+        brokerStalled = new CountDownLatch(1);
+        doAnswer(invocation -> brokerStalled.await(5, TimeUnit.SECONDS)).when(kafkaProducer).publish(any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        brokerStalled.countDown();
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void testDispatch_SentByWorkerAndTimed() {
+        dispatcher = dispatcher(10, "drop");
+        brokerStalled.countDown();
+        VisitorEvent event = VisitorEvent.of(VisitorEventType.FETCHED, 42L);
+
+        dispatcher.dispatch(event);
+
+        verify(kafkaProducer, timeout(1000)).publish(event);
+        dispatcher.shutdown();
+        assertEquals(1, meterRegistry.get("visitor.events.dispatch.latency").timer().count());
+        assertEquals(0, meterRegistry.get("visitor.events.dispatch.depth").gauge().value());
+    }
+
+    @Test
+    void testDrop_FullQueueDiscardsTheEvent() {
+        dispatcher = dispatcher(1, "drop");
+        fillQueue();
+
+        dispatcher.dispatch(VisitorEvent.of(VisitorEventType.FETCHED, 3L));
+
+        assertEquals(1, dispatcher.depth());
+        assertEquals(1, meterRegistry.get("visitor.events.dispatch.rejected").tag("outcome", "dropped").counter().count());
+        verify(outboxWriter, never()).insert(any());
+    }
+
+    @Test
+    void testBlock_WaitsForRoomBeforeDropping() {
+        dispatcher = dispatcher(1, "block");
+        fillQueue();
+
+        long start = System.nanoTime();
+        dispatcher.dispatch(VisitorEvent.of(VisitorEventType.FETCHED, 3L));
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, meterRegistry.get("visitor.events.dispatch.rejected").tag("outcome", "dropped").counter().count());
+    }
+
+    @Test
+    void testBlock_AcceptsOnceAWorkerMakesRoom() throws InterruptedException {
+        dispatcher = dispatcher(1, "block");
+        fillQueue();
+        VisitorEvent event = VisitorEvent.of(VisitorEventType.FETCHED, 3L);
+
+        Thread broker = new Thread(brokerStalled::countDown);
+        broker.start();
+        dispatcher.dispatch(event);
+        broker.join();
+
+        verify(kafkaProducer, timeout(1000)).publish(event);
+        assertEquals(0, meterRegistry.get("visitor.events.dispatch.rejected").tag("outcome", "dropped").counter().count());
+    }
+
+    @Test
+    void testSpill_FullQueueWritesToTheOutbox() {
+        dispatcher = dispatcher(1, "spill");
+        fillQueue();
+        VisitorEvent event = VisitorEvent.of(VisitorEventType.FETCHED, 3L);
+
+        dispatcher.dispatch(event);
+
+        verify(transactionManager).getTransaction(argThat(definition ->
+                definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        verify(outboxWriter).insert(List.of(event));
+        assertEquals(1, meterRegistry.get("visitor.events.dispatch.rejected").tag("outcome", "spilled").counter().count());
+    }
+
+    @Test
+    void testSpill_FailedSpillIsDropped() {
+        dispatcher = dispatcher(1, "spill");
+        fillQueue();
+        doAnswer(invocation -> {
+            throw new IllegalStateException("Connection refused");
+        }).when(outboxWriter).insert(any());
+
+        dispatcher.dispatch(VisitorEvent.of(VisitorEventType.FETCHED, 3L));
+
+        assertEquals(1, meterRegistry.get("visitor.events.dispatch.rejected").tag("outcome", "dropped").counter().count());
+    }
+
+    @Test
+    void testShutdown_SendsQueuedEventsAndRejectsNewOnes() {
+        dispatcher = dispatcher(10, "drop");
+        for (long id = 1; id <= 3; id++) {
+            dispatcher.dispatch(VisitorEvent.of(VisitorEventType.FETCHED, id));
+        }
+        new Thread(brokerStalled::countDown).start();
+
+        dispatcher.shutdown();
+        dispatcher.dispatch(VisitorEvent.of(VisitorEventType.FETCHED, 4L));
+
+        verify(kafkaProducer, times(3)).publish(any());
+        assertEquals(1, meterRegistry.get("visitor.events.dispatch.rejected").tag("outcome", "dropped").counter().count());
+    }
+
+    private EventDispatcher dispatcher(int capacity, String policy) {
+        return new EventDispatcher(kafkaProducer, outboxWriter, transactionManager, meterRegistry, capacity, 1, policy, 50);
+    }
+
+    // The single worker is stuck sending the first event and the second one fills the queue
+    private void fillQueue() {
+        VisitorEvent first = VisitorEvent.of(VisitorEventType.FETCHED, 1L);
+        dispatcher.dispatch(first);
+        verify(kafkaProducer, timeout(1000)).publish(first);
+        dispatcher.dispatch(VisitorEvent.of(VisitorEventType.FETCHED, 2L));
+    }
+}
@@ -9,6 +9,7 @@ import static org.mockito.Mockito.verify;
 class EventProducerTest {
 
     @Test
+    @SuppressWarnings("deprecation")
     void testProduceVisitorEvent() {
         EventProducer producer = mock(EventProducer.class);
         producer.produceVisitorEvent("Visitor added");
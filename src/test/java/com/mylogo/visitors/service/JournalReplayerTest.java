@@ -0,0 +1,91 @@
+package com.mylogo.visitors.service;
+
+import com.mylogo.visitors.journal.EventJournal;
+import com.mylogo.visitors.journal.SpilledEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JournalReplayerTest {
+
+    @TempDir
+    Path journalDirectory;
+
+    private EventJournal journal;
+    private VisitorEventProducer kafkaProducer;
+    private SimpleMeterRegistry meterRegistry;
+    private JournalReplayer replayer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journal = new EventJournal(journalDirectory, 4096);
+        kafkaProducer = mock(VisitorEventProducer.class);
+        meterRegistry = new SimpleMeterRegistry();
+        replayer = new JournalReplayer(journal, kafkaProducer, meterRegistry, 2, 100);
+        when(kafkaProducer.isAvailable()).thenReturn(true);
+        for (int id = 1; id <= 3; id++) {
+            journal.append(new SpilledEvent("FETCHED", String.valueOf(id), "{\"visitorId\":" + id + "}").toBytes());
+        }
+    }
+
+    @Test
+    void testReplaysInOrderInBatches() {
+        when(kafkaProducer.send(anyString(), any(), anyString())).thenReturn(acknowledged());
+
+        replayer.replay();
+
+        InOrder inOrder = inOrder(kafkaProducer);
+        inOrder.verify(kafkaProducer).send("FETCHED", "1", "{\"visitorId\":1}");
+        inOrder.verify(kafkaProducer).send("FETCHED", "2", "{\"visitorId\":2}");
+        inOrder.verify(kafkaProducer).flush();
+        inOrder.verify(kafkaProducer).send("FETCHED", "3", "{\"visitorId\":3}");
+        assertEquals(0, journal.pending());
+        assertEquals(3, meterRegistry.get("visitor.events.journal.replayed").counter().count());
+    }
+
+    @Test
+    void testFailedBatchStaysInTheJournal() {
+        SettableListenableFuture<SendResult<String, String>> failed = new SettableListenableFuture<>();
+        failed.setException(new TimeoutException("Expiring 2 records"));
+        when(kafkaProducer.send(anyString(), any(), anyString())).thenReturn(failed);
+
+        replayer.replay();
+
+        assertEquals(3, journal.pending());
+        assertEquals(3, meterRegistry.get("visitor.events.journal.pending").gauge().value());
+        verify(kafkaProducer).markUnavailable();
+    }
+
+    @Test
+    void testWaitsWhileKafkaIsUnavailable() {
+        when(kafkaProducer.isAvailable()).thenReturn(false);
+
+        replayer.replay();
+
+        verify(kafkaProducer, never()).send(anyString(), any(), anyString());
+        assertEquals(3, journal.pending());
+    }
+
+    private static SettableListenableFuture<SendResult<String, String>> acknowledged() {
+        SettableListenableFuture<SendResult<String, String>> future = new SettableListenableFuture<>();
+        future.set(null);
+        return future;
+    }
+}
@@ -0,0 +1,245 @@
+package com.mylogo.visitors.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.event.VisitorEvent;
+import com.mylogo.visitors.event.VisitorEventType;
+import com.mylogo.visitors.journal.EventJournal;
+import com.mylogo.visitors.repository.VisitorRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Writes visitor changes and their outbox rows against H2 in MySQL mode, with the schema built by the
+ * Flyway migrations, and relays them through a {@link MockProducer} standing in for the broker.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:visitor-outbox;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// The writes and the relay commit their own transactions, as they do in the application
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxRelayTest {
+
+    private static final LocalDateTime CHECK_IN = LocalDateTime.of(2024, 11, 12, 9, 0);
+
+    @Autowired
+    private VisitorRepository visitorRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path journalDirectory;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private MockProducer<String, String> broker;
+    private EventDispatcher dispatcher;
+    private OutboxEventProducer outbox;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        broker = broker();
+        dispatcher = mock(EventDispatcher.class);
+        outbox = new OutboxEventProducer(new OutboxWriter(jdbcTemplate, objectMapper()), dispatcher,
+                kafkaProducer(broker), entityManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM visitor_outbox");
+        visitorRepository.deleteAll();
+    }
+
+    @Test
+    void testRelaysCommittedEventsInOrderAndDeletesThem() {
+        Visitor visitor = transactionTemplate.execute(status -> {
+            Visitor saved = visitorRepository.save(visitor("Jane"));
+            outbox.publish(VisitorEvent.of(VisitorEventType.CREATED, saved.getId(), saved));
+            return saved;
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            visitor.setApproved(true);
+            visitorRepository.save(visitor);
+            outbox.publish(VisitorEvent.of(VisitorEventType.UPDATED, visitor.getId(), visitor));
+        });
+        assertEquals(0, broker.history().size(), "Nothing is sent on the request path");
+
+        relay(500, broker).relay();
+
+        List<ProducerRecord<String, String>> sent = broker.history();
+        assertEquals(2, sent.size());
+        assertEquals(String.valueOf(visitor.getId()), sent.get(0).key());
+        assertTrue(sent.get(0).value().contains("\"type\":\"CREATED\""), sent.get(0).value());
+        assertTrue(sent.get(1).value().contains("\"type\":\"UPDATED\""), sent.get(1).value());
+        assertEquals(0, outboxSize());
+    }
+
+    @Test
+    void testRolledBackChangeLeavesNoEvent() {
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            Visitor saved = visitorRepository.save(visitor("Jane"));
+            outbox.publish(VisitorEvent.of(VisitorEventType.CREATED, saved.getId(), saved));
+            throw new IllegalStateException("Constraint violated");
+        }));
+
+        assertEquals(0, outboxSize());
+        assertEquals(0, visitorRepository.count());
+    }
+
+    @Test
+    void testDrainsBacklogInOrderedBatches() {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Visitor> saved = visitorRepository.saveAll(List.of(visitor("A"), visitor("B"), visitor("C"),
+                    visitor("D"), visitor("E")));
+            outbox.publishAll(saved.stream()
+                    .map(v -> VisitorEvent.of(VisitorEventType.CREATED, v.getId(), v))
+                    .collect(Collectors.toList()));
+        });
+        List<String> expectedKeys = jdbcTemplate.queryForList(
+                "SELECT CAST(visitor_id AS VARCHAR) FROM visitor_outbox ORDER BY id", String.class);
+
+        OutboxRelay relay = relay(2, broker);
+        assertEquals(2, relay.relayBatch());
+        assertEquals(3, outboxSize());
+        relay.relay();
+
+        assertEquals(expectedKeys, broker.history().stream().map(ProducerRecord::key).collect(Collectors.toList()));
+        assertEquals(0, outboxSize());
+    }
+
+    @Test
+    void testUnacknowledgedBatchStaysQueuedAndIsResent() {
+        transactionTemplate.executeWithoutResult(status ->
+                outbox.publish(VisitorEvent.of(VisitorEventType.DELETED, 42L)));
+        MockProducer<String, String> unavailable = new MockProducer<String, String>(false, new StringSerializer(),
+                new StringSerializer()) {
+            @Override
+            public synchronized void flush() {
+                while (errorNext(new TimeoutException("Expiring 1 record"))) {
+                    // fail every buffered send, as when the batch expires before the broker is back
+                }
+            }
+        };
+
+        relay(500, unavailable).relay();
+
+        assertEquals(1, unavailable.history().size());
+        assertEquals(1, outboxSize());
+
+        relay(500, broker).relay();
+
+        assertEquals("42", broker.history().get(0).key());
+        assertEquals(0, outboxSize());
+    }
+
+    @Test
+    void testChangeEventsRequireATransaction() {
+        assertThrows(IllegalTransactionStateException.class,
+                () -> outbox.publish(VisitorEvent.of(VisitorEventType.DELETED, 42L)));
+        assertEquals(0, outboxSize());
+    }
+
+    @Test
+    void testReadEventsBypassTheOutbox() {
+        VisitorEvent fetched = VisitorEvent.of(VisitorEventType.FETCHED, 42L);
+        outbox.publish(fetched);
+
+        assertEquals(0, outboxSize());
+        verify(dispatcher).dispatch(fetched);
+    }
+
+    private OutboxRelay relay(int batchSize, MockProducer<String, String> producer) {
+        return new OutboxRelay(jdbcTemplate, transactionManager, kafkaProducer(producer), new SimpleMeterRegistry(),
+                batchSize, 200);
+    }
+
+    private int outboxSize() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM visitor_outbox", Integer.class);
+    }
+
+    private static Visitor visitor(String name) {
+        return new Visitor(null, name, "9876543210", name.toLowerCase() + "@yopmail.com", "Meeting", CHECK_IN,
+                null, 0, false, CHECK_IN);
+    }
+
+    private static ObjectMapper objectMapper() {
+        return new ObjectMapper().registerModule(new JavaTimeModule());
+    }
+
+    private VisitorEventProducer kafkaProducer(MockProducer<String, String> producer) {
+        KafkaTemplate<String, String> kafkaTemplate = new KafkaTemplate<>(() -> producer);
+        try {
+            return new VisitorEventProducer(kafkaTemplate, objectMapper(), new SimpleMeterRegistry(), "visitorTopic",
+                    new EventJournal(journalDirectory, 4096), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static MockProducer<String, String> broker() {
+        return new MockProducer<String, String>(true, new StringSerializer(), new StringSerializer()) {
+            @Override
+            public void close(Duration timeout) {
+                // KafkaTemplate closes its producer after each send; keep the history across sends
+            }
+        };
+    }
+
+    // Replaces the application class so that only the persistence layer is started.
+    @SpringBootConfiguration
+    @EntityScan(basePackageClasses = Visitor.class)
+    @EnableJpaRepositories(basePackageClasses = VisitorRepository.class)
+    static class OutboxTestConfiguration {
+    }
+}
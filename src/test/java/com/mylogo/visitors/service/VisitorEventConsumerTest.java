@@ -0,0 +1,90 @@
+package com.mylogo.visitors.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mylogo.visitors.event.VisitorEvent;
+import com.mylogo.visitors.event.VisitorEventType;
+import com.mylogo.visitors.readmodel.VisitorReadModel;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VisitorEventConsumerTest {
+
+    private ObjectMapper objectMapper;
+    private VisitorReadModel readModel;
+    private Acknowledgment acknowledgment;
+    private MessageListenerContainer container;
+    private VisitorEventConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        readModel = mock(VisitorReadModel.class);
+        acknowledgment = mock(Acknowledgment.class);
+        container = mock(MessageListenerContainer.class);
+        KafkaListenerEndpointRegistry listenerRegistry = mock(KafkaListenerEndpointRegistry.class);
+        when(listenerRegistry.getListenerContainer(VisitorEventConsumer.LISTENER_ID)).thenReturn(container);
+        consumer = new VisitorEventConsumer(objectMapper, readModel, listenerRegistry);
+    }
+
+    @Test
+    void testListen_AppliesBatchInOrderThenCommits() throws Exception {
+        VisitorEvent created = VisitorEvent.of(VisitorEventType.CREATED, 7L);
+        VisitorEvent deleted = VisitorEvent.of(VisitorEventType.DELETED, 7L);
+
+        consumer.listen(List.of(record(0, objectMapper.writeValueAsString(created)),
+                record(1, objectMapper.writeValueAsString(deleted))), acknowledgment);
+
+        verify(readModel).apply(argThat(event -> event.getEventId().equals(created.getEventId())));
+        verify(readModel).apply(argThat(event -> event.getEventId().equals(deleted.getEventId())));
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void testListen_SkipsRecordsThatAreNotEvents() {
+        consumer.listen(List.of(record(0, "Visitor added")), acknowledgment);
+
+        verify(readModel, never()).apply(any());
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void testStart_LoadsTheViewBeforeConsuming() {
+        consumer.start();
+
+        InOrder order = inOrder(readModel, container);
+        order.verify(readModel).load();
+        order.verify(container).start();
+    }
+
+    @Test
+    void testStart_ConsumesEvenWhenTheLoadFails() {
+        doThrow(new RuntimeException("Database error")).when(readModel).load();
+
+        consumer.start();
+
+        verify(container).start();
+    }
+
+    private static ConsumerRecord<String, String> record(long offset, String value) {
+        return new ConsumerRecord<>("visitorTopic", 0, offset, "7", value);
+    }
+}
@@ -0,0 +1,129 @@
+package com.mylogo.visitors.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mylogo.visitors.event.VisitorEvent;
+import com.mylogo.visitors.event.VisitorEventType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.mylogo.visitors.journal.EventJournal;
+import com.mylogo.visitors.journal.SpilledEvent;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.core.KafkaProducerException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VisitorEventProducerTest {
+
+    private KafkaTemplate<String, String> kafkaTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private VisitorEventProducer producer;
+    private SettableListenableFuture<SendResult<String, String>> future;
+
+    @TempDir
+    Path journalDirectory;
+
+    private EventJournal journal;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws IOException {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        journal = new EventJournal(journalDirectory, 4096);
+        producer = new VisitorEventProducer(kafkaTemplate, new ObjectMapper().registerModule(new JavaTimeModule()),
+                meterRegistry, "visitorTopic", journal, 60_000);
+        future = new SettableListenableFuture<>();
+        when(kafkaTemplate.send(anyString(), any(), anyString())).thenReturn(future);
+    }
+
+    @Test
+    void testPublish_KeyedByVisitorIdAndTimedOnAck() {
+        producer.publish(VisitorEvent.of(VisitorEventType.CHECKED_IN, 42L));
+        future.set(null);
+
+        verify(kafkaTemplate).send(eq("visitorTopic"), eq("42"), contains("\"type\":\"CHECKED_IN\""));
+        assertEquals(1, meterRegistry.get("visitor.events.send")
+                .tag("type", "CHECKED_IN").tag("result", "success").timer().count());
+    }
+
+    @Test
+    void testPublish_FailedSendIsCountedNotThrown() {
+        producer.publish(VisitorEvent.of(VisitorEventType.DELETED, 42L));
+        future.setException(new TimeoutException("Expiring 1 record"));
+
+        assertEquals(1, meterRegistry.get("visitor.events.send")
+                .tag("type", "DELETED").tag("result", "failure").timer().count());
+    }
+
+    @Test
+    void testPublish_ProducerThatCannotSendDoesNotFailTheCaller() {
+        when(kafkaTemplate.send(anyString(), any(), anyString())).thenThrow(new TimeoutException("Metadata not available"));
+
+        producer.publish(VisitorEvent.of(VisitorEventType.CREATED, 42L));
+
+        assertEquals(1, meterRegistry.get("visitor.events.send").tag("result", "failure").timer().count());
+        assertFalse(producer.isAvailable());
+        assertEquals(1, journal.pending());
+    }
+
+    @Test
+    void testPublish_JournaledWithoutSendingWhileUnavailable() {
+        producer.markUnavailable();
+
+        producer.publish(VisitorEvent.of(VisitorEventType.FETCHED, 42L));
+
+        verify(kafkaTemplate, never()).send(anyString(), any(), anyString());
+        SpilledEvent spilled = SpilledEvent.fromBytes(journal.read(1).getRecords().get(0));
+        assertEquals("FETCHED", spilled.getType());
+        assertEquals("42", spilled.getKey());
+        assertTrue(spilled.getPayload().contains("\"visitorId\":42"), spilled.getPayload());
+    }
+
+    @Test
+    void testPublish_QueuesBehindJournaledEvents() throws IOException {
+        journal.append(new SpilledEvent("FETCHED", "41", "{}").toBytes());
+
+        producer.publish(VisitorEvent.of(VisitorEventType.FETCHED, 42L));
+
+        verify(kafkaTemplate, never()).send(anyString(), any(), anyString());
+        assertEquals(2, journal.pending());
+    }
+
+    @Test
+    void testPublish_BrokerTimeoutJournalsTheEvent() {
+        producer.publish(VisitorEvent.of(VisitorEventType.FETCHED, 42L));
+        future.setException(new KafkaProducerException(null, "Send failed", new TimeoutException("Expiring 1 record")));
+
+        assertFalse(producer.isAvailable());
+        assertEquals(1, journal.pending());
+    }
+
+    @Test
+    void testPublish_RejectedRecordIsNotJournaled() {
+        producer.publish(VisitorEvent.of(VisitorEventType.FETCHED, 42L));
+        future.setException(new RecordTooLargeException("Too large"));
+
+        assertTrue(producer.isAvailable());
+        assertTrue(journal.isEmpty());
+    }
+}
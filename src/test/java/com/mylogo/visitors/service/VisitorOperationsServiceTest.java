@@ -1,5 +1,6 @@
 package com.mylogo.visitors.service;
 
+import com.mylogo.visitors.cache.MissingVisitorCache;
 import com.mylogo.visitors.convertor.VisitorConverter;
 import com.mylogo.visitors.dto.VisitorDTO;
 import com.mylogo.visitors.entity.Visitor;
@@ -37,6 +38,10 @@ class VisitorOperationsServiceTest {
     @Mock
     private VisitorValidator visitorValidator;
 
+    // getVisitorById consults the negative cache before the repository
+    @Mock
+    private MissingVisitorCache missingVisitorCache;
+
     @InjectMocks
     private VisitorService visitorService;
 
@@ -1,36 +1,83 @@
 package com.mylogo.visitors.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mylogo.visitors.analytics.UniqueContactEstimator;
+import com.mylogo.visitors.analytics.OccupancyTracker;
+import com.mylogo.visitors.analytics.RollupGranularity;
+import com.mylogo.visitors.analytics.VisitDurationTotal;
+import com.mylogo.visitors.analytics.VisitRollups;
+import com.mylogo.visitors.analytics.VisitorColumnStore;
+import com.mylogo.visitors.cache.MissingVisitorCache;
+import com.mylogo.visitors.cache.TwoLevelCache;
+import com.mylogo.visitors.cache.VisitorPageCache;
+import com.mylogo.visitors.dto.PurposeSummaryDTO;
+import com.mylogo.visitors.dto.VisitRollupDTO;
+import com.mylogo.visitors.dto.VisitorBatchItemResult;
+import com.mylogo.visitors.dto.VisitorBatchResult;
+import com.mylogo.visitors.dto.VisitorBulkUpdateResult;
 import com.mylogo.visitors.dto.VisitorDTO;
+import com.mylogo.visitors.dto.VisitorPage;
+import com.mylogo.visitors.dto.VisitorPatch;
+import com.mylogo.visitors.dto.VisitorSearchCriteria;
+import com.mylogo.visitors.dto.VisitorStatsDTO;
+import com.mylogo.visitors.dto.VisitorStatusDTO;
+import com.mylogo.visitors.handler.InvalidRequestException;
+import com.mylogo.visitors.pagination.VisitorCursor;
+import com.mylogo.visitors.pagination.VisitorSort;
 import com.mylogo.visitors.entity.Visitor;
+import com.mylogo.visitors.event.VisitorEventType;
 import com.mylogo.visitors.handler.DatabaseOperationException;
 import com.mylogo.visitors.handler.VisitorNotFoundException;
 import com.mylogo.visitors.handler.VisitorRetrievalException;
+import com.mylogo.visitors.repository.VisitCheckIn;
+import com.mylogo.visitors.repository.VisitTimes;
+import com.mylogo.visitors.repository.VisitorColumns;
 import com.mylogo.visitors.repository.VisitorRepository;
+import com.mylogo.visitors.validator.VisitorValidator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -50,10 +97,37 @@ class VisitorServiceTest {
     private CacheManager cacheManager;
 
     @Mock
-    private VisitorEventProducer eventProducer;
+    private EventProducer eventProducer;
 
     @Mock
-    private ObjectMapper objectMapper;
+    private VisitorChangeNotifier changeNotifier;
+
+    @Mock
+    private VisitDurationTotal visitDurationTotal;
+
+    @Mock
+    private UniqueContactEstimator uniqueContactEstimator;
+
+    @Mock
+    private VisitorColumnStore columnStore;
+
+    @Mock
+    private VisitRollups visitRollups;
+
+    @Mock
+    private OccupancyTracker occupancyTracker;
+
+    @Mock
+    private VisitorPageCache visitorPageCache;
+
+    @Mock
+    private MissingVisitorCache missingVisitorCache;
+
+    @Spy
+    private VisitorValidator visitorValidator = new VisitorValidator();
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     private Visitor visitor;
 
@@ -65,6 +139,12 @@ class VisitorServiceTest {
         visitor.setName("John Doe");
         visitor.setContactNumber("1234567890");
         visitor.setPurpose("Meeting");
+        ReflectionTestUtils.setField(visitorService, "defaultPageSize", 50);
+        ReflectionTestUtils.setField(visitorService, "maxPageSize", 500);
+        ReflectionTestUtils.setField(visitorService, "batchChunkSize", 500);
+        ReflectionTestUtils.setField(visitorService, "maxBatchSize", 5000);
+        lenient().when(visitorPageCache.get(any(), anyInt(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<VisitorPage>>getArgument(2).get());
     }
 
     //@Test
@@ -79,7 +159,7 @@ class VisitorServiceTest {
 
     @Test
     void testGetAllVisitors_ExceptionHandling() {
-        when(visitorRepository.findAll()).thenThrow(new RuntimeException("Database is down"));
+        when(visitorRepository.findFirstPageById(any())).thenThrow(new RuntimeException("Database is down"));
 
         VisitorRetrievalException exception = assertThrows(
                 VisitorRetrievalException.class,
@@ -87,10 +167,263 @@ class VisitorServiceTest {
         );
 
         assertEquals("Failed to retrieve visitors from the database", exception.getMessage());
-        verify(visitorRepository, times(1)).findAll();
+        verify(visitorRepository, never()).findAll();
+    }
+
+    @Test
+    void testGetAllVisitors_AssembledFromCachedPages() {
+        ReflectionTestUtils.setField(visitorService, "maxPageSize", 1);
+        Visitor second = new Visitor();
+        second.setId(2L);
+        when(visitorRepository.findFirstPageById(PageRequest.of(0, 2))).thenReturn(Arrays.asList(visitor, second));
+        when(visitorRepository.findPageAfterId(1L, PageRequest.of(0, 2))).thenReturn(List.of(second));
+
+        List<VisitorDTO> visitors = visitorService.getAllVisitors();
+
+        assertEquals(2, visitors.size());
+        assertEquals(2L, visitors.get(1).getId());
+        verify(visitorPageCache, times(2)).get(any(), eq(1), any());
+    }
+
+
+
+    @Test
+    void testGetVisitorPage_FirstPageById() {
+        Visitor second = new Visitor();
+        second.setId(2L);
+        Visitor third = new Visitor();
+        third.setId(3L);
+        when(visitorRepository.findFirstPageById(PageRequest.of(0, 3))).thenReturn(Arrays.asList(visitor, second, third));
+
+        VisitorPage page = visitorService.getVisitorPage(null, 2, null);
+
+        assertEquals(2, page.getSize());
+        assertEquals(2L, page.getContent().get(1).getId());
+        VisitorCursor next = VisitorCursor.decode(page.getNextCursor());
+        assertEquals(VisitorSort.ID, next.getSort());
+        assertEquals(2L, next.getAfterId());
     }
 
+    @Test
+    void testGetVisitorPage_NextPageById_LastPage() {
+        String cursor = VisitorCursor.after(VisitorSort.ID, visitor).encode();
+        when(visitorRepository.findPageAfterId(1L, PageRequest.of(0, 51))).thenReturn(Collections.emptyList());
+
+        VisitorPage page = visitorService.getVisitorPage(cursor, null, null);
+
+        assertEquals(0, page.getSize());
+        assertNull(page.getNextCursor());
+    }
 
+    @Test
+    void testGetVisitorPage_CheckInContinuesWithVisitorsWithoutCheckIn() {
+        visitor.setCheckIn(LocalDateTime.of(2024, 11, 12, 9, 0));
+        Visitor withoutCheckIn = new Visitor();
+        withoutCheckIn.setId(5L);
+        when(visitorRepository.findFirstPageByCheckIn(PageRequest.of(0, 3))).thenReturn(List.of(visitor));
+        when(visitorRepository.findFirstPageWithoutCheckIn(PageRequest.of(0, 2))).thenReturn(List.of(withoutCheckIn));
+
+        VisitorPage page = visitorService.getVisitorPage(null, 2, "checkIn");
+
+        assertEquals(2, page.getSize());
+        assertEquals(5L, page.getContent().get(1).getId());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetVisitorPage_CapsPageSize() {
+        when(visitorRepository.findFirstPageById(PageRequest.of(0, 501))).thenReturn(Collections.emptyList());
+
+        visitorService.getVisitorPage(null, 10_000, "id");
+
+        verify(visitorRepository, times(1)).findFirstPageById(PageRequest.of(0, 501));
+    }
+
+    @Test
+    void testGetVisitorPage_RejectsCursorForDifferentSort() {
+        String cursor = VisitorCursor.after(VisitorSort.ID, visitor).encode();
+
+        assertThrows(InvalidRequestException.class, () -> visitorService.getVisitorPage(cursor, 10, "checkIn"));
+        verifyNoInteractions(visitorRepository);
+    }
+
+    @Test
+    void testSearchVisitors_FirstPage() {
+        Visitor second = new Visitor();
+        second.setId(2L);
+        when(visitorRepository.findLimited(any(), eq(Sort.by("id")), eq(2))).thenReturn(Arrays.asList(visitor, second));
+
+        VisitorPage page = visitorService.searchVisitors(
+                VisitorSearchCriteria.builder().approved(true).namePrefix("Jo").build(), null, 1);
+
+        assertEquals(1, page.getSize());
+        assertEquals(1L, page.getContent().get(0).getId());
+        assertEquals(1L, VisitorCursor.decode(page.getNextCursor()).getAfterId());
+    }
+
+    @Test
+    void testSearchVisitors_RejectsEmptyCheckInRange() {
+        LocalDateTime at = LocalDateTime.of(2024, 11, 12, 9, 0);
+        VisitorSearchCriteria criteria = VisitorSearchCriteria.builder().checkInFrom(at).checkInTo(at).build();
+
+        assertThrows(InvalidRequestException.class, () -> visitorService.searchVisitors(criteria, null, 10));
+        verifyNoInteractions(visitorRepository);
+    }
+
+    @Test
+    void testSearchVisitors_DatabaseError() {
+        when(visitorRepository.findLimited(any(), any(), eq(51))).thenThrow(new RuntimeException("Database error"));
+
+        assertThrows(VisitorRetrievalException.class,
+                () -> visitorService.searchVisitors(new VisitorSearchCriteria(), null, null));
+    }
+
+    @Test
+    void testStreamVisitors_ReadsPageByPage() {
+        ReflectionTestUtils.setField(visitorService, "maxPageSize", 1);
+        Visitor second = new Visitor();
+        second.setId(2L);
+        second.setPurpose("Meeting");
+        when(visitorRepository.findFirstPageByPurpose(PageRequest.of(0, 2))).thenReturn(List.of(visitor, second));
+        when(visitorRepository.findPageAfterPurpose("Meeting", 1L, PageRequest.of(0, 2))).thenReturn(List.of(second));
+        when(visitorRepository.findFirstPageWithoutPurpose(PageRequest.of(0, 1))).thenReturn(Collections.emptyList());
+
+        List<List<Visitor>> pages = visitorService.streamVisitors(VisitorSort.PURPOSE).collectList().block();
+
+        assertEquals(2, pages.size());
+        assertEquals(1L, pages.get(0).get(0).getId());
+        assertEquals(2L, pages.get(1).get(0).getId());
+    }
+
+    @Test
+    void testStreamVisitors_UnknownPurposeReadAfterMissingPurpose() {
+        ReflectionTestUtils.setField(visitorService, "maxPageSize", 1);
+        Visitor withoutPurpose = new Visitor();
+        withoutPurpose.setId(3L);
+        Visitor unknown = new Visitor();
+        unknown.setId(2L);
+        unknown.setPurpose("Unknown");
+        Visitor lowerCaseUnknown = new Visitor();
+        lowerCaseUnknown.setId(4L);
+        lowerCaseUnknown.setPurpose("unknown");
+        when(visitorRepository.findFirstPageByPurpose(PageRequest.of(0, 2))).thenReturn(Collections.emptyList());
+        when(visitorRepository.findFirstPageWithoutPurpose(PageRequest.of(0, 2))).thenReturn(List.of(withoutPurpose));
+        when(visitorRepository.findFirstPageWithUnknownPurpose(PageRequest.of(0, 1))).thenReturn(List.of(unknown));
+        when(visitorRepository.findFirstPageWithUnknownPurpose(PageRequest.of(0, 2)))
+                .thenReturn(List.of(unknown, lowerCaseUnknown));
+        when(visitorRepository.findPageWithUnknownPurposeAfterId(2L, PageRequest.of(0, 2)))
+                .thenReturn(List.of(lowerCaseUnknown));
+
+        List<List<Visitor>> pages = visitorService.streamVisitors(VisitorSort.PURPOSE).collectList().block();
+
+        assertEquals(3, pages.size());
+        assertEquals(3L, pages.get(0).get(0).getId());
+        assertEquals(2L, pages.get(1).get(0).getId());
+        assertEquals(4L, pages.get(2).get(0).getId());
+    }
+
+    @Test
+    void testStreamVisitors_DatabaseError() {
+        when(visitorRepository.findFirstPageById(any())).thenThrow(new RuntimeException("Database error"));
+
+        assertThrows(VisitorRetrievalException.class,
+                () -> visitorService.streamVisitors(VisitorSort.ID).collectList().block());
+    }
+
+    @Test
+    void testGetAllVisitorsSortedByCheckIn_OrderedByDatabase() {
+        ReflectionTestUtils.setField(visitorService, "maxPageSize", 1);
+        visitor.setCheckIn(LocalDateTime.of(2024, 11, 12, 9, 0));
+        Visitor later = new Visitor();
+        later.setId(2L);
+        later.setCheckIn(LocalDateTime.of(2024, 11, 12, 10, 0));
+        when(visitorRepository.findFirstPageByCheckIn(PageRequest.of(0, 2))).thenReturn(List.of(visitor, later));
+        when(visitorRepository.findPageAfterCheckIn(visitor.getCheckIn(), 1L, PageRequest.of(0, 2))).thenReturn(List.of(later));
+        when(visitorRepository.findFirstPageWithoutCheckIn(PageRequest.of(0, 1))).thenReturn(Collections.emptyList());
+
+        List<Visitor> sorted = visitorService.getAllVisitorsSortedByCheckIn();
+
+        assertEquals(List.of(visitor, later), sorted);
+        verify(visitorRepository, never()).findAll();
+    }
+
+    @Test
+    void testStreamUniqueContactNumbers_KeysetOnContactNumber() {
+        ReflectionTestUtils.setField(visitorService, "maxPageSize", 2);
+        when(visitorRepository.findFirstContactNumbers(PageRequest.of(0, 2))).thenReturn(List.of("111", "222"));
+        when(visitorRepository.findContactNumbersAfter("222", PageRequest.of(0, 2))).thenReturn(List.of("333"));
+
+        List<List<String>> pages = visitorService.streamUniqueContactNumbers().collectList().block();
+
+        assertEquals(List.of(List.of("111", "222"), List.of("333")), pages);
+    }
+
+    @Test
+    void testEstimateUniqueContactNumbers() {
+        when(uniqueContactEstimator.estimate()).thenReturn(12L);
+
+        assertEquals(12L, visitorService.estimateUniqueContactNumbers());
+        verifyNoInteractions(visitorRepository);
+    }
+
+    @Test
+    void testSummarizeVisitorsByPurpose_UnknownLast() {
+        when(visitorRepository.summarizeByPurpose()).thenReturn(Arrays.asList(
+                new PurposeSummaryDTO(null, 1L, 3L),
+                new PurposeSummaryDTO("Meeting", 2L, 5L)));
+
+        List<PurposeSummaryDTO> summaries = visitorService.summarizeVisitorsByPurpose();
+
+        assertEquals("Meeting", summaries.get(0).getPurpose());
+        assertEquals(VisitorService.UNKNOWN_PURPOSE, summaries.get(1).getPurpose());
+        assertEquals(3L, summaries.get(1).getTotalDuration());
+    }
+
+    @Test
+    void testSummarizeVisitorsByPurpose_MergesPurposesEqualUnderCollation() {
+        when(columnStore.isLoaded()).thenReturn(true);
+        when(columnStore.summarizeByPurpose()).thenReturn(Arrays.asList(
+                new PurposeSummaryDTO(null, 1L, 3L),
+                new PurposeSummaryDTO("Meeting", 2L, 5L),
+                new PurposeSummaryDTO("Unknown", 1L, 1L),
+                new PurposeSummaryDTO("meeting", 1L, 2L)));
+
+        List<PurposeSummaryDTO> summaries = visitorService.summarizeVisitorsByPurpose();
+
+        assertEquals(2, summaries.size());
+        assertEquals("Meeting", summaries.get(0).getPurpose());
+        assertEquals(3L, summaries.get(0).getVisitorCount());
+        assertEquals(7L, summaries.get(0).getTotalDuration());
+        assertEquals(VisitorService.UNKNOWN_PURPOSE, summaries.get(1).getPurpose());
+        assertEquals(2L, summaries.get(1).getVisitorCount());
+        assertEquals(4L, summaries.get(1).getTotalDuration());
+    }
+
+    @Test
+    void testSummarizeVisitorsByPurpose_FromLoadedColumnStore() {
+        when(columnStore.isLoaded()).thenReturn(true);
+        when(columnStore.summarizeByPurpose()).thenReturn(Arrays.asList(
+                new PurposeSummaryDTO(null, 1L, 3L),
+                new PurposeSummaryDTO("Meeting", 2L, 5L)));
+
+        List<PurposeSummaryDTO> summaries = visitorService.summarizeVisitorsByPurpose();
+
+        assertEquals("Meeting", summaries.get(0).getPurpose());
+        assertEquals(VisitorService.UNKNOWN_PURPOSE, summaries.get(1).getPurpose());
+        verifyNoInteractions(visitorRepository);
+    }
+
+    @Test
+    void testStreamUniqueContactNumbers_FromLoadedColumnStore() {
+        ReflectionTestUtils.setField(visitorService, "maxPageSize", 2);
+        when(columnStore.isLoaded()).thenReturn(true);
+        when(columnStore.distinctContactNumbers()).thenReturn(List.of("111", "222", "333"));
+
+        List<List<String>> pages = visitorService.streamUniqueContactNumbers().collectList().block();
+
+        assertEquals(List.of(List.of("111", "222"), List.of("333")), pages);
+        verifyNoInteractions(visitorRepository);
+    }
 
     @Test
     void testGetVisitorById_Success() {
@@ -113,6 +446,17 @@ class VisitorServiceTest {
 
         assertEquals("Visitor with ID 1 not found", exception.getMessage());
         verify(visitorRepository, times(1)).findById(1L);
+        verify(missingVisitorCache, times(1)).markMissing(1L);
+        verifyNoInteractions(eventProducer);
+    }
+
+    @Test
+    void testGetVisitorById_KnownMissingSkipsDatabase() {
+        when(missingVisitorCache.isKnownMissing(1L)).thenReturn(true);
+
+        assertThrows(VisitorNotFoundException.class, () -> visitorService.getVisitorById(1L));
+
+        verifyNoInteractions(visitorRepository);
         verifyNoInteractions(eventProducer);
     }
 
@@ -147,9 +491,8 @@ class VisitorServiceTest {
 
         visitorService.getVisitorById(1L);
 
-        Thread.sleep(100);
-
-        verify(eventProducer, times(1)).produceVisitorEvent("Visitor fetched: 1");
+        verify(eventProducer, times(1)).publish(argThat(event ->
+                event.getType() == VisitorEventType.FETCHED && event.getVisitorId() == 1L));
     }
 
     @Test
@@ -183,6 +526,35 @@ class VisitorServiceTest {
 
 
 
+    @Test
+    void testAddVisitor_EventRecordedInTheTransactionOfTheInsert() {
+        Visitor savedVisitor = new Visitor();
+        savedVisitor.setId(1L);
+        when(visitorRepository.save(visitor)).thenReturn(savedVisitor);
+
+        visitorService.addVisitor(visitor);
+
+        InOrder inOrder = inOrder(transactionManager, visitorRepository, eventProducer, changeNotifier);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(visitorRepository).save(visitor);
+        inOrder.verify(eventProducer).publish(argThat(event -> event.getType() == VisitorEventType.CREATED));
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(changeNotifier).visitorSaved(null, savedVisitor);
+    }
+
+    @Test
+    void testUpdateVisitor_FailedEventRollsBackTheUpdate() {
+        when(visitorRepository.findById(1L)).thenReturn(Optional.of(new Visitor()));
+        when(visitorRepository.save(visitor)).thenReturn(visitor);
+        doThrow(new IllegalTransactionStateException("No transaction")).when(eventProducer).publish(any());
+
+        assertThrows(DatabaseOperationException.class, () -> visitorService.updateVisitor(1L, visitor));
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(changeNotifier, never()).visitorSaved(any(), any());
+    }
+
     @Test
     void testAddVisitor_NullVisitor() {
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
@@ -239,6 +611,70 @@ class VisitorServiceTest {
     }
 
 
+    @Test
+    void testAddVisitors_ReportsInvalidVisitorsAndInsertsTheRest() {
+        Visitor unnamed = new Visitor();
+        Visitor other = new Visitor();
+        other.setName("Jane Doe");
+        when(visitorRepository.saveAll(Arrays.asList(visitor, other))).thenAnswer(invocation -> {
+            visitor.setId(10L);
+            other.setId(11L);
+            return Arrays.asList(visitor, other);
+        });
+
+        VisitorBatchResult result = visitorService.addVisitors(Arrays.asList(visitor, unnamed, other));
+
+        assertEquals(2, result.getCreated());
+        assertEquals(1, result.getRejected());
+        assertEquals(VisitorBatchItemResult.Status.CREATED, result.getResults().get(0).getStatus());
+        assertEquals(10L, result.getResults().get(0).getId());
+        assertEquals(VisitorBatchItemResult.Status.INVALID, result.getResults().get(1).getStatus());
+        assertEquals("Visitor name cannot be empty", result.getResults().get(1).getError());
+        assertEquals(11L, result.getResults().get(2).getId());
+        verify(changeNotifier).visitorsCreated(Arrays.asList(visitor, other));
+    }
+
+    @Test
+    void testAddVisitors_InsertsInChunks() {
+        ReflectionTestUtils.setField(visitorService, "batchChunkSize", 1);
+        Visitor other = new Visitor();
+        other.setName("Jane Doe");
+        when(visitorRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        VisitorBatchResult result = visitorService.addVisitors(Arrays.asList(visitor, other));
+
+        assertEquals(2, result.getCreated());
+        verify(visitorRepository).saveAll(List.of(visitor));
+        verify(visitorRepository).saveAll(List.of(other));
+        verify(changeNotifier, times(2)).visitorsCreated(any());
+    }
+
+    @Test
+    void testAddVisitors_FailedChunkRetriedOneByOne() {
+        Visitor other = new Visitor();
+        other.setName("Jane Doe");
+        when(visitorRepository.saveAll(any())).thenThrow(new RuntimeException("Duplicate entry"));
+        when(visitorRepository.save(visitor)).thenReturn(visitor);
+        when(visitorRepository.save(other)).thenThrow(new RuntimeException("Duplicate entry"));
+
+        VisitorBatchResult result = visitorService.addVisitors(Arrays.asList(visitor, other));
+
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getRejected());
+        assertEquals(VisitorBatchItemResult.Status.CREATED, result.getResults().get(0).getStatus());
+        assertEquals(VisitorBatchItemResult.Status.FAILED, result.getResults().get(1).getStatus());
+        verify(changeNotifier).visitorsCreated(List.of(visitor));
+    }
+
+    @Test
+    void testAddVisitors_RejectsOversizedBatch() {
+        ReflectionTestUtils.setField(visitorService, "maxBatchSize", 1);
+
+        assertThrows(InvalidRequestException.class,
+                () -> visitorService.addVisitors(Arrays.asList(visitor, new Visitor())));
+        verifyNoInteractions(visitorRepository);
+    }
+
     @Test
     void testUpdateVisitor_Success() {
         Long id = 1L;
@@ -307,6 +743,20 @@ class VisitorServiceTest {
         visitorService.updateVisitor(id, visitor);
     }
 
+    @Test
+    void testUpdateVisitor_NotifiesListenersWithPreviousState() {
+        Visitor existingVisitor = new Visitor();
+        existingVisitor.setId(1L);
+        existingVisitor.setDuration(2L);
+        visitor.setDuration(5L);
+        when(visitorRepository.findById(1L)).thenReturn(Optional.of(existingVisitor));
+        when(visitorRepository.save(visitor)).thenReturn(visitor);
+
+        visitorService.updateVisitor(1L, visitor);
+
+        verify(changeNotifier, times(1)).visitorSaved(existingVisitor, visitor);
+    }
+
     @Test
     void testUpdateVisitor_VisitorNotFound() {
         Long id = 1L;
@@ -323,6 +773,167 @@ class VisitorServiceTest {
     }
 
 
+    @Test
+    void testApproveVisitors_UpdatesOnlyPendingVisitorsInOneStatement() {
+        TwoLevelCache cache = mock(TwoLevelCache.class);
+        when(cacheManager.getCache("visitor")).thenReturn(cache);
+        when(visitorRepository.lockUnapprovedIds(Set.of(1L, 2L, 3L))).thenReturn(List.of(1L, 3L));
+
+        VisitorBulkUpdateResult result = visitorService.approveVisitors(Arrays.asList(1L, 2L, 3L, 1L));
+
+        assertEquals(3, result.getRequested());
+        assertEquals(2, result.getUpdated());
+        assertEquals(List.of(1L, 3L), result.getUpdatedIds());
+        verify(visitorRepository).approveByIds(List.of(1L, 3L));
+        verify(cache).evictAll(List.of(1L, 3L));
+        verify(eventProducer).publishAll(argThat(events -> events.size() == 2
+                && events.get(0).getVisitorId() == 1L && events.get(1).getVisitorId() == 3L
+                && events.get(0).getType() == VisitorEventType.APPROVED));
+        verify(changeNotifier).visitorsUpdated(List.of(1L, 3L));
+    }
+
+    @Test
+    void testCheckOutVisitors_PublishesEachVisitDuration() {
+        TwoLevelCache cache = mock(TwoLevelCache.class);
+        when(cacheManager.getCache("visitor")).thenReturn(cache);
+        VisitCheckIn first = mock(VisitCheckIn.class);
+        when(first.getId()).thenReturn(1L);
+        when(first.getCheckIn()).thenReturn(LocalDateTime.now().minusMinutes(150));
+        VisitCheckIn second = mock(VisitCheckIn.class);
+        when(second.getId()).thenReturn(3L);
+        when(second.getCheckIn()).thenReturn(LocalDateTime.now().minusMinutes(30));
+        when(visitorRepository.lockCheckedInNotCheckedOut(Set.of(1L, 2L, 3L))).thenReturn(List.of(first, second));
+
+        VisitorBulkUpdateResult result = visitorService.checkOutVisitors(List.of(1L, 2L, 3L));
+
+        assertEquals(List.of(1L, 3L), result.getUpdatedIds());
+        verify(visitorRepository).checkOutByIds(eq(Set.of(1L, 3L)), any());
+        verify(eventProducer).publishAll(argThat(events -> events.size() == 2
+                && events.get(0).getType() == VisitorEventType.CHECKED_OUT
+                && ((VisitorPatch) events.get(0).getPayload()).getDuration() == 2L
+                && ((VisitorPatch) events.get(1).getPayload()).getDuration() == 0L));
+        verify(changeNotifier).visitorsUpdated(List.of(1L, 3L));
+    }
+
+    @Test
+    void testCheckOutVisitors_NothingPendingSkipsUpdate() {
+        when(visitorRepository.lockCheckedInNotCheckedOut(Set.of(1L))).thenReturn(Collections.emptyList());
+
+        VisitorBulkUpdateResult result = visitorService.checkOutVisitors(List.of(1L));
+
+        assertEquals(0, result.getUpdated());
+        verify(visitorRepository, never()).checkOutByIds(any(), any());
+        verify(changeNotifier, never()).visitorsUpdated(any());
+        verifyNoInteractions(cacheManager, eventProducer);
+    }
+
+    @Test
+    void testCheckOutVisitors_DatabaseError() {
+        when(visitorRepository.lockCheckedInNotCheckedOut(any())).thenThrow(new RuntimeException("Lock wait timeout"));
+
+        assertThrows(DatabaseOperationException.class, () -> visitorService.checkOutVisitors(List.of(1L)));
+        verifyNoInteractions(cacheManager);
+    }
+
+    @Test
+    void testApproveVisitors_RejectsEmptyRequest() {
+        assertThrows(InvalidRequestException.class, () -> visitorService.approveVisitors(Collections.emptyList()));
+        verifyNoInteractions(visitorRepository);
+    }
+
+    @Test
+    void testPatchVisitor_UpdatesWithoutReadAndEvictsCachedCopy() {
+        Cache cache = mock(Cache.class);
+        when(cacheManager.getCache("visitor")).thenReturn(cache);
+        VisitorPatch patch = VisitorPatch.builder().approved(true).build();
+        when(visitorRepository.patch(1L, patch)).thenReturn(1);
+
+        visitorService.patchVisitor(1L, patch);
+
+        verify(visitorRepository, never()).findById(any());
+        verify(cache).evict(1L);
+        verify(cache, never()).put(any(), any());
+        verify(changeNotifier).visitorPatched(1L, patch, null);
+    }
+
+    @Test
+    void testPatchVisitor_MovedCheckInReportsPreviousTimes() {
+        VisitTimes times = mock(VisitTimes.class);
+        when(visitorRepository.lockVisitTimes(1L)).thenReturn(Optional.of(times));
+        VisitorPatch patch = VisitorPatch.builder().checkIn(LocalDateTime.of(2024, 11, 12, 9, 0)).build();
+        when(visitorRepository.patch(1L, patch)).thenReturn(1);
+
+        visitorService.patchVisitor(1L, patch);
+
+        verify(changeNotifier).visitorPatched(1L, patch, times);
+    }
+
+    @Test
+    void testPatchVisitor_NotFoundFromRowCount() {
+        VisitorPatch patch = VisitorPatch.builder().purpose("Interview").build();
+        when(visitorRepository.patch(1L, patch)).thenReturn(0);
+
+        assertThrows(VisitorNotFoundException.class, () -> visitorService.patchVisitor(1L, patch));
+        verifyNoInteractions(cacheManager, changeNotifier);
+    }
+
+    @Test
+    void testPatchVisitor_RejectsEmptyPatch() {
+        assertThrows(InvalidRequestException.class, () -> visitorService.patchVisitor(1L, new VisitorPatch()));
+        verifyNoInteractions(visitorRepository);
+    }
+
+    @Test
+    void testCheckIn_StampsAndApprovesInOneUpdate() {
+        when(visitorRepository.checkIn(eq(1L), any())).thenReturn(1);
+
+        VisitorStatusDTO status = visitorService.checkIn(1L);
+
+        assertEquals(1L, status.getId());
+        assertNotNull(status.getCheckIn());
+        assertTrue(status.getApproved());
+        verify(visitorRepository, never()).findById(any());
+        verify(changeNotifier).visitorPatched(eq(1L), argThat(patch -> Boolean.TRUE.equals(patch.getApproved())), eq(null));
+    }
+
+    @Test
+    void testCheckIn_AlreadyCheckedIn() {
+        when(visitorRepository.checkIn(eq(1L), any())).thenReturn(0);
+        when(visitorRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(InvalidRequestException.class, () -> visitorService.checkIn(1L));
+        verifyNoInteractions(changeNotifier);
+    }
+
+    @Test
+    void testCheckIn_VisitorNotFound() {
+        when(visitorRepository.checkIn(eq(1L), any())).thenReturn(0);
+        when(visitorRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(VisitorNotFoundException.class, () -> visitorService.checkIn(1L));
+    }
+
+    @Test
+    void testCheckOut_StoresWholeVisitHoursAndReportsPreviousTimes() {
+        VisitTimes times = mock(VisitTimes.class);
+        when(times.getCheckIn()).thenReturn(LocalDateTime.now().minusMinutes(150));
+        when(visitorRepository.lockVisitTimes(1L)).thenReturn(Optional.of(times));
+
+        VisitorStatusDTO status = visitorService.checkOut(1L);
+
+        assertEquals(2L, status.getDuration());
+        verify(visitorRepository).checkOut(eq(1L), eq(status.getCheckOut()), eq(2L));
+        verify(changeNotifier).visitorPatched(eq(1L), argThat(patch -> patch.getDuration() == 2L), eq(times));
+    }
+
+    @Test
+    void testCheckOut_NotCheckedIn() {
+        when(visitorRepository.lockVisitTimes(1L)).thenReturn(Optional.of(mock(VisitTimes.class)));
+
+        assertThrows(InvalidRequestException.class, () -> visitorService.checkOut(1L));
+        verify(visitorRepository, never()).checkOut(any(), any(), anyLong());
+    }
+
     @Test
     void testDeleteVisitor_Success() {
         Long id = 1L;
@@ -335,6 +946,15 @@ class VisitorServiceTest {
     }
 
 
+    @Test
+    void testDeleteVisitor_NotifiesListenersWithDeletedVisitor() {
+        when(visitorRepository.findById(1L)).thenReturn(Optional.of(visitor));
+
+        visitorService.deleteVisitor(1L);
+
+        verify(changeNotifier, times(1)).visitorDeleted(visitor);
+    }
+
     @Test
     void testDeleteVisitor_DatabaseError() {
         Long id = 1L;
@@ -358,9 +978,8 @@ class VisitorServiceTest {
 
         visitorService.deleteVisitor(id);
 
-        Thread.sleep(100);
-
-        verify(eventProducer, times(1)).produceVisitorEvent("Visitor Deleted with visitorID: " + id);
+        verify(eventProducer, times(1)).publish(argThat(event ->
+                event.getType() == VisitorEventType.DELETED && event.getVisitorId().equals(id)));
     }
 
 
@@ -394,6 +1013,164 @@ class VisitorServiceTest {
 
 
     @Test
+    void testCalculateTotalVisitDuration_UsesRunningTotal() {
+        when(visitDurationTotal.get()).thenReturn(42L);
+
+        assertEquals(42L, visitorService.calculateTotalVisitDuration(null, null, null));
+        verifyNoInteractions(visitorRepository);
+    }
+
+    @Test
+    void testCalculateTotalVisitDuration_WithFiltersUsesAggregate() {
+        LocalDateTime from = LocalDateTime.of(2024, 11, 1, 0, 0);
+        when(visitorRepository.sumDuration(ArgumentMatchers.<Specification<Visitor>>any())).thenReturn(7L);
+
+        assertEquals(7L, visitorService.calculateTotalVisitDuration(from, null, "Interview"));
+        verifyNoInteractions(visitDurationTotal);
+    }
+
+    @Test
+    void testCalculateTotalVisitDuration_WithFiltersFromLoadedColumnStore() {
+        LocalDateTime from = LocalDateTime.of(2024, 11, 1, 0, 0);
+        when(columnStore.isLoaded()).thenReturn(true);
+        when(columnStore.sumDuration(from, null, "Interview")).thenReturn(9L);
+
+        assertEquals(9L, visitorService.calculateTotalVisitDuration(from, null, "Interview"));
+        verifyNoInteractions(visitorRepository);
+    }
+
+    @Test
+    void testGetVisitorStats_FromLoadedColumnStore() {
+        VisitorStatsDTO stats = new VisitorStatsDTO(1L, 5L, 5L, 5L, 5.0, 1.0, 5L, 5L, 5L);
+        when(columnStore.isLoaded()).thenReturn(true);
+        when(columnStore.stats(null, null, "Interview")).thenReturn(stats);
+
+        assertEquals(stats, visitorService.getVisitorStats(null, null, "Interview"));
+        verifyNoInteractions(visitorRepository);
+    }
+
+    @Test
+    void testGetVisitorStats_BeforeLoadScansColumnPages() {
+        ReflectionTestUtils.setField(visitorService, "maxPageSize", 2);
+        LocalDateTime from = LocalDateTime.of(2024, 11, 1, 0, 0);
+        VisitorColumns early = mock(VisitorColumns.class);
+        when(early.getCheckIn()).thenReturn(from.minusDays(1));
+        VisitorColumns late = mock(VisitorColumns.class);
+        when(late.getId()).thenReturn(2L);
+        when(late.getCheckIn()).thenReturn(from.plusDays(1));
+        when(late.getDuration()).thenReturn(30L);
+        when(late.isApproved()).thenReturn(true);
+        when(visitorRepository.findColumnsAfterId(0L, PageRequest.of(0, 2))).thenReturn(List.of(early, late));
+        when(visitorRepository.findColumnsAfterId(2L, PageRequest.of(0, 2))).thenReturn(List.of());
+
+        VisitorStatsDTO stats = visitorService.getVisitorStats(from, null, null);
+
+        assertEquals(new VisitorStatsDTO(1L, 30L, 30L, 30L, 30.0, 1.0, 30L, 30L, 30L), stats);
+    }
+
+    @Test
+    void testGetVisitorStats_BeforeLoadMatchesPurposeLikeTheDatabase() {
+        ReflectionTestUtils.setField(visitorService, "maxPageSize", 2);
+        VisitorColumns meeting = mock(VisitorColumns.class);
+        when(meeting.getPurpose()).thenReturn("Meeting");
+        when(meeting.getDuration()).thenReturn(30L);
+        VisitorColumns other = mock(VisitorColumns.class);
+        when(other.getId()).thenReturn(2L);
+        when(visitorRepository.findColumnsAfterId(0L, PageRequest.of(0, 2))).thenReturn(List.of(meeting, other));
+        when(visitorRepository.findColumnsAfterId(2L, PageRequest.of(0, 2))).thenReturn(List.of());
+
+        VisitorStatsDTO stats = visitorService.getVisitorStats(null, null, "meeting");
+
+        assertEquals(1L, stats.getVisitorCount());
+        assertEquals(30L, stats.getTotalDuration());
+    }
+
+    @Test
+    void testGetVisitRollups_LabelsVisitorsWithoutPurpose() {
+        ReflectionTestUtils.setField(visitorService, "maxRollupBuckets", 90);
+        LocalDateTime from = LocalDateTime.of(2024, 11, 1, 0, 0);
+        when(visitRollups.find(RollupGranularity.DAY, from, from.plusDays(90), null)).thenReturn(List.of(
+                new VisitRollupDTO(from, null, 1L, 5L, 0L)));
+
+        List<VisitRollupDTO> rollups = visitorService.getVisitRollups("day", from, from.plusDays(90), null);
+
+        assertEquals(VisitorService.UNKNOWN_PURPOSE, rollups.get(0).getPurpose());
+    }
+
+    @Test
+    void testGetVisitRollups_MergesUnknownPerBucket() {
+        ReflectionTestUtils.setField(visitorService, "maxRollupBuckets", 90);
+        LocalDateTime from = LocalDateTime.of(2024, 11, 1, 0, 0);
+        when(visitRollups.find(RollupGranularity.DAY, from, from.plusDays(2), null)).thenReturn(List.of(
+                new VisitRollupDTO(from, null, 1L, 5L, 0L),
+                new VisitRollupDTO(from, "Meeting", 2L, 4L, 2L),
+                new VisitRollupDTO(from, "Unknown", 3L, 6L, 1L),
+                new VisitRollupDTO(from.plusDays(1), "Unknown", 1L, 1L, 1L)));
+
+        List<VisitRollupDTO> rollups = visitorService.getVisitRollups("day", from, from.plusDays(2), null);
+
+        assertEquals(List.of(
+                new VisitRollupDTO(from, "Meeting", 2L, 4L, 2L),
+                new VisitRollupDTO(from, VisitorService.UNKNOWN_PURPOSE, 4L, 11L, 1L),
+                new VisitRollupDTO(from.plusDays(1), VisitorService.UNKNOWN_PURPOSE, 1L, 1L, 1L)), rollups);
+    }
+
+    @Test
+    void testGetVisitRollups_RejectsInvalidRanges() {
+        ReflectionTestUtils.setField(visitorService, "maxRollupBuckets", 90);
+        LocalDateTime from = LocalDateTime.of(2024, 11, 1, 0, 0);
+
+        assertThrows(InvalidRequestException.class, () -> visitorService.getVisitRollups("hour", from, from.plusDays(4), null));
+        assertThrows(InvalidRequestException.class, () -> visitorService.getVisitRollups("day", from, from, null));
+        assertThrows(InvalidRequestException.class, () -> visitorService.getVisitRollups("week", from, from.plusDays(1), null));
+        verifyNoInteractions(visitRollups);
+    }
+
+    @Test
+    void testGetVisitorsOnSite_LoadsOnlyThePageByPrimaryKey() {
+        Visitor second = new Visitor();
+        second.setId(7L);
+        when(occupancyTracker.page(null, 3)).thenReturn(List.of(1L, 7L, 9L));
+        when(visitorRepository.findAllById(List.of(1L, 7L))).thenReturn(List.of(second, visitor));
+
+        VisitorPage page = visitorService.getVisitorsOnSite(null, 2);
+
+        assertEquals(List.of(1L, 7L), page.getContent().stream().map(VisitorDTO::getId).collect(Collectors.toList()));
+        assertEquals(VisitorCursor.afterId(7L), VisitorCursor.decode(page.getNextCursor()));
+        verify(visitorRepository, never()).findAll();
+    }
+
+    @Test
+    void testGetVisitorsOnSite_ContinuesAfterCursor() {
+        when(occupancyTracker.page(7L, 3)).thenReturn(List.of(9L));
+        Visitor last = new Visitor();
+        last.setId(9L);
+        when(visitorRepository.findAllById(List.of(9L))).thenReturn(List.of(last));
+
+        VisitorPage page = visitorService.getVisitorsOnSite(VisitorCursor.afterId(7L).encode(), 2);
+
+        assertEquals(1, page.getSize());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testCountVisitorsOnSite() {
+        when(occupancyTracker.count()).thenReturn(3L);
+
+        assertEquals(3L, visitorService.countVisitorsOnSite());
+        verifyNoInteractions(visitorRepository);
+    }
+
+    @Test
+    void testCalculateTotalVisitDuration_WithFiltersDatabaseError() {
+        when(visitorRepository.sumDuration(ArgumentMatchers.<Specification<Visitor>>any())).thenThrow(new RuntimeException("Database error"));
+
+        assertThrows(DatabaseOperationException.class,
+                () -> visitorService.calculateTotalVisitDuration(null, null, "Interview"));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
     void testCalculateTotalVisitDuration_Success() throws Exception {
         List<Visitor> visitors = Arrays.asList(
                 new Visitor(1L, "John Doe", "1234567890","test@yopmail.com", "Meeting", null, null, 60L, true,LocalDateTime.now()),
@@ -409,6 +1186,7 @@ class VisitorServiceTest {
 
 
     @Test
+    @SuppressWarnings("deprecation")
     void testCalculateTotalVisitDuration_EmptyList() throws Exception {
         List<Visitor> visitors = Collections.emptyList();
 
@@ -419,6 +1197,7 @@ class VisitorServiceTest {
     }
 
     @Test
+    @SuppressWarnings("deprecation")
     void testCalculateTotalVisitDuration_NullDurations() throws Exception {
         List<Visitor> visitors = Arrays.asList(
                 new Visitor(1L, "John Doe", "1234567890","test@yopmail.com", "Meeting", null, null, 0L, true,LocalDateTime.now()),
@@ -433,6 +1212,7 @@ class VisitorServiceTest {
     }
 
     @Test
+    @SuppressWarnings("deprecation")
     void testCalculateTotalVisitDuration_AsyncExecution() throws Exception {
         List<Visitor> visitors = Arrays.asList(
                 new Visitor(1L, "John Doe", "1234567890", "Meeting","test@yopmail.com", null, null, 60L, true,LocalDateTime.now())